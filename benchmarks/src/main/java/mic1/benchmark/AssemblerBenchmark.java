@@ -0,0 +1,63 @@
+package mic1.benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import mic1.model.MainMemory;
+import mic1.model.SourceCode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Montagem ({@link SourceCode#assemble()}) e gravação na memória
+ * ({@link SourceCode#writeToMemory()}) de um programa pequeno e de um
+ * grande (~4000 instruções).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssemblerBenchmark {
+
+    @Param({"small", "large"})
+    public String size;
+
+    private SourceCode source;
+
+    @Setup
+    public void setup() {
+        // Os modelos escrevem mensagens de log em System.out.
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        source = new SourceCode();
+        source.liveAssemblyProperty().set(false);
+        source.linkMainMemory(new MainMemory());
+        source.assemblyCodeProperty().set(size.equals("small") ? Programs.LOOP : Programs.large(4000));
+        source.assemble();
+        if (!source.isAssembled()) {
+            throw new IllegalStateException(source.getErrorMessage());
+        }
+    }
+
+    @Benchmark
+    public boolean assemble() {
+        source.assemble();
+        return source.isAssembled();
+    }
+
+    @Benchmark
+    public void writeToMemory() {
+        source.writeToMemory();
+    }
+}
@@ -0,0 +1,69 @@
+package mic1.benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import mic1.model.CPU;
+import mic1.model.MainMemory;
+import mic1.model.SourceCode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Execução de macroinstruções em cada modo da CPU. O resultado (operações
+ * por segundo) é o número de instruções por segundo.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CpuBenchmark {
+
+    /** Instruções por chamada de {@link CPU#run(long)}. */
+    private static final int STEPS = 100_000;
+
+    @Param({"MACRO", "MICRO", "BLOCK", "JIT"})
+    public CPU.ExecutionMode mode;
+
+    private CPU cpu;
+
+    @Setup
+    public void setup() {
+        // Os modelos escrevem mensagens de log em System.out.
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        MainMemory memory = new MainMemory();
+        SourceCode source = new SourceCode();
+        source.liveAssemblyProperty().set(false);
+        source.linkMainMemory(memory);
+        source.assemblyCodeProperty().set(Programs.LOOP);
+        source.assemble();
+        source.writeToMemory();
+        memory.write(MainMemory.MEMORY_SIZE - 2, 1);    // um
+        memory.write(MainMemory.MEMORY_SIZE - 4, 1000); // limite
+
+        cpu = new CPU();
+        cpu.linkMemory(memory);
+        cpu.setExecutionMode(mode);
+        cpu.reset();
+    }
+
+    /** O programa é um laço sem fim: a CPU nunca para. */
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public long run() {
+        return cpu.run(STEPS);
+    }
+}
@@ -0,0 +1,86 @@
+package mic1.benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import mic1.model.MainMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Acessos à {@link MainMemory} pela API pública (leitura, escrita e
+ * limpeza) e a formatação das linhas da tabela da memória
+ * ({@link MainMemory.MemoryEntry}), feita para cada linha visível.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoryBenchmark {
+
+    /** Linhas visíveis de uma tabela típica. */
+    private static final int VISIBLE_ROWS = 32;
+
+    private MainMemory memory;
+    private int row;
+
+    @Setup
+    public void setup() {
+        // Os modelos escrevem mensagens de log em System.out.
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        memory = new MainMemory();
+        for (int address = 0; address < MainMemory.MEMORY_SIZE; address++) {
+            memory.write(address, (short) (address * 31));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MainMemory.MEMORY_SIZE)
+    public int read() {
+        int sum = 0;
+        for (int address = 0; address < MainMemory.MEMORY_SIZE; address++) {
+            sum += memory.read(address);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MainMemory.MEMORY_SIZE)
+    public void write() {
+        for (int address = 0; address < MainMemory.MEMORY_SIZE; address++) {
+            memory.write(address, address);
+        }
+    }
+
+    @Benchmark
+    public void clearMemory() {
+        memory.clearMemory();
+    }
+
+    /** Formata as colunas de {@link #VISIBLE_ROWS} linhas, como a tabela faz ao rolar. */
+    @Benchmark
+    @OperationsPerInvocation(VISIBLE_ROWS)
+    public void formatRows(Blackhole blackhole) {
+        row = (row + VISIBLE_ROWS) % MainMemory.MEMORY_SIZE;
+        for (int i = row; i < row + VISIBLE_ROWS; i++) {
+            MainMemory.MemoryEntry entry = memory.getMemoryData().get(i);
+            blackhole.consume(entry.getAddress());
+            blackhole.consume(entry.getBinaryValue());
+            blackhole.consume(entry.getDecimalValue());
+            blackhole.consume(entry.getHexValue());
+        }
+    }
+}
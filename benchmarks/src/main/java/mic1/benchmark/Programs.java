@@ -0,0 +1,66 @@
+package mic1.benchmark;
+
+/**
+ * Programas usados pelos benchmarks.
+ */
+final class Programs {
+
+    private Programs() {
+        // Impede a instanciação
+    }
+
+    /**
+     * Laço sem fim que mistura acessos diretos, pilha e chamadas (um
+     * programa "típico" de aula, pequeno).
+     */
+    static final String LOOP =
+            "/ Soma i em total, para sempre\n"
+            + "INICIO: LOCO 0\n"
+            + "        STOD i\n"
+            + "LOOP:   LODD i\n"
+            + "        ADDD um\n"
+            + "        STOD i\n"
+            + "        PUSH\n"
+            + "        CALL DOBRO\n"
+            + "        POP\n"
+            + "        ADDD total\n"
+            + "        STOD total\n"
+            + "        LODD i\n"
+            + "        SUBD limite\n"
+            + "        JNEG LOOP\n"
+            + "        JUMP INICIO\n"
+            + "DOBRO:  LODL 1      / argumento\n"
+            + "        ADDL 1\n"
+            + "        STOL 1\n"
+            + "        RETN\n"
+            + "i:\n"
+            + "um:\n"
+            + "total:\n"
+            + "limite:\n";
+
+    /**
+     * Gera um programa grande (perto do limite da memória), com labels,
+     * referências à frente, comentários e variáveis.
+     *
+     * @param instructions número aproximado de instruções.
+     */
+    static String large(int instructions) {
+        StringBuilder text = new StringBuilder(instructions * 32);
+        text.append("/ Programa gerado para benchmark\n");
+        int blocks = instructions / 8;
+        for (int b = 0; b < blocks; b++) {
+            text.append("B").append(b).append(":  LODD v").append(b % 64).append('\n');
+            text.append("      ADDD v").append((b + 1) % 64).append("   / soma\n");
+            text.append("      STOD v").append(b % 64).append('\n');
+            text.append("      LOCO ").append(b % 4096 - 2048).append('\n');
+            text.append("      PUSH\n");
+            text.append("      LODL 0\n");
+            text.append("      POP\n");
+            text.append("      JZER B").append((b + 1) % blocks).append('\n');
+        }
+        for (int v = 0; v < 64; v++) {
+            text.append('v').append(v).append(":\n");
+        }
+        return text.toString();
+    }
+}
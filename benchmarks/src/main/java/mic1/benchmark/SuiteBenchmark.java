@@ -0,0 +1,73 @@
+package mic1.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import mic1.model.CPU;
+import mic1.model.MainMemory;
+import mic1.model.ProgramSuite;
+import mic1.model.SourceCode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Execução completa de cada programa do conjunto de referência
+ * ({@link ProgramSuite}) em cada modo da CPU: volta a memória ao programa
+ * carregado e executa até a CPU parar. O setup confere o resultado com o
+ * esperado, para não medir um modo que calcula errado.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuiteBenchmark {
+
+    @Param({"multiply", "bubble_sort", "fibonacci", "stack_loop", "self_modifying"})
+    public String program;
+
+    @Param({"MACRO", "MICRO", "BLOCK", "JIT"})
+    public CPU.ExecutionMode mode;
+
+    private MainMemory memory;
+    private CPU cpu;
+
+    @Setup
+    public void setup() throws IOException {
+        // Os modelos escrevem mensagens de log em System.out.
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        ProgramSuite.Entry entry = ProgramSuite.load().stream()
+                .filter(e -> e.name().equals(program))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Programa desconhecido: " + program));
+        memory = new MainMemory();
+        SourceCode source = new SourceCode();
+        source.liveAssemblyProperty().set(false);
+        source.linkMainMemory(memory);
+        cpu = new CPU();
+        cpu.linkMemory(memory);
+        cpu.setExecutionMode(mode);
+        if (!entry.expected().differences(entry.run(source, memory, cpu)).isEmpty()) {
+            throw new IllegalStateException(program + " não confere no modo " + mode);
+        }
+    }
+
+    @Benchmark
+    public long run() {
+        memory.reload();
+        cpu.reset();
+        return cpu.run(ProgramSuite.MAX_STEPS);
+    }
+}
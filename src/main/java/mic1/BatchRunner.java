@@ -0,0 +1,362 @@
+package mic1;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+// --- Importa os Modelos (nenhuma View é usada aqui) ---
+import mic1.model.CPU;
+import mic1.model.MainMemory;
+import mic1.model.ProgramImage;
+import mic1.model.ProgramSuite;
+import mic1.model.SourceCode;
+import mic1.model.TraceWriter;
+import mic1.util.FileUtils;
+
+/**
+ * Executor em lote (linha de comando, sem JavaFX gráfico).
+ *
+ * Monta e executa todos os arquivos .asm de um diretório, cada um em seu
+ * próprio par CPU/MainMemory, espalhando o trabalho por um ForkJoinPool.
+ * Arquivos .mic1 (imagens já montadas, ver {@link ProgramImage}) são
+ * carregados direto na memória, sem passar pelo montador. Os fontes são
+ * lidos e montados linha a linha, sem carregar o arquivo inteiro. Cada
+ * programa gera uma linha JSON na saída padrão, na ordem alfabética dos
+ * arquivos:
+ *
+ * <pre>
+ * {"file":"aluno1.asm","status":"OK","pc":6,"ac":0,"sp":4095,"ir":24582,"steps":12003,"halt":"SELF_LOOP"}
+ * {"file":"aluno2.asm","status":"ASSEMBLY_ERROR","error":"Erro: Símbolo 'x' não definido (linha 3, coluna 6)"}
+ * {"file":"aluno3.mic1","status":"IMAGE_ERROR","error":"Imagem inválida: checksum não confere"}
+ * </pre>
+ *
+ * {@code "halt":"NONE"} indica que o programa atingiu o limite de passos sem
+ * parar. Uso:
+ *
+ * <pre>
+ * BatchRunner &lt;diretório&gt; [opções]
+ * BatchRunner --suite [--mode MACRO|MICRO|BLOCK|JIT]
+ * </pre>
+ *
+ * Opções (todas menos {@code --threads} ficam em {@link Options}):
+ * - {@code --max-steps N}: limite de instruções por programa (padrão: 10.000.000).
+ * - {@code --mode MACRO|MICRO|BLOCK|JIT}: modo de execução da CPU (padrão: MACRO).
+ * - {@code --threads N}: número de threads (padrão: número de processadores).
+ * - {@code --write-images DIR}: grava a imagem (.mic1) de cada .asm montado.
+ * - {@code --write-listings DIR}: grava a listagem (.lst) de cada .asm montado.
+ * - {@code --write-profiles DIR}: liga o perfil ({@link mic1.model.Profiler})
+ *   e grava o relatório (.prof) de cada programa.
+ * - {@code --write-traces DIR}: grava o trace ({@link TraceWriter}) de cada
+ *   programa (.trace), em blocos comprimidos em LZ4.
+ * - {@code --raw-traces}: grava os traces sem compressão.
+ *
+ * Com {@code --suite}, executa o conjunto de programas de referência
+ * empacotado ({@link ProgramSuite}) e confere o estado final de cada um
+ * ({@code "status":"PASS"} ou {@code "FAIL"}); o código de saída é 1 se
+ * algum falhar.
+ *
+ * As mensagens de log dos modelos (System.out) são descartadas para não
+ * misturar com o JSON.
+ */
+public class BatchRunner {
+
+    /** Limite padrão de macroinstruções por programa. */
+    private static final long DEFAULT_MAX_STEPS = 10_000_000L;
+
+    /** Linhas das seções de laços e de endereços dos relatórios de perfil. */
+    private static final int PROFILE_REPORT_LIMIT = 20;
+
+    /**
+     * Um "computador" headless: montador, memória e CPU já conectados.
+     * Cada thread reaproveita o seu entre um programa e outro.
+     */
+    private static final class Machine {
+        final SourceCode source = new SourceCode();
+        final MainMemory memory = new MainMemory();
+        final CPU cpu = new CPU();
+
+        Machine(CPU.ExecutionMode mode, boolean profiling) {
+            source.liveAssemblyProperty().set(false);
+            source.linkMainMemory(memory);
+            cpu.linkMemory(memory);
+            cpu.setExecutionMode(mode);
+            cpu.setProfilingEnabled(profiling);
+        }
+    }
+
+    /**
+     * Opções de uma execução em lote. Os diretórios são null quando a saída
+     * correspondente não é gravada.
+     *
+     * @param maxSteps limite de macroinstruções por programa.
+     * @param mode modo de execução da CPU.
+     * @param imageDirectory onde gravar as imagens (.mic1) dos .asm montados.
+     * @param listingDirectory onde gravar as listagens (.lst) dos .asm montados.
+     * @param profileDirectory onde gravar os relatórios de perfil (.prof); liga o perfil.
+     * @param traceDirectory onde gravar os traces (.trace).
+     * @param compressTraces se os blocos dos traces são comprimidos.
+     */
+    public record Options(long maxSteps, CPU.ExecutionMode mode, Path imageDirectory, Path listingDirectory,
+                          Path profileDirectory, Path traceDirectory, boolean compressTraces) {
+
+        /** Só o limite e o modo: nada é gravado além do JSON. */
+        public Options(long maxSteps, CPU.ExecutionMode mode) {
+            this(maxSteps, mode, null, null, null, null, true);
+        }
+    }
+
+    private final Options options;
+    private final ThreadLocal<Machine> machines;
+
+    public BatchRunner(Options options) {
+        this.options = options;
+        this.machines = ThreadLocal.withInitial(() -> new Machine(options.mode(), options.profileDirectory() != null));
+    }
+
+    public static void main(String[] args) {
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        if (args.length == 0) {
+            System.err.println("Uso: BatchRunner <diretório> [--max-steps N] "
+                    + "[--mode MACRO|MICRO|BLOCK|JIT] [--threads N] [--write-images DIR] [--write-listings DIR] "
+                    + "[--write-profiles DIR] [--write-traces DIR] [--raw-traces]");
+            System.err.println("     BatchRunner --suite [--mode MACRO|MICRO|BLOCK|JIT]");
+            System.exit(2);
+        }
+
+        boolean suite = args[0].equals("--suite");
+        Path directory = suite ? null : Paths.get(args[0]);
+        long maxSteps = DEFAULT_MAX_STEPS;
+        CPU.ExecutionMode mode = CPU.ExecutionMode.MACRO;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path imageDirectory = null;
+        Path listingDirectory = null;
+        Path profileDirectory = null;
+        Path traceDirectory = null;
+        boolean compressTraces = true;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--max-steps" -> maxSteps = Long.parseLong(args[++i]);
+                    case "--mode" -> mode = CPU.ExecutionMode.valueOf(args[++i].toUpperCase());
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--write-images" -> imageDirectory = Paths.get(args[++i]);
+                    case "--write-listings" -> listingDirectory = Paths.get(args[++i]);
+                    case "--write-profiles" -> profileDirectory = Paths.get(args[++i]);
+                    case "--write-traces" -> traceDirectory = Paths.get(args[++i]);
+                    case "--raw-traces" -> compressTraces = false;
+                    default -> throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Erro nos argumentos: " + e.getMessage());
+            System.exit(2);
+        }
+
+        if (suite) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            boolean passed = runSuite(mode, out);
+            out.flush();
+            System.exit(passed ? 0 : 1);
+        }
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing
+                    .filter(p -> isAssembly(p) || isImage(p))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            System.err.println("Erro ao listar o diretório '" + directory + "': " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        // Os modelos escrevem mensagens de log em System.out.
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        BatchRunner runner = new BatchRunner(new Options(maxSteps, mode, imageDirectory, listingDirectory,
+                profileDirectory, traceDirectory, compressTraces));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> files.parallelStream()
+                            .map(runner::runFile)
+                            .forEachOrdered(out::println))
+                    .get();
+        } catch (InterruptedException | ExecutionException e) {
+            System.err.println("Erro na execução em lote: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            pool.shutdown();
+            out.flush();
+        }
+    }
+
+    /**
+     * Monta (ou carrega, se for uma imagem .mic1) e executa um arquivo,
+     * retornando a linha JSON do resultado.
+     */
+    String runFile(Path file) {
+        String name = file.getFileName().toString();
+        String base = name.substring(0, name.lastIndexOf('.'));
+        Machine machine = machines.get();
+        Path imageDirectory = options.imageDirectory();
+        Path listingDirectory = options.listingDirectory();
+        Path profileDirectory = options.profileDirectory();
+        Path traceDirectory = options.traceDirectory();
+        ProgramImage image;
+        if (isImage(file)) {
+            try {
+                image = ProgramImage.decode(FileUtils.readBytes(file));
+                image.loadInto(machine.memory);
+            } catch (IOException e) {
+                return error(name, "IO_ERROR", e.getMessage());
+            } catch (IllegalArgumentException e) {
+                return error(name, "IMAGE_ERROR", e.getMessage());
+            }
+        } else {
+            try (Reader reader = FileUtils.openReader(file)) {
+                machine.source.assemble(reader);
+            } catch (IOException e) {
+                return error(name, "IO_ERROR", e.getMessage());
+            }
+            if (!machine.source.isAssembled()) {
+                return error(name, "ASSEMBLY_ERROR", machine.source.getErrorMessage());
+            }
+            machine.source.writeToMemory();
+            if (!machine.source.isWritten()) {
+                // A memória ainda tem o programa anterior desta thread: não executa.
+                return error(name, "LOAD_ERROR", machine.source.getErrorMessage());
+            }
+            image = machine.source.getProgramImage();
+            try {
+                if (imageDirectory != null) {
+                    FileUtils.writeBytes(imageDirectory.resolve(base + ".mic1"), image.encode());
+                }
+                if (listingDirectory != null) {
+                    try (Writer writer = FileUtils.openWriter(listingDirectory.resolve(base + ".lst"))) {
+                        machine.source.writeListing(writer);
+                    }
+                }
+            } catch (IOException e) {
+                return error(name, "IO_ERROR", e.getMessage());
+            }
+        }
+
+        CPU cpu = machine.cpu;
+        cpu.reset();
+        if (traceDirectory != null) {
+            try (TraceWriter trace = new TraceWriter(
+                    FileUtils.openWriteChannel(traceDirectory.resolve(base + ".trace")), options.compressTraces())) {
+                cpu.setTrace(trace);
+                cpu.run(options.maxSteps());
+            } catch (IOException e) {
+                return error(name, "IO_ERROR", e.getMessage());
+            } finally {
+                cpu.setTrace(null);
+            }
+        } else {
+            cpu.run(options.maxSteps());
+        }
+        if (profileDirectory != null) {
+            Path report = profileDirectory.resolve(base + ".prof");
+            try (Writer writer = FileUtils.openWriter(report)) {
+                writer.write(cpu.getProfiler().report(image, PROFILE_REPORT_LIMIT));
+            } catch (IOException e) {
+                return error(name, "IO_ERROR", e.getMessage());
+            }
+        }
+        return "{\"file\":" + quote(name)
+                + ",\"status\":\"OK\""
+                + ",\"pc\":" + cpu.getPc()
+                + ",\"ac\":" + cpu.getAc()
+                + ",\"sp\":" + cpu.getSp()
+                + ",\"ir\":" + cpu.getIr()
+                + ",\"steps\":" + cpu.getSteps()
+                + ",\"halt\":\"" + cpu.getHaltReason() + "\"}";
+    }
+
+    /**
+     * Executa o conjunto de programas de referência ({@link ProgramSuite})
+     * e compara o estado final com o esperado: uma linha JSON por programa,
+     * com {@code "status":"PASS"} ou {@code "FAIL"} (e as diferenças).
+     *
+     * @return true se todos passaram.
+     */
+    static boolean runSuite(CPU.ExecutionMode mode, PrintStream out) {
+        List<ProgramSuite.Entry> entries;
+        try {
+            entries = ProgramSuite.load();
+        } catch (IOException e) {
+            System.err.println("Erro ao ler o conjunto de programas: " + e.getMessage());
+            return false;
+        }
+        boolean passed = true;
+        Machine machine = new Machine(mode, false);
+        for (ProgramSuite.Entry entry : entries) {
+            String name = entry.name() + ".asm";
+            List<String> differences;
+            try {
+                differences = entry.expected().differences(entry.run(machine.source, machine.memory, machine.cpu));
+            } catch (IllegalStateException e) {
+                differences = List.of(e.getMessage());
+            }
+            if (differences.isEmpty()) {
+                out.println("{\"file\":" + quote(name) + ",\"status\":\"PASS\"}");
+            } else {
+                passed = false;
+                out.println(error(name, "FAIL", String.join("; ", differences)));
+            }
+        }
+        return passed;
+    }
+
+    private static boolean isAssembly(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(".asm");
+    }
+
+    private static boolean isImage(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(".mic1");
+    }
+
+    private static String error(String file, String status, String message) {
+        return "{\"file\":" + quote(file)
+                + ",\"status\":\"" + status + "\""
+                + ",\"error\":" + quote(message) + "}";
+    }
+
+    /** Converte um texto em string JSON (com aspas e escapes). */
+    private static String quote(String text) {
+        if (text == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,141 @@
+package mic1;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import mic1.model.DifferentialFuzzer;
+import mic1.model.ProgramGenerator;
+
+/**
+ * Fuzzer diferencial (linha de comando, sem JavaFX gráfico): gera programas
+ * aleatórios ({@link ProgramGenerator}) e confere, com o
+ * {@link DifferentialFuzzer}, que o montador e todos os modos de execução
+ * da CPU chegam ao mesmo resultado.
+ *
+ * Roda em todos os processadores por um tempo fixo. O programa da semente
+ * N é sempre o mesmo, e as sementes são distribuídas em sequência entre as
+ * threads a partir de {@code --seed}. Na primeira falha, todas as threads
+ * param; o programa é reduzido ao menor que ainda falha e é mostrado com as
+ * diferenças e a semente, que pode ser repetida com {@code --replay}. Uso:
+ *
+ * <pre>
+ * Fuzzer [--seconds N] [--threads N] [--max-steps N] [--seed N]
+ * Fuzzer --replay SEMENTE [--max-steps N]
+ * </pre>
+ *
+ * O código de saída é 0 se nenhuma falha foi encontrada, 1 se foi e 2 em
+ * erro nos argumentos.
+ */
+public class Fuzzer {
+
+    /** Tempo padrão, em segundos. */
+    private static final long DEFAULT_SECONDS = 60;
+
+    /** Limite padrão de instruções por execução (muitos programas gerados não param). */
+    private static final long DEFAULT_MAX_STEPS = 100_000L;
+
+    /** Diferenças mostradas por falha (uma execução errada costuma mudar a memória toda). */
+    private static final int REPORT_DIFFERENCES = 10;
+
+    public static void main(String[] args) {
+        PrintStream out = new PrintStream(System.out, true, StandardCharsets.UTF_8);
+        long seconds = DEFAULT_SECONDS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long maxSteps = DEFAULT_MAX_STEPS;
+        long seed = System.currentTimeMillis();
+        Long replay = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--seconds" -> seconds = Long.parseLong(args[++i]);
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--max-steps" -> maxSteps = Long.parseLong(args[++i]);
+                    case "--seed" -> seed = Long.parseLong(args[++i]);
+                    case "--replay" -> replay = Long.parseLong(args[++i]);
+                    default -> throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Erro nos argumentos: " + e.getMessage());
+            System.err.println("Uso: Fuzzer [--seconds N] [--threads N] [--max-steps N] [--seed N]");
+            System.err.println("     Fuzzer --replay SEMENTE [--max-steps N]");
+            System.exit(2);
+        }
+
+        // Os modelos escrevem mensagens de log em System.out.
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        if (replay != null) {
+            DifferentialFuzzer fuzzer = new DifferentialFuzzer(maxSteps);
+            List<String> program = ProgramGenerator.generate(replay);
+            List<String> differences = fuzzer.check(program);
+            if (differences.isEmpty()) {
+                out.println("Semente " + replay + ": sem diferenças");
+            } else {
+                report(out, replay, differences, program, fuzzer.shrink(program));
+            }
+            System.exit(differences.isEmpty() ? 0 : 1);
+        }
+
+        out.println("Fuzzer: semente inicial " + seed + ", " + threads + " threads, " + seconds + " s");
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long maxStepsPerRun = maxSteps;
+        AtomicLong nextSeed = new AtomicLong(seed);
+        AtomicLong programs = new AtomicLong();
+        AtomicBoolean failed = new AtomicBoolean();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    DifferentialFuzzer fuzzer = new DifferentialFuzzer(maxStepsPerRun);
+                    while (!failed.get() && System.nanoTime() < deadline) {
+                        long programSeed = nextSeed.getAndIncrement();
+                        List<String> program = ProgramGenerator.generate(programSeed);
+                        List<String> differences = fuzzer.check(program);
+                        programs.incrementAndGet();
+                        if (!differences.isEmpty() && failed.compareAndSet(false, true)) {
+                            report(out, programSeed, differences, program, fuzzer.shrink(program));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            System.err.println("Erro no fuzzer: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            pool.shutdown();
+        }
+        out.printf("%,d programas testados%s%n", programs.get(), failed.get() ? ", com falha" : ", sem diferenças");
+        System.exit(failed.get() ? 1 : 0);
+    }
+
+    /** Mostra uma falha: a semente, as diferenças e o programa reduzido. */
+    private static void report(PrintStream out, long seed, List<String> differences,
+                               List<String> program, List<String> shrunk) {
+        StringBuilder text = new StringBuilder()
+                .append("FALHA na semente ").append(seed).append(" (repita com --replay ").append(seed).append("):\n");
+        for (String difference : differences.subList(0, Math.min(differences.size(), REPORT_DIFFERENCES))) {
+            text.append("  ").append(difference).append('\n');
+        }
+        if (differences.size() > REPORT_DIFFERENCES) {
+            text.append("  ... e mais ").append(differences.size() - REPORT_DIFFERENCES).append('\n');
+        }
+        text.append("Programa reduzido (").append(shrunk.size()).append(" de ").append(program.size())
+                .append(" linhas):\n");
+        for (String line : shrunk) {
+            text.append("  ").append(line).append('\n');
+        }
+        out.print(text);
+    }
+}
@@ -1,5 +1,6 @@
 package mic1;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.stage.Stage;
 import java.io.IOException;
@@ -26,6 +27,7 @@ import mic1.view.SimulationControlsView;
  * 2. (init) Injetar dependências entre os Modelos.
  * 3. (start) Criar as Views (as "janelas").
  * 4. (start) Injetar o Modelo correspondente em cada View.
+ * 5. (start) Atualizar as Views uma vez por quadro (ver {@link #uiRefresh}).
  */
 public class Main extends Application {
 
@@ -38,6 +40,20 @@ public class Main extends Application {
     private CPU cpuModel; 
     private SimulationControls controlsModel;
 
+    /**
+     * Recolhe, uma vez por pulso do JavaFX, as mudanças feitas pela
+     * simulação (endereços escritos e registradores) e atualiza as janelas.
+     * A simulação nunca espera pela UI: por mais instruções que execute
+     * entre dois quadros, cada janela é atualizada no máximo uma vez.
+     */
+    private final AnimationTimer uiRefresh = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            memoryModel.refreshView();
+            cpuModel.refreshView();
+        }
+    };
+
     /**
      * Etapa 1: Criação e conexão dos Modelos (Back-end)
      */
@@ -83,7 +99,7 @@ public class Main extends Application {
         
         // --- Cria e exibe a View do SourceCode ---
         // (Usa o 'stage' principal)
-        SourceCodeView sourceView = new SourceCodeView(sourceModel);
+        SourceCodeView sourceView = new SourceCodeView(sourceModel, controlsModel);
         sourceView.show(stage, iconeAplicativo, 1060, 0); 
 
         // --- Cria e exibe a View da MainMemory ---
@@ -97,6 +113,9 @@ public class Main extends Application {
         // --- Cria e exibe a View dos Controles ---
         SimulationControlsView controlsView = new SimulationControlsView(controlsModel);
         controlsView.show(iconeAplicativo, 1060, 540); // (Posição X/Y original)
+
+        // --- Atualização das Views a cada quadro ---
+        uiRefresh.start();
     }
 
     /**
@@ -0,0 +1,183 @@
+package mic1;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import mic1.model.CPU;
+import mic1.model.MainMemory;
+import mic1.model.ProgramImage;
+import mic1.model.SourceCode;
+import mic1.model.TraceComparison;
+import mic1.model.TraceReader;
+import mic1.model.TraceWriter;
+import mic1.util.FileUtils;
+
+/**
+ * Compara duas execuções (linha de comando, sem JavaFX gráfico) e mostra a
+ * primeira divergência de PC, registradores ou memória, com as estatísticas
+ * de cada uma ({@link TraceComparison}).
+ *
+ * Cada lado é um trace já gravado ({@code .trace}, ver
+ * {@code BatchRunner --write-traces}) ou um programa ({@code .asm} ou
+ * {@code .mic1}), que é carregado em sua própria CPU e executado em uma
+ * thread enquanto o trace é lido por um pipe: nada é gravado em disco e os
+ * traces nunca ficam inteiros na memória. Com {@code --mode-b}, o mesmo
+ * programa pode ser comparado em dois modos de execução. Uso:
+ *
+ * <pre>
+ * TraceDiff &lt;a&gt; &lt;b&gt; [--max-steps N] [--mode MACRO|MICRO|BLOCK|JIT] [--mode-b MACRO|MICRO|BLOCK|JIT]
+ * </pre>
+ *
+ * O código de saída é 0 se as execuções forem iguais, 1 se divergirem e 2
+ * em caso de erro.
+ */
+public class TraceDiff {
+
+    /** Limite padrão de macroinstruções por programa (o mesmo do BatchRunner). */
+    private static final long DEFAULT_MAX_STEPS = 10_000_000L;
+
+    /** Um lado da comparação: o trace e, se for um programa, a imagem e a thread que o executa. */
+    private static final class Side {
+        TraceReader trace;
+        ProgramImage image;
+        Thread runner;
+        volatile IOException failure;
+    }
+
+    public static void main(String[] args) {
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        if (args.length < 2) {
+            System.err.println("Uso: TraceDiff <a> <b> [--max-steps N] [--mode MACRO|MICRO|BLOCK|JIT] "
+                    + "[--mode-b MACRO|MICRO|BLOCK|JIT]");
+            System.err.println("     (cada lado é um .trace, .asm ou .mic1)");
+            System.exit(2);
+        }
+
+        long maxSteps = DEFAULT_MAX_STEPS;
+        CPU.ExecutionMode mode = CPU.ExecutionMode.MACRO;
+        CPU.ExecutionMode modeB = null;
+        try {
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--max-steps" -> maxSteps = Long.parseLong(args[++i]);
+                    case "--mode" -> mode = CPU.ExecutionMode.valueOf(args[++i].toUpperCase());
+                    case "--mode-b" -> modeB = CPU.ExecutionMode.valueOf(args[++i].toUpperCase());
+                    default -> throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Erro nos argumentos: " + e.getMessage());
+            System.exit(2);
+        }
+
+        // Os modelos escrevem mensagens de log em System.out.
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        Side a = null;
+        Side b = null;
+        int status;
+        try {
+            a = open(Paths.get(args[0]), mode, maxSteps);
+            b = open(Paths.get(args[1]), modeB != null ? modeB : mode, maxSteps);
+            TraceComparison comparison = TraceComparison.compare(a.trace, b.trace);
+            finish(a);
+            finish(b);
+            out.print(comparison.report(a.image, b.image));
+            status = comparison.isIdentical() ? 0 : 1;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Erro: " + e.getMessage());
+            status = 2;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = 2;
+        } finally {
+            close(a);
+            close(b);
+            out.flush();
+        }
+        System.exit(status);
+    }
+
+    /**
+     * Abre um lado: lê o trace gravado ou carrega o programa e começa a
+     * executá-lo.
+     *
+     * @throws IllegalArgumentException se o programa não montar ou a imagem
+     *         for inválida.
+     */
+    private static Side open(Path file, CPU.ExecutionMode mode, long maxSteps) throws IOException {
+        Side side = new Side();
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".trace")) {
+            side.trace = new TraceReader(FileUtils.openReadChannel(file));
+            return side;
+        }
+
+        MainMemory memory = new MainMemory();
+        if (name.endsWith(".mic1")) {
+            side.image = ProgramImage.decode(FileUtils.readBytes(file));
+            side.image.loadInto(memory);
+        } else {
+            SourceCode source = new SourceCode();
+            source.liveAssemblyProperty().set(false);
+            source.linkMainMemory(memory);
+            try (Reader reader = FileUtils.openReader(file)) {
+                source.assemble(reader);
+            }
+            if (!source.isAssembled()) {
+                throw new IllegalArgumentException(file + ": " + source.getErrorMessage());
+            }
+            source.writeToMemory();
+            if (!source.isWritten()) {
+                throw new IllegalArgumentException(file + ": " + source.getErrorMessage());
+            }
+            side.image = source.getProgramImage();
+        }
+        CPU cpu = new CPU();
+        cpu.linkMemory(memory);
+        cpu.setExecutionMode(mode);
+
+        // Sem compressão: o trace só passa pelo pipe.
+        Pipe pipe = Pipe.open();
+        TraceWriter writer = new TraceWriter(pipe.sink(), false);
+        side.trace = new TraceReader(pipe.source());
+        side.runner = new Thread(() -> {
+            try (writer) {
+                cpu.reset();
+                cpu.setTrace(writer);
+                cpu.run(maxSteps);
+                cpu.setTrace(null);
+            } catch (IOException e) {
+                side.failure = e;
+            }
+        }, "mic1-trace-diff-" + file.getFileName());
+        side.runner.setDaemon(true);
+        side.runner.start();
+        return side;
+    }
+
+    /** Espera o programa do lado terminar e relança um erro do trace dele. */
+    private static void finish(Side side) throws IOException, InterruptedException {
+        if (side.runner != null) {
+            side.runner.join();
+            if (side.failure != null) {
+                throw side.failure;
+            }
+        }
+    }
+
+    private static void close(Side side) {
+        if (side != null && side.trace != null) {
+            try {
+                side.trace.close();
+            } catch (IOException e) {
+                // Nada a fazer na saída.
+            }
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package mic1.controller;
 
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
-// Importe aqui os componentes do JavaFX que você usará (ex: Label, TextField)
-// Ex: import javafx.scene.control.Label;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.shape.Circle;
 import mic1.model.CPU; // Importa o Modelo
 
 /**
@@ -13,21 +19,34 @@ import mic1.model.CPU; // Importa o Modelo
  * 2. Ligar (bind) as propriedades do Modelo (ex: pc, ac) aos componentes da View.
  * 3. (Este controlador geralmente não lida com cliques de botão,
  * pois a CPU é controlada pelo SimulationControls).
+ *
+ * As propriedades da CPU só mudam uma vez por quadro (ver CPU.refreshView()),
+ * então os bindings abaixo nunca são disparados pela thread da simulação.
  */
 public class CpuController {
 
+    /** Uma linha da tabela de registradores: nome e valor formatado. */
+    public record RegisterRow(String name, ObservableValue<String> value) {}
+
     // --- Componentes da View (Injetados pelo FXML) ---
-    // TODO: Adicione os @FXML para os Labels/TextFields da sua CPU.fxml
-    // Exemplo:
-    // @FXML
-    // private Label pcValueLabel;
-    //
-    // @FXML
-    // private Label acValueLabel;
-    //
-    // @FXML
-    // private Label spValueLabel;
 
+    @FXML
+    private TableView<RegisterRow> registerTable;
+
+    @FXML
+    private TableColumn<RegisterRow, String> registerColumn;
+
+    @FXML
+    private TableColumn<RegisterRow, String> valueColumn;
+
+    @FXML
+    private Label cyclesLabel;
+
+    @FXML
+    private Label statusLabel;
+
+    @FXML
+    private Circle statusIndicator;
 
     // --- Referência ao Modelo ---
     private CPU cpuModel;
@@ -35,19 +54,39 @@ public class CpuController {
     /**
      * Este método é o "ponto de entrada" principal.
      * Ele é chamado pela classe CpuView para injetar o "cérebro" (o Modelo).
-     *
-     * ISSO CORRIGE O ERRO "setModel is undefined".
      */
     public void setModel(CPU model) {
         this.cpuModel = model;
 
-        // --- A MÁGICA (Data Binding) ---
-        // TODO: Ligue as propriedades do seu modelo de CPU aos seus @FXML Labels
-        //
-        // Exemplo (se você tiver um 'pcProperty()' no seu modelo CPU.java):
-        // pcValueLabel.textProperty().bind(cpuModel.pcProperty().asString());
-        // acValueLabel.textProperty().bind(cpuModel.acProperty().asString());
-        // spValueLabel.textProperty().bind(cpuModel.spProperty().asString());
+        // --- Data Binding ---
+
+        // 1. Tabela de registradores: PC, AC e SP em decimal (com sinal),
+        // IR em binário (como a coluna "Binary Value" da memória).
+        registerColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().name()));
+        valueColumn.setCellValueFactory(cell -> cell.getValue().value());
+        registerTable.setItems(FXCollections.observableArrayList(
+                new RegisterRow("PC", cpuModel.pcProperty().asString()),
+                new RegisterRow("AC", cpuModel.acProperty().asString()),
+                new RegisterRow("SP", cpuModel.spProperty().asString()),
+                new RegisterRow("IR", Bindings.createStringBinding(
+                        () -> formatBinary(cpuModel.irProperty().get()), cpuModel.irProperty()))));
+
+        // 2. Estatísticas e estado da simulação.
+        cyclesLabel.textProperty().bind(cpuModel.stepsProperty().asString("Cycles: %d"));
+        statusLabel.textProperty().bind(Bindings.createStringBinding(
+                () -> cpuModel.haltReasonProperty().get() == CPU.HaltReason.NONE
+                        ? "The simulation is not over yet"
+                        : "The simulation is over",
+                cpuModel.haltReasonProperty()));
+        cpuModel.haltReasonProperty().addListener((obs, old, halt) -> {
+            boolean over = halt != CPU.HaltReason.NONE;
+            statusIndicator.getStyleClass().setAll(over ? "status-indicator-on" : "status-indicator-off");
+        });
     }
 
-}
\ No newline at end of file
+    /** Formata um valor de 16 bits como binário de 16 dígitos. */
+    private static String formatBinary(int value) {
+        String bits = Integer.toBinaryString(value & 0xFFFF);
+        return "0".repeat(16 - bits.length()) + bits;
+    }
+}
@@ -1,11 +1,25 @@
 package mic1.controller;
 
+import java.util.Arrays;
+import java.util.function.Function;
+import javafx.animation.AnimationTimer;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.value.ObservableValue;
 import javafx.fxml.FXML;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
-import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Pane;
 import mic1.model.MainMemory;
 import mic1.model.MainMemory.MemoryEntry;
+import mic1.model.MemoryActivity;
 
 /**
  * Controlador (Controller) para a janela da Memória Principal (MainMemory.fxml).
@@ -17,9 +31,27 @@ import mic1.model.MainMemory.MemoryEntry;
  *
  * Este controlador segue um padrão de Injeção de Dependência,
  * onde o modelo (MainMemory) é injetado pela classe View (MainMemoryView).
+ *
+ * Com "Heat map" marcado, a tabela dá lugar a um mapa de calor: as 4096
+ * palavras em uma grade de 64 x 64 (uma linha da grade por página de 64
+ * endereços, o endereço 0 no canto superior esquerdo e o 4095 no inferior
+ * direito), desenhadas em um único Canvas. A cor de cada palavra mistura a
+ * frequência recente de escritas (vermelho), leituras (verde) e execuções
+ * (azul), contadas pela MainMemory ({@link MemoryActivity}) e decaindo com
+ * o tempo. A cada quadro, a imagem de 64 x 64 pixels é refeita e ampliada,
+ * sem nenhuma célula da tabela para reestilizar.
  */
 public class MainMemoryController {
 
+    /** Palavras por linha do mapa de calor. */
+    private static final int HEAT_COLUMNS = 64;
+
+    /** Constante de tempo do decaimento do calor (meia-vida de ~0,35 s). */
+    private static final double HEAT_DECAY_NANOS = 500_000_000.0;
+
+    /** Cor de fundo das palavras sem acesso recente (a da tabela). */
+    private static final int HEAT_BACKGROUND = 0x3C;
+
     /** A TableView principal injetada do FXML (fx:id="memoryTable"). */
     @FXML
     private TableView<MemoryEntry> memoryTable;
@@ -40,9 +72,60 @@ public class MainMemoryController {
     @FXML
     private TableColumn<MemoryEntry, String> hexColumn;
 
+    /** Liga o mapa de calor no lugar da tabela (fx:id="heatMapCheckBox"). */
+    @FXML
+    private CheckBox heatMapCheckBox;
+
+    /** Painel do mapa de calor, sobre a área da tabela (fx:id="heatMapPane"). */
+    @FXML
+    private Pane heatMapPane;
+
+    /** O Canvas do mapa de calor (fx:id="heatMapCanvas"). */
+    @FXML
+    private Canvas heatMapCanvas;
+
+    /** Legenda / endereço sob o mouse (fx:id="heatMapLabel"). */
+    @FXML
+    private Label heatMapLabel;
+
     /** Referência ao modelo de dados (o "cérebro") da Memória Principal. */
     private MainMemory memoryModel;
 
+    // --- Estado do mapa de calor (thread do JavaFX) ---
+
+    /** Última leitura dos contadores (para calcular os acessos do quadro). */
+    private final int[] lastReads = new int[MainMemory.MEMORY_SIZE];
+    private final int[] lastWrites = new int[MainMemory.MEMORY_SIZE];
+    private final int[] lastExecutes = new int[MainMemory.MEMORY_SIZE];
+
+    /** Leitura corrente dos contadores. */
+    private final int[] reads = new int[MainMemory.MEMORY_SIZE];
+    private final int[] writes = new int[MainMemory.MEMORY_SIZE];
+    private final int[] executes = new int[MainMemory.MEMORY_SIZE];
+
+    /** Calor (acessos recentes, com decaimento) de cada tipo de acesso. */
+    private final double[] readHeat = new double[MainMemory.MEMORY_SIZE];
+    private final double[] writeHeat = new double[MainMemory.MEMORY_SIZE];
+    private final double[] executeHeat = new double[MainMemory.MEMORY_SIZE];
+
+    /** Pixels (ARGB) da imagem de 64 x 64 e a imagem ampliada no Canvas. */
+    private final int[] heatPixels = new int[MainMemory.MEMORY_SIZE];
+    private final WritableImage heatImage = new WritableImage(HEAT_COLUMNS, MainMemory.MEMORY_SIZE / HEAT_COLUMNS);
+
+    /** Instante do último quadro desenhado (0 = nenhum). */
+    private long lastFrame;
+
+    /** Endereço sob o mouse (-1 = nenhum). */
+    private int hoveredAddress = -1;
+
+    /** Redesenha o mapa de calor uma vez por quadro, enquanto visível. */
+    private final AnimationTimer heatMapTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drawHeatMap(now);
+        }
+    };
+
     /**
      * Injeta o modelo (MainMemory) neste controlador e inicializa o data binding.
      *
@@ -57,20 +140,138 @@ public class MainMemoryController {
         // --- Configuração do Data Binding da Tabela ---
 
         // 1. Configura as CellValueFactories:
-        // Diz a cada coluna qual propriedade (getter) da classe MemoryEntry
-        // ela deve observar para obter seu valor.
-        // Os nomes ("address", "binaryValue", etc.) devem corresponder
-        // exatamente aos métodos (ex: getAddress(), getBinaryValue())
-        // na classe MainMemory.MemoryEntry.
-        addressColumn.setCellValueFactory(new PropertyValueFactory<>("address"));
-        binaryColumn.setCellValueFactory(new PropertyValueFactory<>("binaryValue"));
-        decimalColumn.setCellValueFactory(new PropertyValueFactory<>("decimalValue"));
-        hexColumn.setCellValueFactory(new PropertyValueFactory<>("hexValue"));
+        // Diz a cada coluna qual getter da classe MemoryEntry fornece o
+        // seu valor. As entradas não guardam texto: cada célula visível
+        // formata o valor do seu endereço e volta a formatá-lo quando a
+        // revisão da memória muda (ver MainMemory.revisionProperty()).
+        // O endereço de uma linha nunca muda.
+        addressColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getAddress()));
+        binaryColumn.setCellValueFactory(cell -> observe(cell.getValue(), MemoryEntry::getBinaryValue));
+        decimalColumn.setCellValueFactory(cell -> observe(cell.getValue(), MemoryEntry::getDecimalValue));
+        hexColumn.setCellValueFactory(cell -> observe(cell.getValue(), MemoryEntry::getHexValue));
 
         // 2. Vincula (bind) a Tabela à Lista Observável:
         // Conecta a TableView diretamente à ObservableList do modelo.
-        // Qualquer alteração na lista (feita pelo modelo) será
-        // refletida automaticamente na TableView.
+        // A TableView é virtualizada: só as linhas visíveis criam células.
         memoryTable.setItems(memoryModel.getMemoryData());
+
+        // 3. Mapa de calor: o Canvas acompanha o tamanho do painel, e o
+        // painel troca de lugar com a tabela.
+        heatMapCanvas.widthProperty().bind(heatMapPane.widthProperty());
+        heatMapCanvas.heightProperty().bind(heatMapPane.heightProperty());
+        heatMapPane.visibleProperty().bind(heatMapCheckBox.selectedProperty());
+        memoryTable.visibleProperty().bind(heatMapCheckBox.selectedProperty().not());
+        heatMapLabel.visibleProperty().bind(heatMapCheckBox.selectedProperty());
+        heatMapLabel.managedProperty().bind(heatMapLabel.visibleProperty());
+        heatMapCheckBox.selectedProperty().addListener((obs, old, selected) -> setHeatMapEnabled(selected));
+        heatMapCanvas.setOnMouseMoved(this::handleHeatMapHover);
+        heatMapCanvas.setOnMouseExited(event -> hoveredAddress = -1);
+    }
+
+    /**
+     * Liga o mapa de calor: a MainMemory passa a contar os acessos e o
+     * Canvas é redesenhado a cada quadro. Desligado, a contagem para (a CPU
+     * volta ao caminho rápido) e o calor é esquecido.
+     */
+    private void setHeatMapEnabled(boolean enabled) {
+        memoryModel.setActivityTracking(enabled);
+        if (enabled) {
+            MemoryActivity activity = memoryModel.getActivity();
+            activity.copyTo(lastReads, lastWrites, lastExecutes);
+            lastFrame = 0;
+            heatMapTimer.start();
+        } else {
+            heatMapTimer.stop();
+            Arrays.fill(readHeat, 0);
+            Arrays.fill(writeHeat, 0);
+            Arrays.fill(executeHeat, 0);
+        }
+    }
+
+    /**
+     * Soma os acessos feitos desde o quadro anterior ao calor (que decai
+     * exponencialmente com o tempo) e desenha a grade: cada canal de cor é
+     * o calor daquele tipo de acesso em escala logarítmica, relativo ao
+     * endereço mais quente do tipo.
+     */
+    private void drawHeatMap(long now) {
+        MemoryActivity activity = memoryModel.getActivity();
+        if (activity == null) {
+            return;
+        }
+        activity.copyTo(reads, writes, executes);
+        double decay = lastFrame == 0 ? 1.0 : Math.exp(-(now - lastFrame) / HEAT_DECAY_NANOS);
+        lastFrame = now;
+
+        double maxRead = 0;
+        double maxWrite = 0;
+        double maxExecute = 0;
+        for (int i = 0; i < MainMemory.MEMORY_SIZE; i++) {
+            // A diferença em int continua certa quando o contador dá a volta.
+            readHeat[i] = readHeat[i] * decay + (reads[i] - lastReads[i]);
+            writeHeat[i] = writeHeat[i] * decay + (writes[i] - lastWrites[i]);
+            executeHeat[i] = executeHeat[i] * decay + (executes[i] - lastExecutes[i]);
+            maxRead = Math.max(maxRead, readHeat[i]);
+            maxWrite = Math.max(maxWrite, writeHeat[i]);
+            maxExecute = Math.max(maxExecute, executeHeat[i]);
+        }
+        System.arraycopy(reads, 0, lastReads, 0, MainMemory.MEMORY_SIZE);
+        System.arraycopy(writes, 0, lastWrites, 0, MainMemory.MEMORY_SIZE);
+        System.arraycopy(executes, 0, lastExecutes, 0, MainMemory.MEMORY_SIZE);
+
+        double readScale = 1 / Math.log1p(Math.max(maxRead, 1));
+        double writeScale = 1 / Math.log1p(Math.max(maxWrite, 1));
+        double executeScale = 1 / Math.log1p(Math.max(maxExecute, 1));
+        for (int i = 0; i < MainMemory.MEMORY_SIZE; i++) {
+            int r = channel(writeHeat[i], writeScale);
+            int g = channel(readHeat[i], readScale);
+            int b = channel(executeHeat[i], executeScale);
+            heatPixels[i] = 0xFF000000 | r << 16 | g << 8 | b;
+        }
+        heatImage.getPixelWriter().setPixels(0, 0, HEAT_COLUMNS, MainMemory.MEMORY_SIZE / HEAT_COLUMNS,
+                PixelFormat.getIntArgbInstance(), heatPixels, 0, HEAT_COLUMNS);
+
+        GraphicsContext g = heatMapCanvas.getGraphicsContext2D();
+        g.setImageSmoothing(false);
+        g.drawImage(heatImage, 0, 0, heatMapCanvas.getWidth(), heatMapCanvas.getHeight());
+
+        if (hoveredAddress >= 0) {
+            heatMapLabel.setText(String.format(
+                    "Address %d = %d    recent reads %.0f, writes %.0f, executions %.0f",
+                    hoveredAddress, memoryModel.read(hoveredAddress),
+                    readHeat[hoveredAddress], writeHeat[hoveredAddress], executeHeat[hoveredAddress]));
+        } else {
+            heatMapLabel.setText("Red = writes, green = reads, blue = executions (address 0 top left, 4095 bottom right)");
+        }
+    }
+
+    /** Intensidade de um canal (do fundo até 255) para um valor de calor. */
+    private static int channel(double heat, double scale) {
+        if (heat < 0.5) {
+            return HEAT_BACKGROUND;
+        }
+        double level = Math.min(1, Math.log1p(heat) * scale);
+        return HEAT_BACKGROUND + (int) (level * (255 - HEAT_BACKGROUND));
+    }
+
+    /** Guarda o endereço sob o mouse (mostrado na legenda no próximo quadro). */
+    private void handleHeatMapHover(MouseEvent event) {
+        int rows = MainMemory.MEMORY_SIZE / HEAT_COLUMNS;
+        int column = (int) (event.getX() * HEAT_COLUMNS / heatMapCanvas.getWidth());
+        int row = (int) (event.getY() * rows / heatMapCanvas.getHeight());
+        hoveredAddress = column >= 0 && column < HEAT_COLUMNS && row >= 0 && row < rows
+                ? row * HEAT_COLUMNS + column
+                : -1;
+    }
+
+    /**
+     * Cria o valor observável de uma célula, recalculado a cada nova
+     * revisão da memória.
+     *
+     * @param entry A entrada (linha) da célula.
+     * @param format O getter de MemoryEntry que formata o valor.
+     */
+    private ObservableValue<String> observe(MemoryEntry entry, Function<MemoryEntry, String> format) {
+        return Bindings.createStringBinding(() -> format.apply(entry), memoryModel.revisionProperty());
     }
 }
\ No newline at end of file
@@ -1,10 +1,14 @@
 package mic1.controller;
 
+import javafx.beans.binding.Bindings;
 import javafx.fxml.FXML;
-// Importe aqui os componentes do JavaFX que você usará (ex: Button, TextField, CheckBox)
-// Ex: import javafx.scene.control.Button;
-// Ex: import javafx.scene.control.TextField;
-// Ex: import javafx.scene.control.CheckBox;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
+import mic1.model.Breakpoints;
 import mic1.model.SimulationControls; // Importa o Modelo
 
 /**
@@ -12,29 +16,63 @@ import mic1.model.SimulationControls; // Importa o Modelo
  *
  * Responsabilidades:
  * 1. Conectar os componentes @FXML (definidos no SimulationControls.fxml) com o Modelo.
- * 2. Ligar (bind) as propriedades do Modelo (ex: simulationSpeed) aos componentes da View.
+ * 2. Ligar (bind) as propriedades do Modelo (ex: running) aos componentes da View.
  * 3. Chamar a lógica do Modelo (ex: controlsModel.play()) quando um botão é clicado.
  */
 public class SimulationControlsController {
 
     // --- Componentes da View (Injetados pelo FXML) ---
-    // TODO: Adicione os @FXML para os Botões, TextFields, etc.
-    // Exemplo:
-    // @FXML
-    // private Button playButton;
-    //
-    // @FXML
-    // private Button pauseButton;
-    //
-    // @FXML
-    // private Button resetButton;
-    //
-    // @FXML
-    // private TextField speedTextField;
-    //
-    // @FXML
-    // private CheckBox stepModeCheckBox;
 
+    @FXML
+    private Button playButton;
+
+    @FXML
+    private Button pauseButton;
+
+    @FXML
+    private Button stopButton;
+
+    @FXML
+    private Button resetButton;
+
+    @FXML
+    private TextField speedField;
+
+    @FXML
+    private Label speedLabel;
+
+    @FXML
+    private TextField breakpointField;
+
+    @FXML
+    private TextField writeWatchField;
+
+    @FXML
+    private TextField readWatchField;
+
+    @FXML
+    private Label breakpointLabel;
+
+    @FXML
+    private CheckBox stepModeCheckBox;
+
+    @FXML
+    private Button stepButton;
+
+    @FXML
+    private CheckBox historyCheckBox;
+
+    @FXML
+    private Button stepBackButton;
+
+    @FXML
+    private Button runBackButton;
+
+    @FXML
+    private CheckBox profileCheckBox;
+
+    @FXML
+    private Button profileButton;
 
     // --- Referência ao Modelo ---
     private SimulationControls controlsModel;
@@ -42,44 +80,187 @@ public class SimulationControlsController {
     /**
      * Este método é o "ponto de entrada" principal.
      * Ele é chamado pela classe SimulationControlsView para injetar o "cérebro" (o Modelo).
-     *
-     * ISSO CORRIGE O ERRO "setModel is undefined".
      */
     public void setModel(SimulationControls model) {
         this.controlsModel = model;
 
-        // --- A MÁGICA (Data Binding) ---
-        // TODO: Ligue as propriedades do seu modelo de Controles aos seus @FXML
-        //
-        // Exemplo (se você tiver um 'speedProperty()' no modelo):
-        // speedTextField.textProperty().bindBidirectional(controlsModel.speedProperty());
-        // stepModeCheckBox.selectedProperty().bindBidirectional(controlsModel.stepModeProperty());
+        // --- Data Binding ---
+        // PLAY e o passo a passo só ficam disponíveis com a simulação parada;
+        // PAUSE, só durante uma execução.
+        playButton.disableProperty().bind(controlsModel.runningProperty());
+        pauseButton.disableProperty().bind(controlsModel.runningProperty().not());
+        stepButton.disableProperty().bind(
+                controlsModel.runningProperty().or(stepModeCheckBox.selectedProperty().not()));
+
+        // Execução reversa: só com o histórico ligado e a simulação parada.
+        historyCheckBox.selectedProperty().bindBidirectional(controlsModel.historyEnabledProperty());
+        stepBackButton.disableProperty().bind(
+                controlsModel.runningProperty().or(historyCheckBox.selectedProperty().not()));
+        runBackButton.disableProperty().bind(stepBackButton.disableProperty());
+
+        // Perfil: o relatório é refeito ao fim de cada execução.
+        profileCheckBox.selectedProperty().bindBidirectional(controlsModel.profilingEnabledProperty());
+        profileButton.disableProperty().bind(controlsModel.profileReportProperty().isEmpty());
+
+        // Velocidade real x velocidade pedida.
+        speedLabel.textProperty().bind(Bindings.createStringBinding(
+                () -> formatSpeed(controlsModel.isRunning(),
+                        controlsModel.measuredSpeedProperty().get(),
+                        controlsModel.targetSpeedProperty().get()),
+                controlsModel.runningProperty(),
+                controlsModel.measuredSpeedProperty(),
+                controlsModel.targetSpeedProperty()));
+
+        // Último ponto de parada atingido.
+        breakpointLabel.textProperty().bind(Bindings.createStringBinding(
+                () -> {
+                    Breakpoints.Hit hit = controlsModel.breakpointHitProperty().get();
+                    return hit == null ? "" : "Stopped at " + describe(hit);
+                },
+                controlsModel.breakpointHitProperty()));
+    }
+
+    /** Descreve um ponto de parada (ex: "PC = 12", "write to 4095"). */
+    private static String describe(Breakpoints.Hit hit) {
+        return switch (hit.kind()) {
+            case PC -> "PC = " + hit.address();
+            case READ -> "read from " + hit.address();
+            case WRITE -> "write to " + hit.address();
+        };
+    }
+
+    /** Texto do rótulo de velocidade (ex: "Speed: 1,000 IPS (target: 1,000 IPS)"). */
+    private static String formatSpeed(boolean running, double measured, long target) {
+        String actual = running ? String.format("%,.0f IPS", measured) : "stopped";
+        String requested = target == SimulationControls.UNLIMITED
+                ? "unlimited"
+                : String.format("%,d IPS", target);
+        return "Speed: " + actual + " (target: " + requested + ")";
     }
 
     // --- Métodos de Evento (Chamados pelo FXML) ---
-    
-    // TODO: Adicione os métodos 'handle' para os seus botões.
-    // O onAction="#handlePlayButton" no FXML chamará este método:
-    //
-    // @FXML
-    // private void handlePlayButton() {
-    //     if (controlsModel != null) {
-    //         controlsModel.play(); // Delega a ação para o modelo
-    //     }
-    // }
-    //
-    // @FXML
-    // private void handlePauseButton() {
-    //     if (controlsModel != null) {
-    //         controlsModel.pause();
-    //     }
-    // }
-    //
-    // @FXML
-    // private void handleResetButton() {
-    //     if (controlsModel != null) {
-    //         controlsModel.reset();
-    //     }
-    // }
-
-}
\ No newline at end of file
+
+    /** PLAY: executa até o breakpoint (se houver) ou até a CPU parar. */
+    @FXML
+    private void handlePlayButton() {
+        if (controlsModel != null) {
+            controlsModel.runUntilBreakpoint();
+        }
+    }
+
+    @FXML
+    private void handlePauseButton() {
+        if (controlsModel != null) {
+            controlsModel.pause();
+        }
+    }
+
+    @FXML
+    private void handleStopButton() {
+        if (controlsModel != null) {
+            controlsModel.stop();
+        }
+    }
+
+    @FXML
+    private void handleResetButton() {
+        if (controlsModel != null) {
+            controlsModel.reset();
+        }
+    }
+
+    /** "Go through a cycle": executa uma macroinstrução. */
+    @FXML
+    private void handleStepButton() {
+        if (controlsModel != null) {
+            controlsModel.step();
+        }
+    }
+
+    /** "Step back": desfaz a última instrução. */
+    @FXML
+    private void handleStepBackButton() {
+        if (controlsModel != null) {
+            controlsModel.stepBack();
+        }
+    }
+
+    /** "Run backwards": volta até o ponto de parada anterior. */
+    @FXML
+    private void handleRunBackButton() {
+        if (controlsModel != null) {
+            controlsModel.runBackwards();
+        }
+    }
+
+    /** "Show profile": mostra o relatório do perfil em uma janela. */
+    @FXML
+    private void handleProfileButton() {
+        if (controlsModel == null) {
+            return;
+        }
+        TextArea report = new TextArea();
+        report.setEditable(false);
+        report.setStyle("-fx-font-family: monospace;");
+        report.setPrefSize(820, 480);
+        report.textProperty().bind(controlsModel.profileReportProperty());
+        Alert dialog = new Alert(Alert.AlertType.INFORMATION);
+        dialog.setTitle("Execution profile");
+        dialog.setHeaderText("Instructions and clock cycles per label, loop and address");
+        dialog.getDialogPane().setContent(report);
+        dialog.setResizable(true);
+        dialog.show();
+    }
+
+    /**
+     * Aplica a velocidade alvo digitada (instruções por segundo; campo vazio
+     * ou 0 = ilimitada).
+     */
+    @FXML
+    private void handleSpeedApply() {
+        if (controlsModel == null) {
+            return;
+        }
+        String text = speedField.getText().trim();
+        try {
+            long speed = text.isEmpty() ? SimulationControls.UNLIMITED : Long.parseLong(text);
+            if (speed < 0 || speed > SimulationControls.MAX_TARGET_SPEED) {
+                throw new NumberFormatException();
+            }
+            controlsModel.targetSpeedProperty().set(speed);
+        } catch (NumberFormatException e) {
+            System.err.println("Velocidade inválida: " + text);
+            speedField.setText("");
+            controlsModel.targetSpeedProperty().set(SimulationControls.UNLIMITED);
+        }
+    }
+
+    /**
+     * "Pause when on PC": aplica os breakpoints digitados, separados por
+     * vírgula (endereço ou label, com condição opcional, ex:
+     * "LOOP, 12 if AC &lt; 0"). Campo vazio remove os breakpoints.
+     */
+    @FXML
+    private void handleBreakpointApply() {
+        apply(Breakpoints.Kind.PC, breakpointField);
+    }
+
+    /** Aplica os watchpoints de escrita e de leitura (mesmo formato). */
+    @FXML
+    private void handleWatchApply() {
+        apply(Breakpoints.Kind.WRITE, writeWatchField);
+        apply(Breakpoints.Kind.READ, readWatchField);
+    }
+
+    private void apply(Breakpoints.Kind kind, TextField field) {
+        if (controlsModel == null) {
+            return;
+        }
+        try {
+            controlsModel.setBreakpoints(kind, field.getText());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ponto de parada inválido: " + e.getMessage());
+            field.selectAll();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package mic1.controller;
 
 import javafx.fxml.FXML;
 import javafx.scene.control.TextArea;
+import mic1.model.SimulationControls;
 import mic1.model.SourceCode;
 
 /**
@@ -21,12 +22,18 @@ public class SourceCodeController {
 
     private SourceCode sourceModel;
 
+    /** Controles da simulação, que fazem a gravação na memória. */
+    private SimulationControls controls;
+
     /**
-     * Injeta o modelo e configura as ligações entre view e modelo.
+     * Injeta os modelos e configura as ligações entre view e modelo.
      * @param model instância de {@link SourceCode}
+     * @param controls os controles da simulação (a gravação na memória é
+     *                 feita na thread da simulação)
      */
-    public void setModel(SourceCode model) {
+    public void setModel(SourceCode model, SimulationControls controls) {
         this.sourceModel = model;
+        this.controls = controls;
 
         assemblyTextArea.textProperty().bindBidirectional(model.assemblyCodeProperty());
         compiledTextArea.textProperty().bind(model.compiledCodeProperty());
@@ -44,12 +51,13 @@ public class SourceCodeController {
 
     /**
      * Handler invocado pelo botão "Write code to Main Memory". Transfere o
-     * código compilado para a memória principal.
+     * código compilado para a memória principal (parando a execução, se
+     * houver uma em andamento).
      */
     @FXML
     private void handleWriteToMemoryButton() {
-        if (sourceModel != null) {
-            sourceModel.writeToMemory();
+        if (controls != null) {
+            controls.writeProgram();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,544 @@
+package mic1.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Montador de uma passagem do MIC-1.
+ *
+ * O código-fonte é percorrido caractere a caractere, sem {@code split} nem
+ * expressões regulares. Cada linha pode ter:
+ * <ul>
+ * <li>um label ({@code NOME:}) seguido de uma instrução, ou sozinho (declara
+ *     uma variável, alocada de 4095 para baixo na ordem de aparição);</li>
+ * <li>uma instrução {@code MNEMÔNICO [operando]} (o mnemônico ignora
+ *     maiúsculas/minúsculas; os símbolos não). O operando 'x' pode ser um
+ *     símbolo ou um número de 0 a 4095 (ex: {@code LODL 1});</li>
+ * <li>um comentário, do primeiro {@code /} até o fim da linha.</li>
+ * </ul>
+ * Referências a símbolos ainda não definidos (referências à frente) são
+ * registradas e corrigidas no final (backpatching). Os erros são reportados
+ * com linha e coluna ({@link AssemblyException}).
+ *
+ * Uma instância pode ser reaproveitada; ela não é thread-safe.
+ */
+public class Assembler {
+
+    /**
+     * Resultado de uma montagem: a imagem binária e os dados da listagem,
+     * uma posição por palavra.
+     */
+    public static final class Program {
+        /** Palavras de 16 bits, a partir do endereço 0. */
+        final short[] image;
+        /** Número de palavras válidas em {@link #image}. */
+        final int length;
+        /** Mnemônico (forma canônica) de cada palavra. */
+        final String[] mnemonics;
+        /** Operando simbólico de cada palavra (null se não houver). */
+        final String[] operands;
+        /** Valor numérico do operando de cada palavra. */
+        final int[] values;
+        /** Linha do código-fonte (a partir de 1) de cada palavra. */
+        final int[] lines;
+        /** Tabela de símbolos (labels e variáveis). */
+        final Map<String, Integer> symbols;
+
+        Program(short[] image, int length, String[] mnemonics, String[] operands,
+                int[] values, int[] lines, Map<String, Integer> symbols) {
+            this.image = image;
+            this.length = length;
+            this.mnemonics = mnemonics;
+            this.operands = operands;
+            this.values = values;
+            this.lines = lines;
+            this.symbols = symbols;
+        }
+
+        /** Número de palavras do programa. */
+        public int length() { return length; }
+
+        /** Retorna uma cópia da imagem binária. */
+        public short[] getImage() { return Arrays.copyOf(image, length); }
+    }
+
+    // --- Tabela de mnemônicos (índices paralelos) ---
+    private static final String[] NAMES = {
+        "LODD", "STOD", "ADDD", "SUBD", "JPOS", "JZER", "JUMP", "LOCO",
+        "LODL", "STOL", "ADDL", "SUBL", "JNEG", "JNZE", "CALL",
+        "PSHI", "POPI", "PUSH", "POP", "RETN", "SWAP", "INSP", "DESP"
+    };
+    private static final int[] WORDS = {
+        0x0000, 0x1000, 0x2000, 0x3000, 0x4000, 0x5000, 0x6000, 0x7000,
+        0x8000, 0x9000, 0xA000, 0xB000, 0xC000, 0xD000, 0xE000,
+        0xF000, 0xF200, 0xF400, 0xF600, 0xF800, 0xFA00, 0xFC00, 0xFE00
+    };
+    /** Tamanho do operando: 12 bits ('x'), 8 bits ('y') ou 0 (sem operando). */
+    private static final int[] OPERAND_BITS = {
+        12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12,
+        0, 0, 0, 0, 0, 0, 8, 8
+    };
+    /** Mnemônicos empacotados (até 4 caracteres ASCII maiúsculos em um int). */
+    private static final int[] KEYS = new int[NAMES.length];
+    private static final int LOCO = 7;
+
+    static {
+        for (int i = 0; i < NAMES.length; i++) {
+            KEYS[i] = packMnemonic(NAMES[i], 0, NAMES[i].length());
+        }
+    }
+
+    /* Estado da montagem corrente. */
+    private final Line scratch = new Line();
+    private int lineNumber;
+    private int address;
+    private int variableAddress;
+    private Map<String, Integer> symbols;
+
+    private short[] image = new short[256];
+    private String[] mnemonics = new String[256];
+    private String[] operands = new String[256];
+    private int[] values = new int[256];
+    private int[] lines = new int[256];
+
+    /* Referências à frente pendentes: endereço, posição e símbolo. */
+    private int fixupCount;
+    private int[] fixupAddress = new int[64];
+    private int[] fixupLine = new int[64];
+    private int[] fixupColumn = new int[64];
+    private String[] fixupSymbol = new String[64];
+
+    /**
+     * Monta um código-fonte completo.
+     *
+     * @param source o código assembly.
+     * @return o programa montado.
+     * @throws AssemblyException no primeiro erro encontrado.
+     */
+    public Program assemble(CharSequence source) throws AssemblyException {
+        begin();
+        int n = source.length();
+        int pos = 0;
+        lineNumber = 1;
+        while (true) {
+            int end = pos;
+            while (end < n && source.charAt(end) != '\n') {
+                end++;
+            }
+            scratch.parse(source, pos, end);
+            process(scratch);
+            if (end >= n) {
+                break;
+            }
+            pos = end + 1;
+            lineNumber++;
+        }
+        return finish();
+    }
+
+    /**
+     * Monta um código-fonte lido em partes (ex: de um arquivo), analisando
+     * cada linha assim que ela chega. Só a linha corrente fica na memória,
+     * não o texto inteiro; o resultado é o mesmo de
+     * {@link #assemble(CharSequence)} sobre o texto completo.
+     *
+     * @param source o código assembly (não é fechado).
+     * @return o programa montado.
+     * @throws IOException se a leitura falhar.
+     * @throws AssemblyException no primeiro erro encontrado.
+     */
+    public Program assemble(Reader source) throws IOException, AssemblyException {
+        begin();
+        char[] buffer = new char[8192];
+        StringBuilder line = new StringBuilder(128);
+        lineNumber = 1;
+        int n;
+        while ((n = source.read(buffer)) >= 0) {
+            int start = 0;
+            for (int i = 0; i < n; i++) {
+                if (buffer[i] == '\n') {
+                    line.append(buffer, start, i - start);
+                    scratch.parse(line, 0, line.length());
+                    process(scratch);
+                    line.setLength(0);
+                    lineNumber++;
+                    start = i + 1;
+                }
+            }
+            line.append(buffer, start, n - start);
+        }
+        scratch.parse(line, 0, line.length());
+        process(scratch);
+        return finish();
+    }
+
+    /**
+     * Monta um programa a partir de linhas já analisadas (usado pela
+     * montagem incremental: só as linhas editadas são analisadas de novo).
+     * O resultado é o mesmo de {@link #assemble(CharSequence)} sobre o texto
+     * completo.
+     *
+     * @param source as linhas do código-fonte, na ordem.
+     * @return o programa montado.
+     * @throws AssemblyException no primeiro erro encontrado.
+     */
+    public Program link(List<Line> source) throws AssemblyException {
+        begin();
+        for (int i = 0; i < source.size(); i++) {
+            lineNumber = i + 1;
+            process(source.get(i));
+        }
+        return finish();
+    }
+
+    private void begin() {
+        address = 0;
+        variableAddress = MainMemory.MEMORY_SIZE - 1;
+        symbols = new HashMap<>();
+        fixupCount = 0;
+    }
+
+    private Program finish() throws AssemblyException {
+        resolveFixups();
+        return new Program(
+                Arrays.copyOf(image, address), address,
+                Arrays.copyOf(mnemonics, address), Arrays.copyOf(operands, address),
+                Arrays.copyOf(values, address), Arrays.copyOf(lines, address), symbols);
+    }
+
+    /**
+     * Processa uma linha analisada: define o label, emite a palavra e
+     * registra a referência à frente, se houver.
+     */
+    private void process(Line line) throws AssemblyException {
+        if (line.labelError != null) {
+            throw new AssemblyException(line.labelError, lineNumber, line.labelColumn);
+        }
+        if (line.label != null) {
+            if (symbols.containsKey(line.label)) {
+                throw new AssemblyException("Erro: Label duplicado '" + line.label + "'",
+                        lineNumber, line.labelColumn);
+            }
+            if (line.variable) {
+                // Label sozinho: declaração de variável.
+                symbols.put(line.label, variableAddress--);
+                return;
+            }
+            symbols.put(line.label, address);
+        }
+        if (line.error != null) {
+            throw new AssemblyException(line.error, lineNumber, line.errorColumn);
+        }
+        if (line.op < 0) {
+            return;
+        }
+        if (address == MainMemory.MEMORY_SIZE) {
+            throw new AssemblyException("Erro: Programa não cabe na memória (" + MainMemory.MEMORY_SIZE
+                    + " palavras)", lineNumber, line.mnemonicColumn);
+        }
+
+        int word = line.word;
+        int value = line.value;
+        if (line.symbolic) {
+            Integer symbol = symbols.get(line.operand);
+            if (symbol != null) {
+                value = symbol;
+                word |= value;
+            } else {
+                addFixup(line.operand, line.operandColumn);
+            }
+        }
+        emit(word, NAMES[line.op], line.operand, value);
+    }
+
+    /**
+     * Corrige as referências à frente com a tabela de símbolos final.
+     */
+    private void resolveFixups() throws AssemblyException {
+        for (int i = 0; i < fixupCount; i++) {
+            Integer symbol = symbols.get(fixupSymbol[i]);
+            if (symbol == null) {
+                throw new AssemblyException("Erro: Símbolo '" + fixupSymbol[i] + "' não definido",
+                        fixupLine[i], fixupColumn[i]);
+            }
+            int at = fixupAddress[i];
+            image[at] = (short) (image[at] | symbol);
+            values[at] = symbol;
+        }
+    }
+
+    private void emit(int word, String mnemonic, String operand, int value) {
+        if (address == image.length) {
+            int capacity = image.length * 2;
+            image = Arrays.copyOf(image, capacity);
+            mnemonics = Arrays.copyOf(mnemonics, capacity);
+            operands = Arrays.copyOf(operands, capacity);
+            values = Arrays.copyOf(values, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        image[address] = (short) word;
+        mnemonics[address] = mnemonic;
+        operands[address] = operand;
+        values[address] = value;
+        lines[address] = lineNumber;
+        address++;
+    }
+
+    private void addFixup(String symbol, int column) {
+        if (fixupCount == fixupAddress.length) {
+            int capacity = fixupCount * 2;
+            fixupAddress = Arrays.copyOf(fixupAddress, capacity);
+            fixupLine = Arrays.copyOf(fixupLine, capacity);
+            fixupColumn = Arrays.copyOf(fixupColumn, capacity);
+            fixupSymbol = Arrays.copyOf(fixupSymbol, capacity);
+        }
+        fixupAddress[fixupCount] = address;
+        fixupLine[fixupCount] = lineNumber;
+        fixupColumn[fixupCount] = column;
+        fixupSymbol[fixupCount] = symbol;
+        fixupCount++;
+    }
+
+    /**
+     * Uma linha do código-fonte já analisada (sem depender de outras linhas).
+     * Os erros léxicos ficam guardados e só são reportados quando a linha é
+     * processada, com o número da linha.
+     */
+    public static final class Line {
+        /** Label definido na linha, ou null. */
+        String label;
+        int labelColumn;
+        /** Label sozinho na linha (declaração de variável). */
+        boolean variable;
+        /** Índice do mnemônico na tabela, ou -1 se a linha não tem instrução. */
+        int op;
+        int mnemonicColumn;
+        /** Palavra da instrução, já com o operando numérico. */
+        int word;
+        int value;
+        /** Texto do operando (null se não houver ou se for 'y'). */
+        String operand;
+        /** Indica que o operando é um símbolo, resolvido na tabela de símbolos. */
+        boolean symbolic;
+        int operandColumn;
+        /** Erro no label (ex: label vazio), ou null. */
+        String labelError;
+        /** Erro na instrução, ou null. */
+        String error;
+        int errorColumn;
+
+        /**
+         * Analisa a linha [start, end) de {@code src}.
+         */
+        public void parse(CharSequence src, int start, int end) {
+            label = null;
+            variable = false;
+            op = -1;
+            word = 0;
+            value = 0;
+            operand = null;
+            symbolic = false;
+            labelError = null;
+            error = null;
+
+            // Comentário: do primeiro '/' até o fim da linha.
+            for (int i = start; i < end; i++) {
+                if (src.charAt(i) == '/') {
+                    end = i;
+                    break;
+                }
+            }
+            int p = skipSpaces(src, start, end);
+            end = trimEnd(src, p, end);
+            if (p == end) {
+                return;
+            }
+
+            // Label (opcional)
+            for (int i = p; i < end; i++) {
+                if (src.charAt(i) == ':') {
+                    labelColumn = p - start + 1;
+                    label = src.subSequence(p, trimEnd(src, p, i)).toString();
+                    if (label.isEmpty()) {
+                        label = null;
+                        labelError = "Erro: Label vazio";
+                    }
+                    p = skipSpaces(src, i + 1, end);
+                    if (p == end) {
+                        variable = true;
+                        return;
+                    }
+                    break;
+                }
+            }
+
+            // Mnemônico
+            int mnemonicStart = p;
+            mnemonicColumn = mnemonicStart - start + 1;
+            while (p < end && src.charAt(p) > ' ') {
+                p++;
+            }
+            int index = lookupMnemonic(src, mnemonicStart, p);
+            if (index < 0) {
+                fail("Erro: Mnemônico desconhecido '" + src.subSequence(mnemonicStart, p) + "'",
+                        mnemonicStart - start);
+                return;
+            }
+            p = skipSpaces(src, p, end);
+
+            // Operando
+            word = WORDS[index];
+            if (OPERAND_BITS[index] != 0) {
+                int operandStart = p;
+                while (p < end && src.charAt(p) > ' ') {
+                    p++;
+                }
+                operandColumn = operandStart - start + 1;
+                if (operandStart == p) {
+                    fail("Erro: Mnemônico '" + NAMES[index] + "' requer um operando", operandStart - start);
+                    return;
+                }
+                if (p != end) {
+                    fail("Erro: Texto inesperado '" + src.subSequence(p, end) + "'", p - start);
+                    return;
+                }
+
+                if (OPERAND_BITS[index] == 8) {
+                    long y = parseNumber(src, operandStart, p);
+                    if (y == INVALID_NUMBER) {
+                        fail(invalidNumber(src, operandStart, p), operandStart - start);
+                        return;
+                    }
+                    if (y < 0 || y > 255) {
+                        fail("Erro: Operando 'y' fora do range (0-255)", operandStart - start);
+                        return;
+                    }
+                    value = (int) y;
+                    word |= value;
+                } else if (index == LOCO || isDigit(src.charAt(operandStart))) {
+                    long x = parseNumber(src, operandStart, p);
+                    if (x == INVALID_NUMBER) {
+                        fail(invalidNumber(src, operandStart, p), operandStart - start);
+                        return;
+                    }
+                    if (index != LOCO && x > 4095) {
+                        // Endereço/deslocamento numérico (ex: LODL 1).
+                        fail("Erro: Operando 'x' fora do range (0-4095)", operandStart - start);
+                        return;
+                    }
+                    value = (int) x;
+                    // LOCO com valor negativo/grande usa apenas os 12 bits inferiores.
+                    word |= value & 0xFFF;
+                    operand = src.subSequence(operandStart, p).toString();
+                } else {
+                    operand = src.subSequence(operandStart, p).toString();
+                    symbolic = true;
+                }
+            }
+            op = index;
+        }
+
+        private void fail(String message, int offset) {
+            error = message;
+            errorColumn = offset + 1;
+        }
+    }
+
+    /** Forma canônica do mnemônico de índice {@code op} (ver {@link Line#op}). */
+    static String mnemonic(int op) {
+        return NAMES[op];
+    }
+
+    /** Valor de retorno de {@link #parseNumber} para um número inválido. */
+    private static final long INVALID_NUMBER = Long.MIN_VALUE;
+
+    /**
+     * Converte um número decimal (com sinal opcional) em [start, end), ou
+     * retorna {@link #INVALID_NUMBER}.
+     */
+    private static long parseNumber(CharSequence src, int start, int end) {
+        int p = start;
+        boolean negative = false;
+        char first = src.charAt(p);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            p++;
+        }
+        if (p == end) {
+            return INVALID_NUMBER;
+        }
+        long value = 0;
+        for (; p < end; p++) {
+            char c = src.charAt(p);
+            if (!isDigit(c)) {
+                return INVALID_NUMBER;
+            }
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE + 1L) {
+                return INVALID_NUMBER;
+            }
+        }
+        value = negative ? -value : value;
+        return value > Integer.MAX_VALUE ? INVALID_NUMBER : value;
+    }
+
+    private static String invalidNumber(CharSequence src, int start, int end) {
+        return "Erro: Número inválido '" + src.subSequence(start, end) + "'";
+    }
+
+    /** Índice do mnemônico em [start, end) na tabela, ou -1. */
+    private static int lookupMnemonic(CharSequence src, int start, int end) {
+        int key = packMnemonic(src, start, end);
+        if (key != -1) {
+            for (int i = 0; i < KEYS.length; i++) {
+                if (KEYS[i] == key) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Empacota até 4 letras ASCII (convertidas para maiúsculas) em um int,
+     * ou retorna -1.
+     */
+    private static int packMnemonic(CharSequence text, int start, int end) {
+        if (end - start < 1 || end - start > 4) {
+            return -1;
+        }
+        int key = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                c -= 'a' - 'A';
+            } else if (c < 'A' || c > 'Z') {
+                return -1;
+            }
+            key = (key << 8) | c;
+        }
+        return key;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int skipSpaces(CharSequence src, int p, int end) {
+        while (p < end && src.charAt(p) <= ' ') {
+            p++;
+        }
+        return p;
+    }
+
+    private static int trimEnd(CharSequence src, int start, int end) {
+        while (end > start && src.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,32 @@
+package mic1.model;
+
+/**
+ * Erro de montagem com a posição no código-fonte.
+ *
+ * A mensagem já inclui a posição no formato "(linha L, coluna C)", pronta
+ * para ser exibida na UI.
+ */
+public class AssemblyException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Linha do erro (a partir de 1). */
+    private final int line;
+
+    /** Coluna do erro (a partir de 1). */
+    private final int column;
+
+    /**
+     * @param message a descrição do erro (sem a posição).
+     * @param line a linha do erro (a partir de 1).
+     * @param column a coluna do erro (a partir de 1).
+     */
+    public AssemblyException(String message, int line, int column) {
+        super(message + " (linha " + line + ", coluna " + column + ")");
+        this.line = line;
+        this.column = column;
+    }
+
+    public int getLine() { return line; }
+    public int getColumn() { return column; }
+}
@@ -0,0 +1,228 @@
+package mic1.model;
+
+import java.util.Arrays;
+
+/**
+ * Cache de blocos básicos (superinstruções) usado pelo modo
+ * {@link CPU.ExecutionMode#BLOCK}.
+ *
+ * Um bloco básico é uma sequência de instruções em linha reta que começa no
+ * endereço de destino de um desvio e termina no primeiro JUMP, JPOS, JZER,
+ * JNEG, JNZE, CALL ou RETN (inclusive). Cada bloco é "compilado" uma vez em
+ * arrays primitivos de operações já decodificadas; pares frequentes, como
+ * {@code LODD x / ADDD y} e {@code SUBD x / STOD y}, são fundidos em uma
+ * única operação. A CPU executa o bloco inteiro sem buscar, decodificar ou
+ * testar o fim do orçamento de passos a cada instrução.
+ *
+ * Os endereços cobertos por blocos compilados são marcados no mapa de código
+ * da {@link MainMemory}. Uma escrita em um desses endereços incrementa a
+ * versão do código e registra a faixa suja; na próxima consulta os blocos
+ * que se sobrepõem à faixa são descartados.
+ */
+public class BasicBlockCache {
+
+    /** Número máximo de instruções em um bloco. */
+    static final int MAX_BLOCK_LENGTH = 64;
+
+    // --- Operações fundidas (os demais códigos são os OP_* da CPU) ---
+    static final int FUSED_LODD_ADDD = 32;
+    static final int FUSED_LODD_SUBD = 33;
+    static final int FUSED_ADDD_STOD = 34;
+    static final int FUSED_SUBD_STOD = 35;
+    static final int FUSED_LOCO_STOD = 36;
+
+    /**
+     * Um bloco compilado: o corpo em linha reta e o terminador.
+     */
+    static final class Block {
+        /** Endereço da primeira instrução. */
+        final int start;
+        /** Endereço seguinte à última instrução do bloco. */
+        final int end;
+        /** Código de cada operação do corpo (OP_* ou FUSED_*). */
+        final int[] ops;
+        /** Operando(s) de cada operação; as fundidas guardam {@code x | y << 12}. */
+        final int[] args;
+        /** Endereço da instrução seguinte a cada operação. */
+        final int[] next;
+        /** Palavra da (última) instrução de cada operação, para o IR. */
+        final int[] words;
+        /** Opcode do desvio/CALL/RETN que termina o bloco, ou -1. */
+        final int terminator;
+        /** Endereço de destino do terminador. */
+        final int target;
+        /** Palavra da última instrução do bloco. */
+        final int lastWord;
+
+        Block(int start, int end, int[] ops, int[] args, int[] next, int[] words,
+              int terminator, int target, int lastWord) {
+            this.start = start;
+            this.end = end;
+            this.ops = ops;
+            this.args = args;
+            this.next = next;
+            this.words = words;
+            this.terminator = terminator;
+            this.target = target;
+            this.lastWord = lastWord;
+        }
+
+        /** Número de macroinstruções do bloco. */
+        int length() {
+            return end - start;
+        }
+    }
+
+    private final MainMemory memory;
+
+    /** Blocos compilados, indexados pelo endereço inicial. */
+    private final Block[] blocks = new Block[MainMemory.MEMORY_SIZE];
+
+    /** Versão do código da memória vista na última validação. */
+    private int seenVersion;
+
+    /**
+     * Cria um cache vazio associado a uma memória.
+     */
+    public BasicBlockCache(MainMemory memory) {
+        this.memory = memory;
+        this.seenVersion = memory.codeVersion;
+    }
+
+    /**
+     * Retorna o bloco que começa em {@code address}, compilando-o se
+     * necessário. Antes disso, descarta os blocos invalidados por escritas
+     * no código.
+     */
+    Block lookup(int address) {
+        if (memory.codeVersion != seenVersion) {
+            invalidateDirty();
+        }
+        Block block = blocks[address];
+        if (block == null) {
+            block = compile(address);
+            blocks[address] = block;
+            memory.markCode(block.start, block.end);
+        }
+        return block;
+    }
+
+    /**
+     * Descarta todos os blocos compilados.
+     */
+    public void invalidateAll() {
+        Arrays.fill(blocks, null);
+        memory.clearCodeMap();
+        seenVersion = memory.codeVersion;
+    }
+
+    /**
+     * Descarta os blocos que se sobrepõem à faixa suja da memória e refaz
+     * o mapa de código só na faixa que eles cobriam. Como um bloco tem no
+     * máximo {@link #MAX_BLOCK_LENGTH} instruções, só os que começam até
+     * esse tanto antes da faixa podem alcançá-la: o custo não depende de
+     * quantos blocos há no cache (código que escreve em si mesmo a cada
+     * volta invalida blocos o tempo todo).
+     */
+    private void invalidateDirty() {
+        int lo = memory.codeDirtyLow;
+        int hi = memory.codeDirtyHigh;
+        int removedLow = MainMemory.MEMORY_SIZE;
+        int removedHigh = 0;
+        for (int i = Math.max(0, lo - MAX_BLOCK_LENGTH + 1); i <= hi; i++) {
+            Block block = blocks[i];
+            if (block != null && block.end > lo) {
+                blocks[i] = null;
+                removedLow = Math.min(removedLow, block.start);
+                removedHigh = Math.max(removedHigh, block.end);
+            }
+        }
+        if (removedLow < removedHigh) {
+            // Os blocos que sobraram podem cobrir parte da faixa desmarcada.
+            memory.unmarkCode(removedLow, removedHigh);
+            for (int i = Math.max(0, removedLow - MAX_BLOCK_LENGTH + 1); i < removedHigh; i++) {
+                Block block = blocks[i];
+                if (block != null && block.end > removedLow) {
+                    memory.markCode(Math.max(block.start, removedLow), Math.min(block.end, removedHigh));
+                }
+            }
+        }
+        memory.clearCodeDirty();
+        seenVersion = memory.codeVersion;
+    }
+
+    /**
+     * Compila o bloco que começa em {@code start}.
+     */
+    private Block compile(int start) {
+        int[] ops = new int[MAX_BLOCK_LENGTH];
+        int[] args = new int[MAX_BLOCK_LENGTH];
+        int[] next = new int[MAX_BLOCK_LENGTH];
+        int[] words = new int[MAX_BLOCK_LENGTH];
+        int count = 0;
+        int address = start;
+        int terminator = -1;
+        int target = 0;
+        int lastWord = 0;
+
+        while (address - start < MAX_BLOCK_LENGTH && address < MainMemory.MEMORY_SIZE) {
+            int word = memory.words()[address];
+            int op = CPU.decodeOpcode(word);
+            int arg = (op == CPU.OP_INSP || op == CPU.OP_DESP) ? word & 0xFF : word & CPU.ADDRESS_MASK;
+            address++;
+            lastWord = word;
+
+            if (endsBlock(op)) {
+                terminator = op;
+                target = arg;
+                break;
+            }
+
+            // Tenta fundir com a operação anterior.
+            int fused = count > 0 ? fuse(ops[count - 1], op) : 0;
+            if (fused != 0) {
+                ops[count - 1] = fused;
+                args[count - 1] |= arg << 12;
+                next[count - 1] = address;
+                words[count - 1] = word;
+                continue;
+            }
+
+            ops[count] = op;
+            args[count] = arg;
+            next[count] = address;
+            words[count] = word;
+            count++;
+        }
+
+        return new Block(start, address,
+                Arrays.copyOf(ops, count),
+                Arrays.copyOf(args, count),
+                Arrays.copyOf(next, count),
+                Arrays.copyOf(words, count),
+                terminator, target, lastWord);
+    }
+
+    /**
+     * Retorna a operação fundida para o par (anterior, atual), ou 0.
+     */
+    private static int fuse(int previous, int current) {
+        if (previous == CPU.OP_LODD && current == CPU.OP_ADDD) return FUSED_LODD_ADDD;
+        if (previous == CPU.OP_LODD && current == CPU.OP_SUBD) return FUSED_LODD_SUBD;
+        if (previous == CPU.OP_ADDD && current == CPU.OP_STOD) return FUSED_ADDD_STOD;
+        if (previous == CPU.OP_SUBD && current == CPU.OP_STOD) return FUSED_SUBD_STOD;
+        if (previous == CPU.OP_LOCO && current == CPU.OP_STOD) return FUSED_LOCO_STOD;
+        return 0;
+    }
+
+    /**
+     * Indica se a instrução termina um bloco básico (desvio, CALL ou RETN).
+     */
+    static boolean endsBlock(int op) {
+        return switch (op) {
+            case CPU.OP_JPOS, CPU.OP_JZER, CPU.OP_JUMP, CPU.OP_JNEG,
+                 CPU.OP_JNZE, CPU.OP_CALL, CPU.OP_RETN -> true;
+            default -> false;
+        };
+    }
+}
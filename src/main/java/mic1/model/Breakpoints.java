@@ -0,0 +1,226 @@
+package mic1.model;
+
+import java.util.Locale;
+import java.util.function.ToIntFunction;
+
+/**
+ * Breakpoints (por endereço do PC) e watchpoints de leitura/escrita (por
+ * endereço da memória), opcionalmente condicionais (ex: "AC &lt; 0").
+ *
+ * Cada tipo é um bitmap de 4096 bits, testado pela CPU na busca da
+ * instrução e nos acessos à memória. Enquanto nenhum ponto estiver armado
+ * ({@link #isArmed()}), a CPU usa o laço de execução normal, sem nenhum
+ * teste; com algum ponto armado, usa um laço instrução a instrução que
+ * confere os bitmaps (ver {@code CPU.runChecked}).
+ *
+ * Os pontos são alterados na thread do JavaFX (uma thread só) e lidos pela
+ * thread da simulação. Cada alteração monta uma tabela nova (bitmaps e
+ * condições) e a publica em um único campo volátil, então a CPU nunca vê um
+ * bit sem a sua condição nem uma substituição pela metade
+ * ({@link #replace}). Com algum ponto armado, a alteração vale a partir da
+ * próxima instrução conferida; os pontos armados com a CPU no laço sem
+ * testes passam a valer no lote seguinte.
+ */
+public class Breakpoints {
+
+    /** Tipo de ponto de parada. */
+    public enum Kind {
+        /** O PC chegou ao endereço (antes de executar a instrução). */
+        PC,
+        /** A instrução leu o endereço. */
+        READ,
+        /** A instrução escreveu no endereço. */
+        WRITE
+    }
+
+    /** Um ponto de parada atingido. */
+    public record Hit(Kind kind, int address) {
+        @Override
+        public String toString() {
+            return kind + " " + address;
+        }
+    }
+
+    /**
+     * Condição avaliada sobre os registradores da CPU quando um ponto é
+     * atingido; a CPU só para se a condição for verdadeira.
+     */
+    @FunctionalInterface
+    public interface Condition {
+
+        boolean test(CPU cpu);
+
+        /**
+         * Converte um texto no formato "REG OP NÚMERO" em uma condição.
+         * REG é PC, AC, SP ou IR; OP é &lt;, &lt;=, &gt;, &gt;=, == ou !=.
+         *
+         * @throws IllegalArgumentException se o texto não estiver no formato.
+         */
+        static Condition parse(String text) {
+            String[] parts = text.trim().split("\\s+");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Condição inválida: '" + text + "' (use ex: AC < 0)");
+            }
+            String register = parts[0].toUpperCase(Locale.ROOT);
+            int value;
+            try {
+                value = Integer.parseInt(parts[2]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Valor inválido na condição: '" + parts[2] + "'");
+            }
+            ToIntFunction<CPU> read = switch (register) {
+                case "PC" -> CPU::getPc;
+                case "AC" -> CPU::getAc;
+                case "SP" -> CPU::getSp;
+                case "IR" -> CPU::getIr;
+                default -> throw new IllegalArgumentException("Registrador inválido na condição: '" + parts[0] + "'");
+            };
+            return switch (parts[1]) {
+                case "<" -> cpu -> read.applyAsInt(cpu) < value;
+                case "<=" -> cpu -> read.applyAsInt(cpu) <= value;
+                case ">" -> cpu -> read.applyAsInt(cpu) > value;
+                case ">=" -> cpu -> read.applyAsInt(cpu) >= value;
+                case "==" -> cpu -> read.applyAsInt(cpu) == value;
+                case "!=" -> cpu -> read.applyAsInt(cpu) != value;
+                default -> throw new IllegalArgumentException("Operador inválido na condição: '" + parts[1] + "'");
+            };
+        }
+    }
+
+    private static final int WORDS = MainMemory.MEMORY_SIZE / Long.SIZE;
+
+    private static final int KINDS = Kind.values().length;
+
+    /**
+     * Os pontos armados: bitmaps e condições por tipo (índice =
+     * Kind.ordinal(); condição null = incondicional) e o total de pontos.
+     * Nunca é alterada depois de publicada em {@link #table}.
+     */
+    private record Table(long[][] bits, Condition[][] conditions, int count) {}
+
+    /** A tabela corrente, trocada inteira a cada alteração. */
+    private volatile Table table = new Table(new long[KINDS][WORDS], new Condition[KINDS][MainMemory.MEMORY_SIZE], 0);
+
+    /**
+     * Arma um ponto incondicional.
+     *
+     * @param kind o tipo do ponto.
+     * @param address o endereço (0-4095).
+     */
+    public void add(Kind kind, int address) {
+        add(kind, address, null);
+    }
+
+    /**
+     * Arma um ponto, substituindo a condição se ele já existir.
+     *
+     * @param kind o tipo do ponto.
+     * @param address o endereço (0-4095).
+     * @param condition a condição, ou null para parar sempre.
+     */
+    public void add(Kind kind, int address, Condition condition) {
+        checkAddress(address);
+        Table current = table;
+        long[] map = current.bits[kind.ordinal()].clone();
+        Condition[] conditions = current.conditions[kind.ordinal()].clone();
+        int count = current.count;
+        if ((map[address >>> 6] & (1L << address)) == 0) {
+            map[address >>> 6] |= 1L << address;
+            count++;
+        }
+        conditions[address] = condition;
+        publish(current, kind, map, conditions, count);
+    }
+
+    /** Desarma um ponto (se existir). */
+    public void remove(Kind kind, int address) {
+        checkAddress(address);
+        Table current = table;
+        long[] map = current.bits[kind.ordinal()].clone();
+        Condition[] conditions = current.conditions[kind.ordinal()].clone();
+        int count = current.count;
+        if ((map[address >>> 6] & (1L << address)) != 0) {
+            map[address >>> 6] &= ~(1L << address);
+            count--;
+        }
+        conditions[address] = null;
+        publish(current, kind, map, conditions, count);
+    }
+
+    /**
+     * Substitui todos os pontos de um tipo de uma só vez: a CPU vê os
+     * pontos antigos ou os novos, nunca uma mistura.
+     *
+     * @param kind o tipo dos pontos.
+     * @param addresses os endereços (0-4095).
+     * @param conditions a condição de cada endereço (null para parar sempre).
+     * @throws IndexOutOfBoundsException se algum endereço for inválido
+     *         (nesse caso nada é alterado).
+     */
+    public void replace(Kind kind, int[] addresses, Condition[] conditions) {
+        long[] map = new long[WORDS];
+        Condition[] kindConditions = new Condition[MainMemory.MEMORY_SIZE];
+        for (int i = 0; i < addresses.length; i++) {
+            int address = addresses[i];
+            checkAddress(address);
+            map[address >>> 6] |= 1L << address;
+            kindConditions[address] = conditions[i];
+        }
+        Table current = table;
+        int count = current.count;
+        for (int word = 0; word < WORDS; word++) {
+            count += Long.bitCount(map[word]) - Long.bitCount(current.bits[kind.ordinal()][word]);
+        }
+        publish(current, kind, map, kindConditions, count);
+    }
+
+    /** Desarma todos os pontos de um tipo. */
+    public void clear(Kind kind) {
+        replace(kind, new int[0], new Condition[0]);
+    }
+
+    /** Desarma todos os pontos. */
+    public void clear() {
+        table = new Table(new long[KINDS][WORDS], new Condition[KINDS][MainMemory.MEMORY_SIZE], 0);
+    }
+
+    /** Publica uma cópia de {@code current} com o tipo {@code kind} substituído. */
+    private void publish(Table current, Kind kind, long[] map, Condition[] conditions, int count) {
+        long[][] bits = current.bits.clone();
+        Condition[][] allConditions = current.conditions.clone();
+        bits[kind.ordinal()] = map;
+        allConditions[kind.ordinal()] = conditions;
+        table = new Table(bits, allConditions, count);
+    }
+
+    /** Indica se há algum ponto armado. */
+    public boolean isArmed() {
+        return table.count > 0;
+    }
+
+    /** Indica se há um ponto do tipo no endereço (sem avaliar a condição). */
+    public boolean contains(Kind kind, int address) {
+        return (table.bits[kind.ordinal()][address >>> 6] & (1L << address)) != 0;
+    }
+
+    /**
+     * Confere um ponto: testa o bit e, se houver, a condição (da mesma
+     * tabela).
+     *
+     * @param address o endereço, já mascarado para 12 bits.
+     */
+    boolean test(Kind kind, int address, CPU cpu) {
+        Table current = table;
+        if ((current.bits[kind.ordinal()][address >>> 6] & (1L << address)) == 0) {
+            return false;
+        }
+        Condition condition = current.conditions[kind.ordinal()][address];
+        return condition == null || condition.test(cpu);
+    }
+
+    private static void checkAddress(int address) {
+        if (address < 0 || address >= MainMemory.MEMORY_SIZE) {
+            throw new IndexOutOfBoundsException("Endereço inválido: " + address);
+        }
+    }
+}
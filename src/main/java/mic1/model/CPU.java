@@ -3,50 +3,1210 @@ package mic1.model;
 // Importe os modelos que a CPU precisa conhecer
 import mic1.model.MainMemory;
 
+import java.util.Arrays;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+
 /**
  * O "Cérebro" (Backend) da CPU. (MODELO)
  *
  * Responsabilidades:
- * 1. Manter o estado dos registradores (PC, AC, SP, IR, etc.).
+ * 1. Manter o estado dos registradores (PC, AC, SP, IR).
  * 2. Conter a lógica para executar o ciclo de busca/decodificação/execução.
- * 3. Expor propriedades (Properties) dos registradores para a View (CpuView).
+ * 3. Permitir a execução "headless" (sem JavaFX), usada pelos testes em lote.
+ *
+ * A CPU tem vários modos de execução (ver {@link ExecutionMode}): o
+ * interpretador de macroinstruções, rápido; o caminho de dados
+ * microprogramado ({@link MicroDatapath}), que executa a memória de controle
+ * original do MIC-1 ciclo a ciclo e serve para estudos de temporização; e dois
+ * modos compilados, por blocos básicos ({@link BasicBlockCache}) e para
+ * bytecode da JVM ({@link JitCompiler}).
+ *
+ * Os registradores são campos primitivos de 16 bits (guardados como int com
+ * extensão de sinal, no mesmo formato da MainMemory). O laço de execução
+ * trabalha diretamente sobre o array de inteiros da memória, sem passar pelas
+ * propriedades da interface gráfica.
+ *
+ * A execução pode rodar em outra thread. Ao fim de cada lote (cada chamada
+ * de {@link #run(long)}) os registradores são publicados em um instantâneo
+ * volátil, sem travas; as propriedades JavaFX ({@link #pcProperty()} etc.)
+ * só mudam em {@link #refreshView()}, chamado na thread do JavaFX uma vez por
+ * quadro.
  */
 public class CPU {
 
+    /**
+     * Motivo pelo qual a CPU parou de executar.
+     */
+    public enum HaltReason {
+        /** A CPU ainda pode executar instruções. */
+        NONE,
+        /** Um desvio tomado para o próprio endereço (ex: "FIM: JUMP FIM"). */
+        SELF_LOOP
+    }
+
+    /**
+     * Modo de execução da CPU.
+     */
+    public enum ExecutionMode {
+        /** Interpretador de macroinstruções (uma iteração por instrução). */
+        MACRO,
+        /** Microprograma do MIC-1 executado no caminho de dados (ciclo a ciclo). */
+        MICRO,
+        /** Blocos básicos compilados em superinstruções ({@link BasicBlockCache}). */
+        BLOCK,
+        /** Programa compilado para bytecode da JVM ({@link JitCompiler}). */
+        JIT
+    }
+
+    /** Valor inicial do Stack Pointer (topo da memória). */
+    public static final int INITIAL_SP = 4095;
+
+    /** Máscara dos 12 bits de endereço (MAR). */
+    static final int ADDRESS_MASK = 0xFFF;
+
+    // --- Identificadores internos dos opcodes (0-14 = nibble superior) ---
+    static final int OP_LODD = 0;
+    static final int OP_STOD = 1;
+    static final int OP_ADDD = 2;
+    static final int OP_SUBD = 3;
+    static final int OP_JPOS = 4;
+    static final int OP_JZER = 5;
+    static final int OP_JUMP = 6;
+    static final int OP_LOCO = 7;
+    static final int OP_LODL = 8;
+    static final int OP_STOL = 9;
+    static final int OP_ADDL = 10;
+    static final int OP_SUBL = 11;
+    static final int OP_JNEG = 12;
+    static final int OP_JNZE = 13;
+    static final int OP_CALL = 14;
+    static final int OP_PSHI = 15;
+    static final int OP_POPI = 16;
+    static final int OP_PUSH = 17;
+    static final int OP_POP  = 18;
+    static final int OP_RETN = 19;
+    static final int OP_SWAP = 20;
+    static final int OP_INSP = 21;
+    static final int OP_DESP = 22;
+
     // --- Dependências ---
     private MainMemory memory;
 
-    // TODO: Adicionar os registradores como JavaFX Properties
-    // Ex: private final IntegerProperty pc = new SimpleIntegerProperty(0);
-    // Ex: private final IntegerProperty ac = new SimpleIntegerProperty(0);
-    // Ex: private final IntegerProperty sp = new SimpleIntegerProperty(4095);
+    /** Modo de execução corrente. */
+    private ExecutionMode mode = ExecutionMode.MACRO;
+
+    /** Caminho de dados usado no modo MICRO. */
+    private final MicroDatapath datapath = new MicroDatapath();
+
+    /** Cache de blocos básicos do modo BLOCK (criado sob demanda). */
+    private BasicBlockCache blockCache;
+
+    /** Número máximo de compilações do modo JIT antes de desistir e interpretar. */
+    private static final int MAX_JIT_COMPILES = 16;
+
+    /** Compilador do modo JIT (criado sob demanda). */
+    private JitCompiler jit;
+
+    /** Programa compilado pelo JIT, ou null se precisar (re)compilar. */
+    private JitCompiler.Code jitCode;
+
+    /** Versão do código da memória quando {@link #jitCode} foi compilado. */
+    private int jitVersion;
+
+    /** Compilações feitas desde o último reset. */
+    private int jitCompiles;
+
+    /** Endereços de entrada conhecidos do programa (raízes da compilação). */
+    private final boolean[] jitEntries = new boolean[MainMemory.MEMORY_SIZE];
+
+    /** Registradores trocados com o código gerado (ver JitCompiler.REG_*). */
+    private final int[] jitRegs = new int[5];
+
+    // --- Registradores (16 bits, com extensão de sinal) ---
+    private int pc;
+    private int ac;
+    private int sp = INITIAL_SP;
+    private int ir;
+
+    /** Total de macroinstruções executadas desde o último reset. */
+    private long steps;
+
+    /** Motivo da parada (NONE enquanto a CPU puder executar). */
+    private HaltReason haltReason = HaltReason.NONE;
+
+    /** Breakpoints e watchpoints (ver {@link #runChecked(long)}). */
+    private final Breakpoints breakpoints = new Breakpoints();
+
+    /** Ponto de parada atingido na última chamada de run() (ou null). */
+    private Breakpoints.Hit breakpointHit;
+
+    /** Histórico para a execução reversa (null = desligado). */
+    private ExecutionHistory history;
+
+    /** Perfil de execução por endereço (null = desligado). */
+    private Profiler profiler;
+
+    /** Trace de cada instrução executada (null = desligado). */
+    private TraceWriter trace;
+
+    /**
+     * Se o breakpoint de PC do endereço corrente deve ser ignorado uma vez:
+     * ao continuar depois de parar nele, a instrução precisa ser executada.
+     */
+    private boolean resumeAtBreakpoint;
+
+    // --- Instantâneo publicado para a UI (ver publish()/refreshView()) ---
+
+    /** PC, AC, SP e IR (16 bits cada) empacotados em um long. */
+    private volatile long publishedRegisters = pack(0, 0, INITIAL_SP, 0);
+    private volatile long publishedSteps;
+    private volatile HaltReason publishedHalt = HaltReason.NONE;
+
+    /** Último instantâneo aplicado às propriedades (thread do JavaFX). */
+    private long shownRegisters = publishedRegisters;
+
+    // --- Propriedades JavaFX (alteradas apenas em refreshView()) ---
+    private final ReadOnlyIntegerWrapper pcView = new ReadOnlyIntegerWrapper(0);
+    private final ReadOnlyIntegerWrapper acView = new ReadOnlyIntegerWrapper(0);
+    private final ReadOnlyIntegerWrapper spView = new ReadOnlyIntegerWrapper(INITIAL_SP);
+    private final ReadOnlyIntegerWrapper irView = new ReadOnlyIntegerWrapper(0);
+    private final ReadOnlyLongWrapper stepsView = new ReadOnlyLongWrapper(0);
+    private final ReadOnlyObjectWrapper<HaltReason> haltView = new ReadOnlyObjectWrapper<>(HaltReason.NONE);
 
     /**
      * Construtor da CPU.
      */
     public CPU() {
-        // Inicialize os registradores aqui
         System.out.println("Modelo da CPU criado.");
     }
 
     /**
-     * (MÉTODO ADICIONADO)
      * Permite que o Main.java injete a Memória Principal na CPU.
-     * Isso corrige o erro em Main.java.
      */
     public void linkMemory(MainMemory memory) {
         this.memory = memory;
+        this.blockCache = null;
+        this.jit = null;
+        this.jitCode = null;
+        Arrays.fill(jitEntries, false);
+    }
+
+    /**
+     * Executa um ciclo completo de busca/decodificação/execução
+     * (uma macroinstrução).
+     */
+    public void executeCycle() {
+        run(1);
+    }
+
+    /**
+     * Executa até {@code maxSteps} macroinstruções, parando antes se a CPU
+     * entrar em um laço de parada (desvio para o próprio endereço).
+     *
+     * Os registradores são copiados para variáveis locais durante o laço
+     * e gravados de volta nos campos apenas no final. O opcode e o operando
+     * vêm do cache de instruções decodificadas da MainMemory, que é
+     * invalidado a cada escrita (programas automodificáveis continuam corretos).
+     *
+     * @param maxSteps número máximo de instruções a executar.
+     * @return o número de instruções efetivamente executadas.
+     */
+    public long run(long maxSteps) {
+        return run(maxSteps, true);
+    }
+
+    /**
+     * Como {@link #run(long)}, podendo ignorar os breakpoints e watchpoints.
+     *
+     * Sem nenhum ponto armado (ou com {@code stopAtBreakpoints} falso), sem
+     * histórico, perfil ou trace e sem a contagem de acessos da memória
+     * ({@link MainMemory#setActivityTracking(boolean)}), o modo de execução
+     * corrente roda sem nenhum teste extra. Com qualquer um deles ligado,
+     * as instruções passam por {@link #runChecked(long, boolean, MemoryActivity)},
+     * e a execução para no primeiro ponto atingido ({@link #getBreakpointHit()}).
+     *
+     * @param maxSteps número máximo de instruções a executar.
+     * @param stopAtBreakpoints se os breakpoints e watchpoints devem ser conferidos.
+     * @return o número de instruções efetivamente executadas.
+     */
+    public long run(long maxSteps, boolean stopAtBreakpoints) {
+        breakpointHit = null;
+        if (memory == null || haltReason != HaltReason.NONE || maxSteps <= 0) {
+            return 0;
+        }
+        boolean checkBreakpoints = stopAtBreakpoints && breakpoints.isArmed();
+        MemoryActivity activity = memory.getActivity();
+        if (trace != null && mode != ExecutionMode.MICRO
+                && !checkBreakpoints && history == null && profiler == null && activity == null) {
+            resumeAtBreakpoint = false;
+            long n = interpretTraced(maxSteps, trace);
+            steps += n;
+            publish();
+            return n;
+        }
+        if (checkBreakpoints || history != null || profiler != null || activity != null || trace != null) {
+            long n = runChecked(maxSteps, checkBreakpoints, activity);
+            steps += n;
+            publish();
+            return n;
+        }
+        resumeAtBreakpoint = false;
+        long n = switch (mode) {
+            case MICRO -> runMicro(maxSteps);
+            case BLOCK -> runBlocks(maxSteps);
+            case JIT -> runJit(maxSteps);
+            default -> interpret(maxSteps);
+        };
+        steps += n;
+        publish();
+        return n;
+    }
+
+    /**
+     * Execução instrução a instrução (pelo interpretador, ou pelo
+     * microprograma no modo MICRO), usada com breakpoints/watchpoints
+     * armados, com o histórico, o perfil ou o trace ligado ou com a contagem
+     * de acessos da memória. Testa o bitmap de PC antes da busca e os de
+     * leitura/escrita com os endereços que a instrução acessa; um breakpoint
+     * de PC para antes da instrução, um watchpoint depois dela. Com o
+     * histórico ligado, grava o estado antes de cada instrução; com o perfil
+     * e com {@code activity} (se não for null), conta cada instrução
+     * executada; com o trace, grava o resultado de cada instrução.
+     */
+    private long runChecked(long maxSteps, boolean checkBreakpoints, MemoryActivity activity) {
+        final Breakpoints points = breakpoints;
+        final ExecutionHistory history = this.history;
+        final Profiler profiler = this.profiler;
+        final TraceWriter trace = this.trace;
+        final int[] m = memory.words();
+        long n = 0;
+        while (n < maxSteps && haltReason == HaltReason.NONE) {
+            final int addr = pc & ADDRESS_MASK;
+            if (resumeAtBreakpoint) {
+                resumeAtBreakpoint = false;
+            } else if (checkBreakpoints && points.test(Breakpoints.Kind.PC, addr, this)) {
+                breakpointHit = new Breakpoints.Hit(Breakpoints.Kind.PC, addr);
+                resumeAtBreakpoint = true;
+                break;
+            }
+
+            final int word = m[addr];
+            final int op = decodeOpcode(word);
+            final int read = readAddress(op, word, ac, sp);
+            final int write = writeAddress(op, word, ac, sp);
+            if (history != null) {
+                history.record(steps + n, ExecutionHistory.pack(pc, ac, sp, ir), memory);
+                if (write >= 0) {
+                    history.recordWrite(write, m[write]);
+                }
+            }
+
+            final int acBefore = ac;
+            long k = mode == ExecutionMode.MICRO ? runMicro(1) : interpret(1);
+            if (k == 0) {
+                break;
+            }
+            n += k;
+            if (profiler != null) {
+                profiler.record(addr, op, acBefore);
+            }
+            if (activity != null) {
+                activity.record(addr, read, write);
+            }
+            if (trace != null) {
+                trace.record(addr, word, ac, sp, write, write >= 0 ? m[write] : 0);
+            }
+            if (checkBreakpoints) {
+                if (read >= 0 && points.test(Breakpoints.Kind.READ, read, this)) {
+                    breakpointHit = new Breakpoints.Hit(Breakpoints.Kind.READ, read);
+                    break;
+                }
+                if (write >= 0 && points.test(Breakpoints.Kind.WRITE, write, this)) {
+                    breakpointHit = new Breakpoints.Hit(Breakpoints.Kind.WRITE, write);
+                    break;
+                }
+            }
+        }
+        return n;
+    }
+
+    /** Endereço lido pela instrução {@code word} (opcode {@code op}), ou -1. */
+    static int readAddress(int op, int word, int ac, int sp) {
+        return switch (op) {
+            case OP_LODD, OP_ADDD, OP_SUBD -> word & ADDRESS_MASK;
+            case OP_LODL, OP_ADDL, OP_SUBL -> (sp + word) & ADDRESS_MASK;
+            case OP_PSHI -> ac & ADDRESS_MASK;
+            case OP_POPI, OP_POP, OP_RETN -> sp & ADDRESS_MASK;
+            default -> -1;
+        };
+    }
+
+    /** Endereço escrito pela instrução {@code word} (opcode {@code op}), ou -1. */
+    static int writeAddress(int op, int word, int ac, int sp) {
+        return switch (op) {
+            case OP_STOD -> word & ADDRESS_MASK;
+            case OP_STOL -> (sp + word) & ADDRESS_MASK;
+            case OP_CALL, OP_PUSH, OP_PSHI -> (sp - 1) & ADDRESS_MASK;
+            case OP_POPI -> ac & ADDRESS_MASK;
+            default -> -1;
+        };
+    }
+
+    // --- Perfil de execução ---
+
+    /**
+     * Liga ou desliga o perfil de execução ({@link Profiler}). Ligado, toda
+     * execução passa a ser instrução a instrução; desligado, as contagens são
+     * descartadas e a execução volta ao caminho rápido do modo corrente.
+     */
+    public void setProfilingEnabled(boolean enabled) {
+        if (enabled && profiler == null) {
+            profiler = new Profiler();
+        } else if (!enabled) {
+            profiler = null;
+        }
+    }
+
+    public boolean isProfilingEnabled() { return profiler != null; }
+
+    /** O perfil desde o último reset (null se desligado). */
+    public Profiler getProfiler() { return profiler; }
+
+    // --- Trace ---
+
+    /**
+     * Liga o trace: a partir daqui, cada instrução executada é gravada em
+     * {@code trace} (ver {@link TraceWriter}). Com null, desliga. Quem
+     * chamou continua dono do TraceWriter e deve fechá-lo depois de
+     * desligar o trace.
+     */
+    public void setTrace(TraceWriter trace) {
+        this.trace = trace;
+    }
+
+    /** O trace ligado (null se desligado). */
+    public TraceWriter getTrace() { return trace; }
+
+    // --- Execução reversa ---
+
+    /**
+     * Liga ou desliga o histórico de execução. Ligado, toda execução passa
+     * a ser instrução a instrução (mais lenta) e guarda o necessário para
+     * {@link #stepBack()}, {@link #reverseContinue(long)} e {@link #rewindTo(long)}.
+     */
+    public void setHistoryEnabled(boolean enabled) {
+        if (enabled && history == null) {
+            history = new ExecutionHistory();
+        } else if (!enabled) {
+            history = null;
+        }
+    }
+
+    public boolean isHistoryEnabled() { return history != null; }
+
+    /** Número de instruções que podem ser desfeitas a partir do estado atual. */
+    public long getHistoryLength() {
+        return history != null ? history.available(steps) : 0;
+    }
+
+    /**
+     * Desfaz a última instrução executada.
+     *
+     * @return false se não houver histórico para desfazer.
+     */
+    public boolean stepBack() {
+        boolean undone = undo();
+        if (undone) {
+            syncDatapath();
+            publish();
+        }
+        return undone;
+    }
+
+    /**
+     * Desfaz instruções até chegar a um breakpoint de PC ou desfazer uma
+     * instrução que atingiu um watchpoint (ou até {@code maxSteps} instruções,
+     * ou o fim do histórico). A primeira instrução é sempre desfeita.
+     *
+     * @return o número de instruções desfeitas.
+     */
+    public long reverseContinue(long maxSteps) {
+        breakpointHit = null;
+        final Breakpoints points = breakpoints;
+        final int[] m = memory != null ? memory.words() : null;
+        long n = 0;
+        while (n < maxSteps && undo()) {
+            n++;
+            if (!points.isArmed()) {
+                continue;
+            }
+            // Estado logo antes da instrução desfeita.
+            final int addr = pc & ADDRESS_MASK;
+            final int op = decodeOpcode(m[addr]);
+            final int read = readAddress(op, m[addr], ac, sp);
+            final int write = writeAddress(op, m[addr], ac, sp);
+            if (points.test(Breakpoints.Kind.PC, addr, this)) {
+                breakpointHit = new Breakpoints.Hit(Breakpoints.Kind.PC, addr);
+            } else if (read >= 0 && points.test(Breakpoints.Kind.READ, read, this)) {
+                breakpointHit = new Breakpoints.Hit(Breakpoints.Kind.READ, read);
+            } else if (write >= 0 && points.test(Breakpoints.Kind.WRITE, write, this)) {
+                breakpointHit = new Breakpoints.Hit(Breakpoints.Kind.WRITE, write);
+            }
+            if (breakpointHit != null) {
+                // Ao seguir em frente, a instrução deste ponto é executada.
+                resumeAtBreakpoint = true;
+                break;
+            }
+        }
+        syncDatapath();
+        publish();
+        return n;
     }
 
-    // TODO: Implementar a lógica principal da CPU
-    // public void executeCycle() {
-    //     if (memory == null) return;
-    //     // 1. Fetch (memory.read(pc.get()))
-    //     // 2. Decode
-    //     // 3. Execute
-    // }
+    /**
+     * Volta ao estado do passo {@code step} (ver {@link #getSteps()}). Saltos
+     * longos restauram o instantâneo de memória mais próximo e executam de
+     * novo o trecho restante; saltos curtos desfazem instrução a instrução.
+     *
+     * @return false se o passo estiver fora do histórico.
+     */
+    public boolean rewindTo(long step) {
+        if (history == null || step > steps || step < steps - history.available(steps)) {
+            return false;
+        }
+        if (steps - step > ExecutionHistory.SNAPSHOT_INTERVAL) {
+            int slot = history.truncateToSnapshot(step);
+            if (slot >= 0) {
+                memory.restore(history.snapshotMemory(slot));
+                long r = history.snapshotRegisters(slot);
+                unpack(r);
+                steps = history.snapshotStep(slot);
+                haltReason = HaltReason.NONE;
+                breakpointHit = null;
+                resumeAtBreakpoint = false;
+                syncDatapath();
+                // Executa de novo até o passo pedido (gravando o histórico,
+                // mas sem contar de novo no perfil nem no trace as instruções
+                // que já passaram por eles).
+                Profiler counting = profiler;
+                TraceWriter tracing = trace;
+                profiler = null;
+                trace = null;
+                try {
+                    steps += runChecked(step - steps, false, null);
+                } finally {
+                    profiler = counting;
+                    trace = tracing;
+                }
+                publish();
+                return true;
+            }
+        }
+        while (steps > step && undo()) {
+            // desfaz instrução a instrução
+        }
+        syncDatapath();
+        publish();
+        return steps == step;
+    }
+
+    /**
+     * Desfaz a última instrução (sem sincronizar o caminho de dados nem
+     * publicar o estado).
+     */
+    private boolean undo() {
+        if (history == null || memory == null) {
+            return false;
+        }
+        int op = decodeOpcode(ir);
+        boolean wrote = writeAddress(op, ir, 0, 0) >= 0;
+        if (!history.canUndo(steps, wrote)) {
+            return false;
+        }
+        if (wrote) {
+            int entry = history.popWrite();
+            memory.store(entry >>> 16, (short) entry);
+        }
+        unpack(history.popRegisters());
+        steps--;
+        haltReason = HaltReason.NONE;
+        breakpointHit = null;
+        resumeAtBreakpoint = false;
+        return true;
+    }
+
+    /** Restaura PC, AC, SP e IR de um estado empacotado ({@link ExecutionHistory#pack}). */
+    private void unpack(long r) {
+        pc = (short) r;
+        ac = (short) (r >>> 16);
+        sp = (short) (r >>> 32);
+        ir = (short) (r >>> 48);
+    }
+
+    /**
+     * Interpretador de macroinstruções: busca, decodifica e executa uma
+     * instrução por iteração.
+     */
+    private long interpret(long maxSteps) {
+        final MainMemory mem = memory;
+        final int[] m = mem.words();
+        final int[] dec = mem.decodedWords();
+        int pc = this.pc;
+        int ac = this.ac;
+        int sp = this.sp;
+        int d = this.ir & 0xFFFF;
+        long n = 0;
+        HaltReason halt = HaltReason.NONE;
+
+        // Um desvio tomado para o próprio endereço nunca muda o estado: é o
+        // "HALT" convencional dos programas ("FIM: JUMP FIM"). Só os desvios
+        // precisam testar essa condição.
+        loop:
+        while (n < maxSteps) {
+            final int at = pc;
+            final int addr = pc & ADDRESS_MASK;
+            d = dec[addr];
+            if (d == 0) {
+                d = mem.decodeAt(addr);
+            }
+            pc = (short) (pc + 1);
+            n++;
+
+            final int x = d & ADDRESS_MASK;
+            switch ((d >>> 16) & 0x1F) {
+                case OP_LODD -> ac = m[x];
+                case OP_STOD -> mem.store(x, ac);
+                case OP_ADDD -> ac = (short) (ac + m[x]);
+                case OP_SUBD -> ac = (short) (ac - m[x]);
+                case OP_JPOS -> {
+                    if (ac >= 0) {
+                        pc = x;
+                        if (x == at) { halt = HaltReason.SELF_LOOP; break loop; }
+                    }
+                }
+                case OP_JZER -> {
+                    if (ac == 0) {
+                        pc = x;
+                        if (x == at) { halt = HaltReason.SELF_LOOP; break loop; }
+                    }
+                }
+                case OP_JUMP -> {
+                    pc = x;
+                    if (x == at) { halt = HaltReason.SELF_LOOP; break loop; }
+                }
+                case OP_LOCO -> ac = x; // AC := IR AND AMASK (sem extensão de sinal)
+                case OP_LODL -> ac = m[(sp + x) & ADDRESS_MASK];
+                case OP_STOL -> mem.store((sp + x) & ADDRESS_MASK, ac);
+                case OP_ADDL -> ac = (short) (ac + m[(sp + x) & ADDRESS_MASK]);
+                case OP_SUBL -> ac = (short) (ac - m[(sp + x) & ADDRESS_MASK]);
+                case OP_JNEG -> {
+                    if (ac < 0) {
+                        pc = x;
+                        if (x == at) { halt = HaltReason.SELF_LOOP; break loop; }
+                    }
+                }
+                case OP_JNZE -> {
+                    if (ac != 0) {
+                        pc = x;
+                        if (x == at) { halt = HaltReason.SELF_LOOP; break loop; }
+                    }
+                }
+                case OP_CALL -> {
+                    sp = (short) (sp - 1);
+                    mem.store(sp & ADDRESS_MASK, pc);
+                    pc = x;
+                }
+                case OP_PSHI -> {
+                    sp = (short) (sp - 1);
+                    mem.store(sp & ADDRESS_MASK, m[ac & ADDRESS_MASK]);
+                }
+                case OP_POPI -> {
+                    mem.store(ac & ADDRESS_MASK, m[sp & ADDRESS_MASK]);
+                    sp = (short) (sp + 1);
+                }
+                case OP_PUSH -> {
+                    sp = (short) (sp - 1);
+                    mem.store(sp & ADDRESS_MASK, ac);
+                }
+                case OP_POP -> {
+                    ac = m[sp & ADDRESS_MASK];
+                    sp = (short) (sp + 1);
+                }
+                case OP_RETN -> {
+                    pc = m[sp & ADDRESS_MASK];
+                    sp = (short) (sp + 1);
+                }
+                case OP_SWAP -> {
+                    int tmp = ac;
+                    ac = sp;
+                    sp = tmp;
+                }
+                case OP_INSP -> sp = (short) (sp + (d & 0xFF));
+                default -> sp = (short) (sp - (d & 0xFF)); // OP_DESP
+            }
+        }
+
+        this.pc = pc;
+        this.ac = ac;
+        this.sp = sp;
+        this.ir = (short) d;
+        this.haltReason = halt;
+        return n;
+    }
+
+    /**
+     * O interpretador de {@link #interpret(long)} gravando cada instrução no
+     * trace: o endereço e o valor escritos são conhecidos no próprio caso do
+     * opcode, sem os testes por instrução de {@link #runChecked}. Usado nos
+     * modos MACRO, BLOCK e JIT quando o trace é a única coisa ligada.
+     */
+    private long interpretTraced(long maxSteps, TraceWriter trace) {
+        final MainMemory mem = memory;
+        final int[] m = mem.words();
+        final int[] dec = mem.decodedWords();
+        int pc = this.pc;
+        int ac = this.ac;
+        int sp = this.sp;
+        int d = this.ir & 0xFFFF;
+        long n = 0;
+        HaltReason halt = HaltReason.NONE;
+
+        while (n < maxSteps && halt == HaltReason.NONE) {
+            final int at = pc;
+            final int addr = pc & ADDRESS_MASK;
+            d = dec[addr];
+            if (d == 0) {
+                d = mem.decodeAt(addr);
+            }
+            pc = (short) (pc + 1);
+            n++;
+
+            final int x = d & ADDRESS_MASK;
+            int written = -1;
+            switch ((d >>> 16) & 0x1F) {
+                case OP_LODD -> ac = m[x];
+                case OP_STOD -> mem.store(written = x, ac);
+                case OP_ADDD -> ac = (short) (ac + m[x]);
+                case OP_SUBD -> ac = (short) (ac - m[x]);
+                case OP_JPOS -> {
+                    if (ac >= 0) {
+                        pc = x;
+                        if (x == at) { halt = HaltReason.SELF_LOOP; }
+                    }
+                }
+                case OP_JZER -> {
+                    if (ac == 0) {
+                        pc = x;
+                        if (x == at) { halt = HaltReason.SELF_LOOP; }
+                    }
+                }
+                case OP_JUMP -> {
+                    pc = x;
+                    if (x == at) { halt = HaltReason.SELF_LOOP; }
+                }
+                case OP_LOCO -> ac = x;
+                case OP_LODL -> ac = m[(sp + x) & ADDRESS_MASK];
+                case OP_STOL -> mem.store(written = (sp + x) & ADDRESS_MASK, ac);
+                case OP_ADDL -> ac = (short) (ac + m[(sp + x) & ADDRESS_MASK]);
+                case OP_SUBL -> ac = (short) (ac - m[(sp + x) & ADDRESS_MASK]);
+                case OP_JNEG -> {
+                    if (ac < 0) {
+                        pc = x;
+                        if (x == at) { halt = HaltReason.SELF_LOOP; }
+                    }
+                }
+                case OP_JNZE -> {
+                    if (ac != 0) {
+                        pc = x;
+                        if (x == at) { halt = HaltReason.SELF_LOOP; }
+                    }
+                }
+                case OP_CALL -> {
+                    sp = (short) (sp - 1);
+                    mem.store(written = sp & ADDRESS_MASK, pc);
+                    pc = x;
+                }
+                case OP_PSHI -> {
+                    sp = (short) (sp - 1);
+                    mem.store(written = sp & ADDRESS_MASK, m[ac & ADDRESS_MASK]);
+                }
+                case OP_POPI -> {
+                    mem.store(written = ac & ADDRESS_MASK, m[sp & ADDRESS_MASK]);
+                    sp = (short) (sp + 1);
+                }
+                case OP_PUSH -> {
+                    sp = (short) (sp - 1);
+                    mem.store(written = sp & ADDRESS_MASK, ac);
+                }
+                case OP_POP -> {
+                    ac = m[sp & ADDRESS_MASK];
+                    sp = (short) (sp + 1);
+                }
+                case OP_RETN -> {
+                    pc = m[sp & ADDRESS_MASK];
+                    sp = (short) (sp + 1);
+                }
+                case OP_SWAP -> {
+                    int tmp = ac;
+                    ac = sp;
+                    sp = tmp;
+                }
+                case OP_INSP -> sp = (short) (sp + (d & 0xFF));
+                default -> sp = (short) (sp - (d & 0xFF)); // OP_DESP
+            }
+            trace.record(addr, d, ac, sp, written, written >= 0 ? m[written] : 0);
+        }
+
+        this.pc = pc;
+        this.ac = ac;
+        this.sp = sp;
+        this.ir = (short) d;
+        this.haltReason = halt;
+        return n;
+    }
+
+    /**
+     * Executa blocos básicos compilados ({@link BasicBlockCache}).
+     *
+     * Cada bloco roda inteiro, sem testes por instrução, desde que caiba no
+     * orçamento de passos restante. Quando não cabe (ou quando o PC está fora
+     * da faixa de 12 bits), a instrução é executada pelo interpretador, para
+     * que a contagem de passos seja exata. Depois de cada escrita na memória o
+     * bloco confere a versão do código e sai se a escrita atingiu código
+     * compilado (programas automodificáveis).
+     */
+    private long runBlocks(long maxSteps) {
+        if (blockCache == null) {
+            blockCache = new BasicBlockCache(memory);
+        }
+        final BasicBlockCache cache = blockCache;
+        final MainMemory mem = memory;
+        final int[] m = mem.words();
+        int pc = this.pc;
+        int ac = this.ac;
+        int sp = this.sp;
+        int ir = this.ir;
+        long n = 0;
+
+        outer:
+        while (n < maxSteps) {
+            final BasicBlockCache.Block block = cache.lookup(pc & ADDRESS_MASK);
+            if (pc != block.start || block.length() > maxSteps - n) {
+                this.pc = pc;
+                this.ac = ac;
+                this.sp = sp;
+                n += interpret(1);
+                pc = this.pc;
+                ac = this.ac;
+                sp = this.sp;
+                ir = this.ir;
+                if (haltReason != HaltReason.NONE) {
+                    break;
+                }
+                continue;
+            }
+
+            final int[] ops = block.ops;
+            final int[] args = block.args;
+            final int version = mem.codeVersion;
+
+            // Corpo do bloco: instruções em linha reta.
+            for (int k = 0; k < ops.length; k++) {
+                final int arg = args[k];
+                final int x = arg & ADDRESS_MASK;
+                switch (ops[k]) {
+                    case OP_LODD -> ac = m[x];
+                    case OP_STOD -> mem.store(x, ac);
+                    case OP_ADDD -> ac = (short) (ac + m[x]);
+                    case OP_SUBD -> ac = (short) (ac - m[x]);
+                    case OP_LOCO -> ac = x;
+                    case OP_LODL -> ac = m[(sp + x) & ADDRESS_MASK];
+                    case OP_STOL -> mem.store((sp + x) & ADDRESS_MASK, ac);
+                    case OP_ADDL -> ac = (short) (ac + m[(sp + x) & ADDRESS_MASK]);
+                    case OP_SUBL -> ac = (short) (ac - m[(sp + x) & ADDRESS_MASK]);
+                    case OP_PSHI -> {
+                        sp = (short) (sp - 1);
+                        mem.store(sp & ADDRESS_MASK, m[ac & ADDRESS_MASK]);
+                    }
+                    case OP_POPI -> {
+                        mem.store(ac & ADDRESS_MASK, m[sp & ADDRESS_MASK]);
+                        sp = (short) (sp + 1);
+                    }
+                    case OP_PUSH -> {
+                        sp = (short) (sp - 1);
+                        mem.store(sp & ADDRESS_MASK, ac);
+                    }
+                    case OP_POP -> {
+                        ac = m[sp & ADDRESS_MASK];
+                        sp = (short) (sp + 1);
+                    }
+                    case OP_SWAP -> {
+                        int tmp = ac;
+                        ac = sp;
+                        sp = tmp;
+                    }
+                    case OP_INSP -> sp = (short) (sp + arg);
+                    case OP_DESP -> sp = (short) (sp - arg);
+                    case BasicBlockCache.FUSED_LODD_ADDD -> ac = (short) (m[x] + m[arg >>> 12]);
+                    case BasicBlockCache.FUSED_LODD_SUBD -> ac = (short) (m[x] - m[arg >>> 12]);
+                    case BasicBlockCache.FUSED_ADDD_STOD -> {
+                        ac = (short) (ac + m[x]);
+                        mem.store(arg >>> 12, ac);
+                    }
+                    case BasicBlockCache.FUSED_SUBD_STOD -> {
+                        ac = (short) (ac - m[x]);
+                        mem.store(arg >>> 12, ac);
+                    }
+                    default -> { // FUSED_LOCO_STOD
+                        ac = x;
+                        mem.store(arg >>> 12, ac);
+                    }
+                }
+                if (mem.codeVersion != version) {
+                    // Uma escrita atingiu código compilado: sai do bloco logo após ela.
+                    pc = block.next[k];
+                    ir = block.words[k];
+                    n += pc - block.start;
+                    continue outer;
+                }
+            }
+
+            // Terminador: desvio, CALL ou RETN (ou apenas o fim do bloco).
+            n += block.length();
+            ir = block.lastWord;
+            final int target = block.target;
+            switch (block.terminator) {
+                case OP_JPOS -> pc = ac >= 0 ? target : block.end;
+                case OP_JZER -> pc = ac == 0 ? target : block.end;
+                case OP_JUMP -> pc = target;
+                case OP_JNEG -> pc = ac < 0 ? target : block.end;
+                case OP_JNZE -> pc = ac != 0 ? target : block.end;
+                case OP_CALL -> {
+                    sp = (short) (sp - 1);
+                    mem.store(sp & ADDRESS_MASK, block.end);
+                    pc = target;
+                }
+                case OP_RETN -> {
+                    pc = m[sp & ADDRESS_MASK];
+                    sp = (short) (sp + 1);
+                }
+                default -> pc = block.end;
+            }
+            if (pc == block.end - 1 && block.terminator != OP_CALL && block.terminator != OP_RETN) {
+                haltReason = HaltReason.SELF_LOOP;
+                break;
+            }
+        }
+
+        this.pc = pc;
+        this.ac = ac;
+        this.sp = sp;
+        this.ir = ir;
+        return n;
+    }
+
+    /**
+     * Executa o programa compilado para bytecode pelo {@link JitCompiler}.
+     *
+     * O programa é compilado na primeira chamada, a partir do PC corrente.
+     * O código gerado devolve o controle nos casos que ele não trata:
+     * <ul>
+     * <li>o próximo bloco não cabe no orçamento: o restante é interpretado,
+     *     para que a contagem de passos seja exata;</li>
+     * <li>o PC não é a entrada de um bloco compilado (ex: RETN para um
+     *     endereço calculado): o endereço vira uma nova entrada e o programa
+     *     é recompilado;</li>
+     * <li>uma escrita atingiu o código compilado: o código é descartado e o
+     *     restante é interpretado; a próxima chamada recompila.</li>
+     * </ul>
+     * Depois de {@link #MAX_JIT_COMPILES} compilações (programas muito
+     * automodificáveis) ou se o programa for grande demais, a CPU passa a
+     * usar apenas o interpretador até o próximo reset.
+     */
+    private long runJit(long maxSteps) {
+        final MainMemory mem = memory;
+        if (jit == null) {
+            jit = new JitCompiler(mem);
+        }
+        final int[] regs = jitRegs;
+        long n = 0;
+
+        while (n < maxSteps && haltReason == HaltReason.NONE) {
+            // Escritas fora do código gerado (interpretador, interface) também invalidam.
+            if (jitCode != null && mem.codeVersion != jitVersion) {
+                discardJit();
+            }
+            if (jitCode == null) {
+                if ((pc & ADDRESS_MASK) != pc || !compileJit(pc)) {
+                    n += interpret(maxSteps - n);
+                    break;
+                }
+            }
+            regs[JitCompiler.REG_PC] = pc;
+            regs[JitCompiler.REG_AC] = ac;
+            regs[JitCompiler.REG_SP] = sp;
+            regs[JitCompiler.REG_IR] = ir;
+            n += jitCode.run(regs, mem.words(), mem, (int) Math.min(maxSteps - n, Integer.MAX_VALUE));
+            pc = regs[JitCompiler.REG_PC];
+            ac = regs[JitCompiler.REG_AC];
+            sp = regs[JitCompiler.REG_SP];
+            ir = regs[JitCompiler.REG_IR];
+
+            switch (regs[JitCompiler.REG_EXIT]) {
+                case JitCompiler.EXIT_HALT -> haltReason = HaltReason.SELF_LOOP;
+                case JitCompiler.EXIT_MISS -> {
+                    if ((pc & ADDRESS_MASK) == pc && jitCompiles < MAX_JIT_COMPILES) {
+                        discardJit();
+                    } else if (n < maxSteps) {
+                        n += interpret(1);
+                    }
+                }
+                case JitCompiler.EXIT_CODE_WRITTEN -> {
+                    discardJit();
+                    n += interpret(maxSteps - n);
+                }
+                default -> n += interpret(maxSteps - n); // EXIT_BUDGET
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Compila o programa com {@code entry} como nova entrada.
+     *
+     * @return false se o limite de compilações foi atingido ou o programa
+     *         não pôde ser compilado.
+     */
+    private boolean compileJit(int entry) {
+        if (jitCompiles >= MAX_JIT_COMPILES) {
+            return false;
+        }
+        jitCompiles++;
+        jitEntries[entry] = true;
+        int count = 0;
+        for (boolean isEntry : jitEntries) {
+            if (isEntry) count++;
+        }
+        int[] entries = new int[count];
+        count = 0;
+        for (int address = 0; address < jitEntries.length; address++) {
+            if (jitEntries[address]) entries[count++] = address;
+        }
+        jitCode = jit.compile(entries);
+        jitVersion = memory.codeVersion;
+        if (jitCode == null) {
+            jitCompiles = MAX_JIT_COMPILES;
+            return false;
+        }
+        return true;
+    }
+
+    /** Descarta o programa compilado pelo JIT e o seu mapa de código. */
+    private void discardJit() {
+        jitCode = null;
+        memory.clearCodeMap();
+    }
+
+    /**
+     * Executa macroinstruções no caminho de dados microprogramado e copia
+     * os registradores do scratchpad de volta para os campos da CPU.
+     */
+    private long runMicro(long maxSteps) {
+        long n = datapath.runInstructions(memory, maxSteps);
+        pullFromDatapath();
+        if (datapath.isSelfLoop()) {
+            haltReason = HaltReason.SELF_LOOP;
+        }
+        return n;
+    }
+
+    /**
+     * Avança o caminho de dados em um subciclo do relógio (modo MICRO,
+     * execução passo-a-passo). Não faz nada no modo MACRO.
+     */
+    public void stepSubcycle() {
+        if (memory == null || mode != ExecutionMode.MICRO || haltReason != HaltReason.NONE) {
+            return;
+        }
+        datapath.stepSubcycle(memory);
+        pullFromDatapath();
+        if (datapath.isAtInstructionBoundary()) {
+            steps++;
+            if (datapath.isSelfLoop()) {
+                haltReason = HaltReason.SELF_LOOP;
+            }
+        }
+        publish();
+    }
+
+    /** Copia PC, AC, SP e IR do scratchpad para os campos da CPU. */
+    private void pullFromDatapath() {
+        pc = datapath.getRegister(MicroDatapath.REG_PC);
+        ac = datapath.getRegister(MicroDatapath.REG_AC);
+        sp = datapath.getRegister(MicroDatapath.REG_SP);
+        ir = datapath.getRegister(MicroDatapath.REG_IR);
+    }
+
+    /**
+     * Coloca os registradores no estado inicial (PC = 0, AC = 0, SP = 4095).
+     * Não altera o conteúdo da memória.
+     */
+    public void reset() {
+        pc = 0;
+        ac = 0;
+        sp = INITIAL_SP;
+        ir = 0;
+        steps = 0;
+        haltReason = HaltReason.NONE;
+        breakpointHit = null;
+        resumeAtBreakpoint = false;
+        if (history != null) {
+            history.clear();
+        }
+        if (profiler != null) {
+            profiler.clear();
+        }
+        datapath.reset();
+        // O código gerado pelo JIT continua válido enquanto a versão do
+        // código da memória não mudar; se mudou (novo programa), as entradas
+        // conhecidas também são esquecidas.
+        if (memory != null && memory.codeVersion != jitVersion) {
+            jitCode = null;
+            Arrays.fill(jitEntries, false);
+        }
+        jitCompiles = 0;
+        publish();
+    }
+
+    /**
+     * Publica os registradores, o número de passos e o motivo da parada para
+     * a thread do JavaFX (escritas voláteis, sem travas).
+     */
+    private void publish() {
+        publishedSteps = steps;
+        publishedHalt = haltReason;
+        publishedRegisters = pack(pc, ac, sp, ir);
+    }
+
+    private static long pack(int pc, int ac, int sp, int ir) {
+        return (pc & 0xFFFFL) | (ac & 0xFFFFL) << 16 | (sp & 0xFFFFL) << 32 | (ir & 0xFFFFL) << 48;
+    }
+
+    /**
+     * Copia o último instantâneo publicado para as propriedades JavaFX.
+     * Deve ser chamado na thread do JavaFX (uma vez por quadro); nunca
+     * bloqueia a thread da simulação.
+     */
+    public void refreshView() {
+        long steps = publishedSteps;
+        HaltReason halt = publishedHalt;
+        long registers = publishedRegisters;
+        if (registers != shownRegisters) {
+            shownRegisters = registers;
+            pcView.set((short) registers);
+            acView.set((short) (registers >>> 16));
+            spView.set((short) (registers >>> 32));
+            irView.set((short) (registers >>> 48));
+        }
+        stepsView.set(steps);
+        haltView.set(halt);
+    }
 
-    // TODO: Adicionar os getters para as Properties (para o Controller fazer bind)
-    // public IntegerProperty pcProperty() { return pc; }
-    // public IntegerProperty acProperty() { return ac; }
-}
\ No newline at end of file
+    /**
+     * Troca o modo de execução. Ao entrar no modo MICRO, os registradores
+     * correntes são carregados no scratchpad e o microprograma recomeça
+     * no ciclo de busca.
+     *
+     * O mapa de código da memória pertence ao modo compilado corrente (BLOCK
+     * ou JIT); ao trocar de modo, os blocos e o código JIT são descartados.
+     */
+    public void setExecutionMode(ExecutionMode mode) {
+        if (mode == ExecutionMode.MICRO && this.mode != ExecutionMode.MICRO) {
+            datapath.load(pc, ac, sp, ir);
+        }
+        if (mode != this.mode && memory != null) {
+            blockCache = null;
+            jitCode = null;
+            memory.clearCodeMap();
+        }
+        this.mode = mode;
+    }
+
+    public ExecutionMode getExecutionMode() { return mode; }
+
+    /** Caminho de dados do modo MICRO (para exibição dos registradores internos). */
+    public MicroDatapath getDatapath() { return datapath; }
+
+    /** Ciclos de relógio (microinstruções) executados no modo MICRO. */
+    public long getMicroCycles() { return datapath.getMicroCycles(); }
+
+    /**
+     * Decodifica a palavra de instrução no identificador interno do opcode.
+     *
+     * Os opcodes 0000-1110 usam apenas o nibble superior. As instruções com
+     * prefixo 1111 são distinguidas pelos três bits seguintes (bits 11-9),
+     * exatamente como faz o microprograma do MIC-1.
+     *
+     * @param word a palavra de 16 bits lida da memória.
+     * @return um dos valores OP_*.
+     */
+    static int decodeOpcode(int word) {
+        int top4 = (word >>> 12) & 0xF;
+        if (top4 != 0xF) {
+            return top4;
+        }
+        return OP_PSHI + ((word >>> 9) & 0x7);
+    }
+
+    // --- Getters e Setters dos registradores ---
+
+    public int getPc() { return pc; }
+    public void setPc(int value) { pc = (short) value; resumeAtBreakpoint = false; registersEdited(); }
+    public int getAc() { return ac; }
+    public void setAc(int value) { ac = (short) value; registersEdited(); }
+    public int getSp() { return sp; }
+    public void setSp(int value) { sp = (short) value; registersEdited(); }
+    public int getIr() { return ir; }
+    public long getSteps() { return steps; }
+    public HaltReason getHaltReason() { return haltReason; }
+    public boolean isHalted() { return haltReason != HaltReason.NONE; }
+
+    /** Breakpoints e watchpoints desta CPU. */
+    public Breakpoints getBreakpoints() { return breakpoints; }
+
+    /** Ponto de parada que interrompeu a última chamada de run(), ou null. */
+    public Breakpoints.Hit getBreakpointHit() { return breakpointHit; }
+
+    // --- Propriedades para a UI (atualizadas por refreshView()) ---
+
+    public ReadOnlyIntegerProperty pcProperty() { return pcView.getReadOnlyProperty(); }
+    public ReadOnlyIntegerProperty acProperty() { return acView.getReadOnlyProperty(); }
+    public ReadOnlyIntegerProperty spProperty() { return spView.getReadOnlyProperty(); }
+    public ReadOnlyIntegerProperty irProperty() { return irView.getReadOnlyProperty(); }
+    public ReadOnlyLongProperty stepsProperty() { return stepsView.getReadOnlyProperty(); }
+    public ReadOnlyObjectProperty<HaltReason> haltReasonProperty() { return haltView.getReadOnlyProperty(); }
+
+    /**
+     * Um registrador foi alterado de fora da execução: o histórico deixa de
+     * ser válido (desfazer passaria por estados que nunca existiram).
+     */
+    private void registersEdited() {
+        if (history != null) {
+            history.clear();
+        }
+        syncDatapath();
+        publish();
+    }
+
+    /** Mantém o scratchpad coerente quando um registrador é alterado no modo MICRO. */
+    private void syncDatapath() {
+        if (mode == ExecutionMode.MICRO) {
+            datapath.load(pc, ac, sp, ir);
+        }
+    }
+}
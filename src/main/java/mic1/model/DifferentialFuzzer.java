@@ -0,0 +1,181 @@
+package mic1.model;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Teste diferencial do montador e dos modos de execução da CPU, com
+ * programas do {@link ProgramGenerator}.
+ *
+ * {@link #check(List)} monta o programa de três jeitos (texto inteiro,
+ * {@link java.io.Reader} e montagem incremental depois de uma edição) e
+ * compara as imagens e as tabelas de símbolos; depois o executa, com um
+ * limite de passos, em cada modo ({@link CPU.ExecutionMode}) e compara o
+ * estado final (parada, passos, PC, AC, SP e cada palavra da memória) com o
+ * do interpretador (MACRO).
+ *
+ * {@link #shrink(List)} reduz um programa que falha removendo linhas,
+ * primeiro em blocos grandes e depois uma a uma, enquanto a mesma falha se
+ * repetir.
+ *
+ * Cada instância tem suas próprias máquinas (uma por modo) e não é
+ * thread-safe: use uma por thread.
+ */
+public final class DifferentialFuzzer {
+
+    private static final CPU.ExecutionMode[] MODES = CPU.ExecutionMode.values();
+
+    private final long maxSteps;
+    private final Assembler assembler = new Assembler();
+    private final MainMemory[] memories = new MainMemory[MODES.length];
+    private final CPU[] cpus = new CPU[MODES.length];
+
+    /**
+     * @param maxSteps limite de instruções de cada execução.
+     */
+    public DifferentialFuzzer(long maxSteps) {
+        this.maxSteps = maxSteps;
+        for (int i = 0; i < MODES.length; i++) {
+            memories[i] = new MainMemory();
+            cpus[i] = new CPU();
+            cpus[i].linkMemory(memories[i]);
+            cpus[i].setExecutionMode(MODES[i]);
+        }
+    }
+
+    /**
+     * Monta e executa o programa em todos os modos.
+     *
+     * @return as diferenças encontradas, uma por item, cada uma começando
+     *         pelo que falhou ("montagem", "Reader", "incremental" ou o
+     *         modo); vazia se tudo bateu.
+     */
+    public List<String> check(List<String> lines) {
+        String text = String.join("\n", lines) + "\n";
+        Assembler.Program program;
+        try {
+            program = assembler.assemble(text);
+        } catch (AssemblyException e) {
+            return List.of("montagem: " + e.getMessage());
+        }
+
+        List<String> differences = new ArrayList<>();
+        try {
+            compare(differences, "Reader", program, assembler.assemble(new StringReader(text)));
+        } catch (AssemblyException | IOException e) {
+            differences.add("Reader: " + e.getMessage());
+        }
+        checkIncremental(differences, lines, text, program);
+        if (!differences.isEmpty()) {
+            return differences;
+        }
+
+        // Todos os modos partem da mesma memória; o interpretador é a referência.
+        ProgramSuite.Expected[] results = new ProgramSuite.Expected[MODES.length];
+        MainMemory.Snapshot initial = null;
+        for (int i = 0; i < MODES.length; i++) {
+            memories[i].load(program.image, program.length);
+            if (initial == null) {
+                initial = memories[i].snapshot();
+            }
+            cpus[i].reset();
+            cpus[i].run(maxSteps);
+            results[i] = ProgramSuite.Expected.of(cpus[i], memories[i], initial);
+        }
+        for (int i = 1; i < MODES.length; i++) {
+            for (String difference : results[0].differences(results[i])) {
+                differences.add(MODES[i] + ": " + difference);
+            }
+        }
+        return differences;
+    }
+
+    /**
+     * Monta de novo com o {@link IncrementalAssembler} depois de duas edições
+     * (uma linha removida e recolocada, o que muda a forma do programa, e um
+     * comentário acrescentado, que não muda) e compara com a montagem inteira.
+     */
+    private void checkIncremental(List<String> differences, List<String> lines, String text,
+                                  Assembler.Program expected) {
+        IncrementalAssembler incremental = new IncrementalAssembler();
+        int edited = lines.size() / 2;
+        List<String> edit = new ArrayList<>(lines);
+        try {
+            edit.remove(edited);
+            update(incremental, edit);
+            compare(differences, "incremental", expected, incremental.update(text));
+            edit = new ArrayList<>(lines);
+            edit.set(edited, lines.get(edited) + " / editado");
+            update(incremental, edit);
+            compare(differences, "incremental", expected, incremental.update(text));
+        } catch (AssemblyException e) {
+            differences.add("incremental: " + e.getMessage());
+        }
+    }
+
+    /** Aplica uma edição intermediária, que pode não montar (ex: um label removido). */
+    private static void update(IncrementalAssembler incremental, List<String> lines) {
+        try {
+            incremental.update(String.join("\n", lines) + "\n");
+        } catch (AssemblyException e) {
+            // Só o texto final precisa montar.
+        }
+    }
+
+    private static void compare(List<String> differences, String what,
+                                Assembler.Program expected, Assembler.Program actual) {
+        if (!Arrays.equals(expected.getImage(), actual.getImage())) {
+            differences.add(what + ": imagem diferente da montagem do texto inteiro");
+        }
+        if (!expected.symbols.equals(actual.symbols)) {
+            differences.add(what + ": símbolos " + actual.symbols + ", esperado " + expected.symbols);
+        }
+    }
+
+    /**
+     * Reduz um programa que falha no {@link #check(List)} ao menor que
+     * ainda falha do mesmo jeito (mesmo modo ou etapa da montagem; numa
+     * falha de montagem, a mesma mensagem), removendo linhas.
+     *
+     * @return o programa reduzido (o próprio, se ele não falhar).
+     */
+    public List<String> shrink(List<String> lines) {
+        String failure = failureOf(check(lines));
+        if (failure == null) {
+            return lines;
+        }
+        List<String> current = lines;
+        for (int chunk = Math.max(1, current.size() / 2); chunk >= 1; chunk /= 2) {
+            int start = 0;
+            while (start < current.size()) {
+                List<String> candidate = new ArrayList<>(current.subList(0, start));
+                candidate.addAll(current.subList(Math.min(current.size(), start + chunk), current.size()));
+                if (!candidate.isEmpty() && failure.equals(failureOf(check(candidate)))) {
+                    current = candidate;
+                } else {
+                    start += chunk;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * O que falhou: o prefixo da primeira diferença (ou, numa falha de
+     * montagem, a mensagem sem a posição); null se não houve falha.
+     */
+    private static String failureOf(List<String> differences) {
+        if (differences.isEmpty()) {
+            return null;
+        }
+        String first = differences.get(0);
+        if (first.startsWith("montagem: ")) {
+            int position = first.indexOf(" (linha ");
+            return position >= 0 ? first.substring(0, position) : first;
+        }
+        return first.substring(0, first.indexOf(':'));
+    }
+}
@@ -0,0 +1,183 @@
+package mic1.model;
+
+import java.util.Arrays;
+
+/**
+ * Histórico de execução para a execução reversa (passo para trás).
+ *
+ * Antes de cada instrução, a CPU grava os registradores (PC, AC, SP e IR,
+ * 16 bits cada, empacotados em um long) e, se a instrução escreve na
+ * memória, o endereço e o valor antigo da palavra (um int). Os dois são
+ * buffers circulares de tipos primitivos: com a capacidade padrão, as
+ * últimas 10^7 instruções ocupam 80 MB de registradores mais 10 MB de
+ * escritas.
+ *
+ * Não é preciso gravar qual instrução foi executada: depois dela, o IR
+ * contém exatamente a palavra executada, e o opcode diz se ela escreveu na
+ * memória. Assim, desfazer a última instrução é ler o opcode do IR atual,
+ * restaurar a palavra escrita (se houver) e os registradores.
+ *
+ * A cada {@link #SNAPSHOT_INTERVAL} instruções também é guardado um
+ * instantâneo da memória ({@link MainMemory.Snapshot}, que só copia as
+ * páginas que mudaram desde o anterior), para que um salto longo para trás
+ * ({@link CPU#rewindTo(long)}) seja feito restaurando o instantâneo mais
+ * próximo e executando de novo só o trecho que falta, em vez de desfazer
+ * instrução por instrução.
+ *
+ * Os passos são numerados como {@link CPU#getSteps()}: o registro do passo
+ * {@code k} é o estado da CPU quando {@code getSteps() == k}.
+ */
+public class ExecutionHistory {
+
+    /** Número padrão de instruções que podem ser desfeitas. */
+    public static final int DEFAULT_CAPACITY = 10_000_000;
+
+    /** Instruções entre dois instantâneos completos da memória. */
+    static final int SNAPSHOT_INTERVAL = 1 << 16;
+
+    /** Registradores antes de cada passo (ver {@link #pack}). */
+    private final long[] registers;
+
+    /** Escritas na memória: {@code endereço << 16 | valor antigo (16 bits)}. */
+    private final int[] writes;
+
+    /** Passos gravados: [firstStep, endStep). */
+    private long firstStep;
+    private long endStep;
+
+    /** Escritas gravadas (índices absolutos): [firstWrite, endWrite). */
+    private long firstWrite;
+    private long endWrite;
+
+    // --- Instantâneos (buffer circular, indexado por passo / SNAPSHOT_INTERVAL) ---
+    private final MainMemory.Snapshot[] snapshotMemory;
+    private final long[] snapshotRegisters;
+    private final long[] snapshotStep;
+    private final long[] snapshotWrite;
+
+    public ExecutionHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity número de instruções que podem ser desfeitas. O
+     *                 buffer de escritas tem um quarto desse tamanho; em um
+     *                 programa que escreve em mais de 1/4 das instruções, o
+     *                 histórico alcança proporcionalmente menos passos.
+     */
+    public ExecutionHistory(int capacity) {
+        registers = new long[capacity];
+        writes = new int[Math.max(1, capacity / 4)];
+        int snapshots = capacity / SNAPSHOT_INTERVAL + 2;
+        snapshotMemory = new MainMemory.Snapshot[snapshots];
+        snapshotRegisters = new long[snapshots];
+        snapshotStep = new long[snapshots];
+        snapshotWrite = new long[snapshots];
+        clear();
+    }
+
+    /** Esquece todo o histórico. */
+    public void clear() {
+        firstStep = endStep = 0;
+        firstWrite = endWrite = 0;
+        Arrays.fill(snapshotStep, -1);
+        Arrays.fill(snapshotMemory, null);
+    }
+
+    /** Número de passos que podem ser desfeitos a partir do passo {@code step}. */
+    public long available(long step) {
+        return step == endStep ? endStep - firstStep : 0;
+    }
+
+    /** O passo mais antigo ao qual ainda é possível voltar. */
+    public long oldestStep() {
+        return firstStep;
+    }
+
+    static long pack(int pc, int ac, int sp, int ir) {
+        return (pc & 0xFFFFL) | (ac & 0xFFFFL) << 16 | (sp & 0xFFFFL) << 32 | (ir & 0xFFFFL) << 48;
+    }
+
+    /**
+     * Grava o estado antes do passo {@code step}. Um passo fora de sequência
+     * (a CPU executou sem gravar, ou voltou sem desfazer) recomeça o histórico.
+     *
+     * @param memory a memória (para os instantâneos).
+     */
+    void record(long step, long packedRegisters, MainMemory memory) {
+        if (step != endStep) {
+            clear();
+            firstStep = endStep = step;
+        }
+        registers[(int) (endStep % registers.length)] = packedRegisters;
+        endStep++;
+        if (endStep - firstStep > registers.length) {
+            firstStep++;
+        }
+        if (step % SNAPSHOT_INTERVAL == 0) {
+            int slot = (int) ((step / SNAPSHOT_INTERVAL) % snapshotStep.length);
+            snapshotMemory[slot] = memory.snapshot();
+            snapshotRegisters[slot] = packedRegisters;
+            snapshotStep[slot] = step;
+            snapshotWrite[slot] = endWrite;
+        }
+    }
+
+    /** Grava o valor antigo de uma palavra escrita pelo passo gravado por último. */
+    void recordWrite(int address, int oldValue) {
+        writes[(int) (endWrite % writes.length)] = address << 16 | (oldValue & 0xFFFF);
+        endWrite++;
+        if (endWrite - firstWrite > writes.length) {
+            firstWrite++;
+        }
+    }
+
+    /**
+     * Indica se o passo anterior a {@code step} pode ser desfeito.
+     *
+     * @param wrote se a instrução desse passo escreveu na memória.
+     */
+    boolean canUndo(long step, boolean wrote) {
+        return step == endStep && endStep > firstStep && (!wrote || endWrite > firstWrite);
+    }
+
+    /** Retira a última escrita gravada ({@code endereço << 16 | valor}). */
+    int popWrite() {
+        endWrite--;
+        return writes[(int) (endWrite % writes.length)];
+    }
+
+    /** Retira os registradores do último passo gravado. */
+    long popRegisters() {
+        endStep--;
+        return registers[(int) (endStep % registers.length)];
+    }
+
+    /**
+     * Procura o instantâneo mais recente em [oldestStep(), step] e, se
+     * existir, descarta o histórico posterior a ele.
+     *
+     * @return o índice do instantâneo, ou -1.
+     */
+    int truncateToSnapshot(long step) {
+        long target = step - step % SNAPSHOT_INTERVAL;
+        for (; target >= firstStep && target < endStep; target -= SNAPSHOT_INTERVAL) {
+            int slot = (int) ((target / SNAPSHOT_INTERVAL) % snapshotStep.length);
+            if (snapshotStep[slot] == target) {
+                endStep = target;
+                endWrite = snapshotWrite[slot];
+                if (endWrite < firstWrite) {
+                    // As escritas anteriores ao instantâneo já se perderam.
+                    firstWrite = endWrite;
+                    firstStep = target;
+                }
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    MainMemory.Snapshot snapshotMemory(int slot) { return snapshotMemory[slot]; }
+    long snapshotRegisters(int slot) { return snapshotRegisters[slot]; }
+    long snapshotStep(int slot) { return snapshotStep[slot]; }
+}
@@ -0,0 +1,216 @@
+package mic1.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Montagem incremental para a compilação "ao vivo" enquanto o usuário edita.
+ *
+ * Guarda o texto anterior e uma {@link Assembler.Line} já analisada por linha
+ * do código-fonte. A cada edição, compara o texto novo com o anterior (prefixo
+ * e sufixo em comum), analisa de novo apenas as linhas que mudaram e refaz a
+ * ligação (tabela de símbolos, endereços e operandos) sobre as linhas já
+ * analisadas, sem percorrer o texto inteiro.
+ *
+ * Quando a edição não muda a "forma" das linhas (mesmos labels e as mesmas
+ * linhas com instrução, caso típico de digitar dentro de um operando), a
+ * tabela de símbolos e os endereços continuam válidos: apenas as palavras
+ * das linhas editadas são refeitas no programa anterior.
+ */
+public class IncrementalAssembler {
+
+    private final Assembler assembler = new Assembler();
+
+    /** Texto da última atualização. */
+    private String text = "";
+
+    /** Linhas analisadas do texto corrente (sempre pelo menos uma). */
+    private final List<Assembler.Line> lines = new ArrayList<>();
+
+    /** Posição do início de cada linha em {@link #text}. */
+    private int[] lineStarts = new int[64];
+
+    /** Último programa montado sem erros (null após um erro). */
+    private Assembler.Program program;
+
+    /** Endereço da instrução de cada linha em {@link #program} (-1 se não houver). */
+    private int[] lineAddress = new int[64];
+
+    /** Linhas alteradas pela última edição, se ela manteve a forma das linhas. */
+    private int patchFirst = -1;
+    private int patchCount;
+
+    public IncrementalAssembler() {
+        Assembler.Line empty = new Assembler.Line();
+        empty.parse(text, 0, 0);
+        lines.add(empty);
+    }
+
+    /**
+     * Atualiza o texto e monta o programa.
+     *
+     * @param newText o código-fonte completo após a edição.
+     * @return o programa montado.
+     * @throws AssemblyException no primeiro erro encontrado.
+     */
+    public Assembler.Program update(String newText) throws AssemblyException {
+        patchFirst = -1;
+        if (!newText.equals(text)) {
+            reparse(newText);
+        }
+        if (program != null && patchFirst >= 0 && patch()) {
+            return program;
+        }
+        try {
+            program = assembler.link(lines);
+        } catch (AssemblyException e) {
+            program = null;
+            throw e;
+        }
+        indexAddresses();
+        return program;
+    }
+
+    /**
+     * Refaz no programa anterior as palavras das linhas alteradas.
+     *
+     * @return false se alguma linha tem erro ou um símbolo não definido
+     *         (a ligação completa reporta o erro).
+     */
+    private boolean patch() {
+        for (int i = patchFirst; i < patchFirst + patchCount; i++) {
+            Assembler.Line line = lines.get(i);
+            if (line.error != null || line.labelError != null) {
+                return false;
+            }
+            if (line.op >= 0 && line.symbolic && !program.symbols.containsKey(line.operand)) {
+                return false;
+            }
+        }
+        for (int i = patchFirst; i < patchFirst + patchCount; i++) {
+            Assembler.Line line = lines.get(i);
+            if (line.op < 0) {
+                continue;
+            }
+            int address = lineAddress[i];
+            int word = line.word;
+            int value = line.value;
+            if (line.symbolic) {
+                value = program.symbols.get(line.operand);
+                word |= value;
+            }
+            program.image[address] = (short) word;
+            program.mnemonics[address] = Assembler.mnemonic(line.op);
+            program.operands[address] = line.operand;
+            program.values[address] = value;
+        }
+        return true;
+    }
+
+    /** Recalcula o endereço da instrução de cada linha após uma ligação completa. */
+    private void indexAddresses() {
+        if (lineAddress.length < lines.size()) {
+            lineAddress = new int[Math.max(lines.size(), lineAddress.length * 2)];
+        }
+        int address = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            Assembler.Line line = lines.get(i);
+            lineAddress[i] = line.op >= 0 && !line.variable ? address++ : -1;
+        }
+    }
+
+    /** Indica se duas versões de uma linha definem os mesmos símbolos e palavras. */
+    private static boolean sameShape(Assembler.Line a, Assembler.Line b) {
+        return Objects.equals(a.label, b.label)
+                && a.variable == b.variable
+                && (a.op >= 0) == (b.op >= 0);
+    }
+
+    /**
+     * Analisa de novo as linhas afetadas pela diferença entre o texto
+     * anterior e {@code newText}.
+     */
+    private void reparse(String newText) {
+        String old = text;
+        int oldLength = old.length();
+        int newLength = newText.length();
+
+        // Prefixo e sufixo em comum (sem se sobreporem).
+        int prefix = 0;
+        int max = Math.min(oldLength, newLength);
+        while (prefix < max && old.charAt(prefix) == newText.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix
+                && old.charAt(oldLength - 1 - suffix) == newText.charAt(newLength - 1 - suffix)) {
+            suffix++;
+        }
+
+        // Linhas antigas [first, lastOld] contêm a região alterada.
+        int first = lineAt(prefix);
+        int lastOld = lineAt(oldLength - suffix);
+        int start = lineStarts[first];
+        int oldEnd = lastOld + 1 < lines.size() ? lineStarts[lastOld + 1] - 1 : oldLength;
+        int delta = newLength - oldLength;
+        int newEnd = oldEnd + delta;
+
+        // Analisa as linhas novas em [start, newEnd].
+        List<Assembler.Line> parsed = new ArrayList<>();
+        int[] parsedStarts = new int[8];
+        int pos = start;
+        while (true) {
+            int end = pos;
+            while (end < newEnd && newText.charAt(end) != '\n') {
+                end++;
+            }
+            Assembler.Line line = new Assembler.Line();
+            line.parse(newText, pos, end);
+            if (parsed.size() == parsedStarts.length) {
+                parsedStarts = Arrays.copyOf(parsedStarts, parsedStarts.length * 2);
+            }
+            parsedStarts[parsed.size()] = pos;
+            parsed.add(line);
+            if (end >= newEnd) {
+                break;
+            }
+            pos = end + 1;
+        }
+
+        // Substitui as linhas antigas e desloca o início das seguintes.
+        int removed = lastOld - first + 1;
+        int added = parsed.size();
+        int oldCount = lines.size();
+        int newCount = oldCount - removed + added;
+        int[] starts = newCount > lineStarts.length
+                ? Arrays.copyOf(lineStarts, Math.max(newCount, lineStarts.length * 2))
+                : lineStarts;
+        System.arraycopy(lineStarts, lastOld + 1, starts, first + added, oldCount - lastOld - 1);
+        for (int i = first + added; i < newCount; i++) {
+            starts[i] += delta;
+        }
+        System.arraycopy(parsedStarts, 0, starts, first, added);
+        lineStarts = starts;
+
+        boolean sameShape = added == removed;
+        for (int i = 0; sameShape && i < added; i++) {
+            sameShape = sameShape(lines.get(first + i), parsed.get(i));
+        }
+        if (sameShape) {
+            patchFirst = first;
+            patchCount = added;
+        }
+
+        lines.subList(first, lastOld + 1).clear();
+        lines.addAll(first, parsed);
+        text = newText;
+    }
+
+    /** Índice da linha (do texto anterior) que contém a posição {@code pos}. */
+    private int lineAt(int pos) {
+        int index = Arrays.binarySearch(lineStarts, 0, lines.size(), pos);
+        return index >= 0 ? index : -index - 2;
+    }
+}
@@ -0,0 +1,836 @@
+package mic1.model;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compilador JIT do modo {@link CPU.ExecutionMode#JIT}: traduz o programa
+ * carregado na {@link MainMemory} para bytecode da JVM e o carrega como uma
+ * classe oculta ({@code MethodHandles.Lookup.defineHiddenClass}).
+ *
+ * O código gerado é um único método {@link Code#run}, em que:
+ * <ul>
+ * <li>PC, AC, SP e IR são variáveis locais da JVM (o HotSpot as mantém em
+ *     registradores da máquina real);</li>
+ * <li>cada bloco básico vira um trecho de código em linha reta, e os desvios
+ *     viram desvios da JVM;</li>
+ * <li>desvios indiretos (RETN) e a entrada do método passam por um
+ *     {@code tableswitch} indexado pelo PC.</li>
+ * </ul>
+ *
+ * O código alcançável a partir do PC de entrada é descoberto seguindo o fluxo
+ * de controle. Esses endereços são marcados no mapa de código da memória: uma
+ * escrita neles (código automodificável) faz o método sair imediatamente e a
+ * CPU continua no interpretador. A contagem de passos é exata: cada bloco só
+ * executa se couber inteiro no orçamento restante.
+ *
+ * O JDK 21 ainda não tem a API pública de ClassFile, então a classe é escrita
+ * por um emissor mínimo (versão 50 do formato, que dispensa o atributo
+ * StackMapTable). Programas cujo método passaria do limite de tamanho que o
+ * HotSpot compila ({@link #MAX_CODE_SIZE}) não são compilados.
+ */
+public class JitCompiler {
+
+    /**
+     * Interface implementada pela classe gerada.
+     */
+    interface Code {
+        /**
+         * Executa o programa compilado.
+         *
+         * @param regs PC, AC, SP, IR e o motivo de saída (EXIT_*), lidos e
+         *             gravados pelo método.
+         * @param m o array de backend da memória.
+         * @param memory a memória (para escritas e a versão do código).
+         * @param budget o número máximo de instruções a executar.
+         * @return o número de instruções executadas.
+         */
+        int run(int[] regs, int[] m, MainMemory memory, int budget);
+    }
+
+    // --- Posições do array de registradores passado ao código gerado ---
+    static final int REG_PC = 0;
+    static final int REG_AC = 1;
+    static final int REG_SP = 2;
+    static final int REG_IR = 3;
+    static final int REG_EXIT = 4;
+
+    // --- Motivos de saída do código gerado ---
+    /** O próximo bloco não cabe no orçamento de passos. */
+    static final int EXIT_BUDGET = 0;
+    /** Desvio tomado para o próprio endereço. */
+    static final int EXIT_HALT = 1;
+    /** Uma escrita atingiu o código compilado. */
+    static final int EXIT_CODE_WRITTEN = 2;
+    /** O PC não é a entrada de um bloco compilado. */
+    static final int EXIT_MISS = 3;
+
+    /** Tamanho máximo do método gerado (limite de métodos "enormes" do HotSpot). */
+    static final int MAX_CODE_SIZE = 7999;
+
+    /** Número máximo de instruções em um bloco. */
+    private static final int MAX_BLOCK_LENGTH = 64;
+
+    /** Nome interno da classe gerada (precisa estar no pacote deste Lookup). */
+    private static final String CLASS_NAME = "mic1/model/JitProgram";
+
+    // --- Variáveis locais do método gerado ---
+    private static final int L_REGS = 1;
+    private static final int L_MEM_ARRAY = 2;
+    private static final int L_MEMORY = 3;
+    private static final int L_BUDGET = 4;
+    private static final int L_LEFT = 5;
+    private static final int L_PC = 6;
+    private static final int L_AC = 7;
+    private static final int L_SP = 8;
+    private static final int L_IR = 9;
+    private static final int L_VERSION = 10;
+    private static final int L_EXIT = 11;
+    private static final int L_TMP = 12;
+
+    // --- Índices do constant pool (ver writeClass) ---
+    private static final int CP_THIS = 2;
+    private static final int CP_OBJECT = 4;
+    private static final int CP_CODE_INTERFACE = 6;
+    private static final int CP_INIT = 7;
+    private static final int CP_VOID_DESC = 8;
+    private static final int CP_OBJECT_INIT = 10;
+    private static final int CP_CODE_ATTR = 11;
+    private static final int CP_RUN = 12;
+    private static final int CP_RUN_DESC = 13;
+    private static final int CP_STORE = 19;
+    private static final int CP_CODE_VERSION = 23;
+
+    // --- Opcodes da JVM usados pelo emissor ---
+    private static final int ICONST_0 = 0x03;
+    private static final int ICONST_1 = 0x04;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int ILOAD = 0x15;
+    private static final int ALOAD = 0x19;
+    private static final int IALOAD = 0x2E;
+    private static final int ISTORE = 0x36;
+    private static final int IASTORE = 0x4F;
+    private static final int IADD = 0x60;
+    private static final int ISUB = 0x64;
+    private static final int IAND = 0x7E;
+    private static final int IINC = 0x84;
+    private static final int I2S = 0x93;
+    private static final int IFEQ = 0x99;
+    private static final int IFNE = 0x9A;
+    private static final int IFLT = 0x9B;
+    private static final int IFGE = 0x9C;
+    private static final int IF_ICMPNE = 0xA0;
+    private static final int IF_ICMPLT = 0xA1;
+    private static final int GOTO = 0xA7;
+    private static final int TABLESWITCH = 0xAA;
+    private static final int IRETURN = 0xAC;
+    private static final int RETURN = 0xB1;
+    private static final int GETFIELD = 0xB4;
+    private static final int INVOKEVIRTUAL = 0xB6;
+    private static final int INVOKESPECIAL = 0xB7;
+    private static final int ALOAD_0 = 0x2A;
+
+    private final MainMemory memory;
+
+    /**
+     * Cria um compilador para o programa carregado em uma memória.
+     */
+    public JitCompiler(MainMemory memory) {
+        this.memory = memory;
+    }
+
+    /**
+     * Compila o código alcançável a partir dos endereços de entrada.
+     *
+     * @param entries endereços de entrada (0-4095).
+     * @return o código carregado, ou {@code null} se o programa for grande
+     *         demais para um único método.
+     */
+    Code compile(int[] entries) {
+        int[] words = memory.words();
+        boolean[] reachable = new boolean[MainMemory.MEMORY_SIZE];
+        boolean[] leader = new boolean[MainMemory.MEMORY_SIZE];
+        discover(words, entries, reachable, leader);
+
+        byte[] code = emitMethod(words, reachable, leader);
+        if (code == null) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup()
+                    .defineHiddenClass(writeClass(code), true);
+            Code program = (Code) lookup
+                    .findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+            for (int address = 0; address < reachable.length; address++) {
+                if (reachable[address]) {
+                    memory.markCode(address, address + 1);
+                }
+            }
+            return program;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Falha ao carregar o código gerado pelo JIT", e);
+        }
+    }
+
+    /**
+     * Segue o fluxo de controle a partir das entradas, marcando os endereços
+     * alcançáveis e os inícios de bloco (entradas, destinos de desvio e
+     * instruções que seguem um desvio, CALL ou RETN).
+     */
+    private static void discover(int[] words, int[] entries, boolean[] reachable, boolean[] leader) {
+        int[] work = new int[MainMemory.MEMORY_SIZE * 2 + entries.length];
+        int top = 0;
+        for (int entry : entries) {
+            leader[entry] = true;
+            work[top++] = entry;
+        }
+        while (top > 0) {
+            int address = work[--top];
+            while (address < MainMemory.MEMORY_SIZE && !reachable[address]) {
+                reachable[address] = true;
+                int word = words[address];
+                int op = CPU.decodeOpcode(word);
+                int target = word & CPU.ADDRESS_MASK;
+                if (BasicBlockCache.endsBlock(op)) {
+                    if (op != CPU.OP_RETN) {
+                        leader[target] = true;
+                        work[top++] = target;
+                    }
+                    if (address + 1 < MainMemory.MEMORY_SIZE) {
+                        leader[address + 1] = true;
+                    }
+                    if (op == CPU.OP_JUMP || op == CPU.OP_RETN) {
+                        break;
+                    }
+                }
+                address++;
+            }
+        }
+    }
+
+    /**
+     * Gera o bytecode do método {@code run}. Retorna {@code null} se passar
+     * de {@link #MAX_CODE_SIZE}.
+     */
+    private static byte[] emitMethod(int[] words, boolean[] reachable, boolean[] leader) {
+        Emitter e = new Emitter();
+        int low = -1;
+        int high = -1;
+        for (int address = 0; address < MainMemory.MEMORY_SIZE; address++) {
+            if (reachable[address]) {
+                if (low < 0) {
+                    low = address;
+                }
+                high = address;
+            }
+        }
+
+        // Divide os endereços alcançáveis em blocos e marca o início de cada um.
+        int[] blockLabel = new int[MainMemory.MEMORY_SIZE];
+        Arrays.fill(blockLabel, -1);
+        List<int[]> blocks = new ArrayList<>();
+        for (int address = low; address <= high; ) {
+            if (!reachable[address]) {
+                address++;
+                continue;
+            }
+            int start = address;
+            do {
+                int op = CPU.decodeOpcode(words[address]);
+                address++;
+                if (BasicBlockCache.endsBlock(op)) {
+                    break;
+                }
+            } while (address <= high && reachable[address] && !leader[address]
+                    && address - start < MAX_BLOCK_LENGTH);
+            blockLabel[start] = e.newLabel();
+            blocks.add(new int[] {start, address});
+        }
+
+        int exitLabel = e.newLabel();
+        int missLabel = e.newLabel();
+        int dispatchLabel = e.newLabel();
+        e.dispatch = dispatchLabel;
+
+        // Prólogo: copia os registradores para variáveis locais.
+        e.load(ILOAD, L_BUDGET);
+        e.store(ISTORE, L_LEFT);
+        e.loadReg(REG_PC, L_PC);
+        e.loadReg(REG_AC, L_AC);
+        e.loadReg(REG_SP, L_SP);
+        e.loadReg(REG_IR, L_IR);
+        e.load(ALOAD, L_MEMORY);
+        e.op(GETFIELD);
+        e.u2(CP_CODE_VERSION);
+        e.store(ISTORE, L_VERSION);
+        e.op(ICONST_0);
+        e.store(ISTORE, L_EXIT);
+
+        // Despacho indireto: tableswitch pelo PC.
+        e.bind(dispatchLabel);
+        e.load(ILOAD, L_PC);
+        int[] targets = new int[high - low + 1];
+        for (int address = low; address <= high; address++) {
+            targets[address - low] = blockLabel[address] >= 0 ? blockLabel[address] : missLabel;
+        }
+        e.tableswitch(missLabel, low, high, targets);
+
+        List<Runnable> stubs = new ArrayList<>();
+        for (int b = 0; b < blocks.size(); b++) {
+            int start = blocks.get(b)[0];
+            int end = blocks.get(b)[1];
+            int length = end - start;
+            e.bind(blockLabel[start]);
+
+            // O bloco só executa se couber inteiro no orçamento.
+            int budgetStub = e.newLabel();
+            e.load(ILOAD, L_LEFT);
+            e.push(length);
+            e.jump(IF_ICMPLT, budgetStub);
+            stubs.add(() -> e.exitStub(budgetStub, 0, start, -1, EXIT_BUDGET, exitLabel));
+            e.iinc(L_LEFT, -length);
+
+            int lastOp = -1;
+            for (int address = start; address < end; address++) {
+                int word = words[address];
+                int op = CPU.decodeOpcode(word);
+                int x = word & CPU.ADDRESS_MASK;
+                lastOp = op;
+                if (address == end - 1) {
+                    e.push((short) word);
+                    e.store(ISTORE, L_IR);
+                }
+                boolean stores = emitInstruction(e, op, word, x, address, blockLabel, exitLabel, stubs);
+                if (stores) {
+                    // Escrita em código compilado: sai logo após a instrução.
+                    int stub = e.newLabel();
+                    int remaining = end - address - 1;
+                    int resume = address + 1;
+                    e.load(ALOAD, L_MEMORY);
+                    e.op(GETFIELD);
+                    e.u2(CP_CODE_VERSION);
+                    e.load(ILOAD, L_VERSION);
+                    e.jump(IF_ICMPNE, stub);
+                    stubs.add(() -> e.exitStub(stub, remaining, resume, (short) word,
+                            EXIT_CODE_WRITTEN, exitLabel));
+                }
+            }
+
+            // Fim do bloco sem desvio incondicional: segue para a próxima instrução.
+            if (lastOp != CPU.OP_JUMP && lastOp != CPU.OP_RETN && lastOp != CPU.OP_CALL) {
+                boolean nextIsAdjacent = b + 1 < blocks.size() && blocks.get(b + 1)[0] == end;
+                if (!nextIsAdjacent) {
+                    int stub = e.newLabel();
+                    e.jump(GOTO, stub);
+                    stubs.add(() -> e.exitStub(stub, 0, end, -1, EXIT_MISS, exitLabel));
+                }
+            }
+        }
+
+        for (Runnable stub : stubs) {
+            stub.run();
+        }
+
+        // Despacho sem bloco compilado: devolve o controle ao interpretador.
+        e.bind(missLabel);
+        e.push(EXIT_MISS);
+        e.store(ISTORE, L_EXIT);
+
+        // Epílogo: grava os registradores e retorna os passos executados.
+        e.bind(exitLabel);
+        e.storeReg(REG_PC, L_PC);
+        e.storeReg(REG_AC, L_AC);
+        e.storeReg(REG_SP, L_SP);
+        e.storeReg(REG_IR, L_IR);
+        e.storeReg(REG_EXIT, L_EXIT);
+        e.load(ILOAD, L_BUDGET);
+        e.load(ILOAD, L_LEFT);
+        e.op(ISUB);
+        e.op(IRETURN);
+
+        return e.finish(MAX_CODE_SIZE);
+    }
+
+    /**
+     * Emite o bytecode de uma macroinstrução.
+     *
+     * @return {@code true} se a instrução escreve na memória (e precisa do
+     *         teste de versão do código logo depois).
+     */
+    private static boolean emitInstruction(Emitter e, int op, int word, int x, int address,
+                                           int[] blockLabel, int exitLabel, List<Runnable> stubs) {
+        switch (op) {
+            case CPU.OP_LODD -> {
+                e.readMemoryConst(x);
+                e.store(ISTORE, L_AC);
+            }
+            case CPU.OP_STOD -> {
+                e.load(ALOAD, L_MEMORY);
+                e.push(x);
+                e.load(ILOAD, L_AC);
+                e.invokeStore();
+                return true;
+            }
+            case CPU.OP_ADDD, CPU.OP_SUBD -> {
+                e.load(ILOAD, L_AC);
+                e.readMemoryConst(x);
+                e.op(op == CPU.OP_ADDD ? IADD : ISUB);
+                e.op(I2S);
+                e.store(ISTORE, L_AC);
+            }
+            case CPU.OP_LOCO -> {
+                e.push(x);
+                e.store(ISTORE, L_AC);
+            }
+            case CPU.OP_LODL -> {
+                e.load(ALOAD, L_MEM_ARRAY);
+                e.localAddress(x);
+                e.op(IALOAD);
+                e.store(ISTORE, L_AC);
+            }
+            case CPU.OP_STOL -> {
+                e.load(ALOAD, L_MEMORY);
+                e.localAddress(x);
+                e.load(ILOAD, L_AC);
+                e.invokeStore();
+                return true;
+            }
+            case CPU.OP_ADDL, CPU.OP_SUBL -> {
+                e.load(ILOAD, L_AC);
+                e.load(ALOAD, L_MEM_ARRAY);
+                e.localAddress(x);
+                e.op(IALOAD);
+                e.op(op == CPU.OP_ADDL ? IADD : ISUB);
+                e.op(I2S);
+                e.store(ISTORE, L_AC);
+            }
+            case CPU.OP_JPOS, CPU.OP_JZER, CPU.OP_JNEG, CPU.OP_JNZE -> {
+                int condition = switch (op) {
+                    case CPU.OP_JPOS -> IFGE;
+                    case CPU.OP_JZER -> IFEQ;
+                    case CPU.OP_JNEG -> IFLT;
+                    default -> IFNE;
+                };
+                e.load(ILOAD, L_AC);
+                e.jump(condition, branchTarget(e, x, address, blockLabel, exitLabel, stubs));
+            }
+            case CPU.OP_JUMP -> e.jump(GOTO, branchTarget(e, x, address, blockLabel, exitLabel, stubs));
+            case CPU.OP_CALL -> {
+                e.addToSp(-1);
+                e.load(ALOAD, L_MEMORY);
+                e.maskedLocal(L_SP);
+                e.push(address + 1);
+                e.invokeStore();
+                emitCallJump(e, x, word, blockLabel, exitLabel, stubs);
+            }
+            case CPU.OP_PSHI -> {
+                e.addToSp(-1);
+                e.load(ALOAD, L_MEMORY);
+                e.maskedLocal(L_SP);
+                e.load(ALOAD, L_MEM_ARRAY);
+                e.maskedLocal(L_AC);
+                e.op(IALOAD);
+                e.invokeStore();
+                return true;
+            }
+            case CPU.OP_POPI -> {
+                e.load(ALOAD, L_MEMORY);
+                e.maskedLocal(L_AC);
+                e.load(ALOAD, L_MEM_ARRAY);
+                e.maskedLocal(L_SP);
+                e.op(IALOAD);
+                e.invokeStore();
+                e.addToSp(1);
+                return true;
+            }
+            case CPU.OP_PUSH -> {
+                e.addToSp(-1);
+                e.load(ALOAD, L_MEMORY);
+                e.maskedLocal(L_SP);
+                e.load(ILOAD, L_AC);
+                e.invokeStore();
+                return true;
+            }
+            case CPU.OP_POP -> {
+                e.load(ALOAD, L_MEM_ARRAY);
+                e.maskedLocal(L_SP);
+                e.op(IALOAD);
+                e.store(ISTORE, L_AC);
+                e.addToSp(1);
+            }
+            case CPU.OP_RETN -> {
+                e.load(ALOAD, L_MEM_ARRAY);
+                e.maskedLocal(L_SP);
+                e.op(IALOAD);
+                e.store(ISTORE, L_PC);
+                e.addToSp(1);
+                e.jump(GOTO, e.dispatchLabel());
+            }
+            case CPU.OP_SWAP -> {
+                e.load(ILOAD, L_AC);
+                e.store(ISTORE, L_TMP);
+                e.load(ILOAD, L_SP);
+                e.store(ISTORE, L_AC);
+                e.load(ILOAD, L_TMP);
+                e.store(ISTORE, L_SP);
+            }
+            case CPU.OP_INSP -> e.addToSp(word & 0xFF);
+            default -> e.addToSp(-(word & 0xFF)); // OP_DESP
+        }
+        return false;
+    }
+
+    /**
+     * Depois da escrita do CALL: sai se a escrita atingiu código compilado
+     * (com o PC já no destino) e, senão, desvia para o bloco de destino.
+     */
+    private static void emitCallJump(Emitter e, int x, int word, int[] blockLabel,
+                                     int exitLabel, List<Runnable> stubs) {
+        int stub = e.newLabel();
+        e.load(ALOAD, L_MEMORY);
+        e.op(GETFIELD);
+        e.u2(CP_CODE_VERSION);
+        e.load(ILOAD, L_VERSION);
+        e.jump(IF_ICMPNE, stub);
+        stubs.add(() -> e.exitStub(stub, 0, x, (short) word, EXIT_CODE_WRITTEN, exitLabel));
+        if (blockLabel[x] >= 0) {
+            e.jump(GOTO, blockLabel[x]);
+        } else {
+            int miss = e.newLabel();
+            e.jump(GOTO, miss);
+            stubs.add(() -> e.exitStub(miss, 0, x, -1, EXIT_MISS, exitLabel));
+        }
+    }
+
+    /**
+     * Rótulo de destino de um desvio tomado: o bloco do destino, ou um stub
+     * de parada quando o desvio é para o próprio endereço.
+     */
+    private static int branchTarget(Emitter e, int x, int address, int[] blockLabel,
+                                    int exitLabel, List<Runnable> stubs) {
+        if (x == address) {
+            int stub = e.newLabel();
+            stubs.add(() -> e.exitStub(stub, 0, x, -1, EXIT_HALT, exitLabel));
+            return stub;
+        }
+        if (blockLabel[x] >= 0) {
+            return blockLabel[x];
+        }
+        int stub = e.newLabel();
+        stubs.add(() -> e.exitStub(stub, 0, x, -1, EXIT_MISS, exitLabel));
+        return stub;
+    }
+
+    /**
+     * Monta o arquivo .class com o construtor padrão e o método {@code run}.
+     */
+    private static byte[] writeClass(byte[] runCode) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(runCode.length + 512);
+        ClassWriter w = new ClassWriter(out);
+        w.u4(0xCAFEBABE);
+        w.u2(0);
+        w.u2(50);
+
+        // Constant pool (os índices são as constantes CP_*).
+        w.u2(24);
+        w.utf8(CLASS_NAME);                      // 1
+        w.classRef(1);                           // 2  CP_THIS
+        w.utf8("java/lang/Object");              // 3
+        w.classRef(3);                           // 4  CP_OBJECT
+        w.utf8("mic1/model/JitCompiler$Code");   // 5
+        w.classRef(5);                           // 6  CP_CODE_INTERFACE
+        w.utf8("<init>");                        // 7  CP_INIT
+        w.utf8("()V");                           // 8  CP_VOID_DESC
+        w.nameAndType(7, 8);                     // 9
+        w.memberRef(10, 4, 9);                   // 10 CP_OBJECT_INIT
+        w.utf8("Code");                          // 11 CP_CODE_ATTR
+        w.utf8("run");                           // 12 CP_RUN
+        w.utf8("([I[ILmic1/model/MainMemory;I)I"); // 13 CP_RUN_DESC
+        w.utf8("mic1/model/MainMemory");         // 14
+        w.classRef(14);                          // 15
+        w.utf8("store");                         // 16
+        w.utf8("(II)V");                         // 17
+        w.nameAndType(16, 17);                   // 18
+        w.memberRef(10, 15, 18);                 // 19 CP_STORE
+        w.utf8("codeVersion");                   // 20
+        w.utf8("I");                             // 21
+        w.nameAndType(20, 21);                   // 22
+        w.memberRef(9, 15, 22);                  // 23 CP_CODE_VERSION
+
+        w.u2(0x0031);             // ACC_PUBLIC | ACC_FINAL | ACC_SUPER
+        w.u2(CP_THIS);
+        w.u2(CP_OBJECT);
+        w.u2(1);
+        w.u2(CP_CODE_INTERFACE);
+        w.u2(0);                  // campos
+
+        w.u2(2);                  // métodos
+        byte[] init = {(byte) ALOAD_0, (byte) INVOKESPECIAL, 0, (byte) CP_OBJECT_INIT, (byte) RETURN};
+        w.method(CP_INIT, CP_VOID_DESC, 1, 1, init);
+        w.method(CP_RUN, CP_RUN_DESC, 8, L_TMP + 1, runCode);
+
+        w.u2(0);                  // atributos da classe
+        return out.toByteArray();
+    }
+
+    /**
+     * Emissor de bytecode com rótulos e correção de deslocamentos.
+     */
+    private static final class Emitter {
+        private byte[] code = new byte[1024];
+        private int size;
+        private final List<Integer> labelPositions = new ArrayList<>();
+        /** Pendências: {posição a corrigir, posição da instrução, rótulo, largura}. */
+        private final List<int[]> fixups = new ArrayList<>();
+        /** Rótulo do tableswitch de despacho. */
+        private int dispatch;
+
+        int newLabel() {
+            labelPositions.add(-1);
+            return labelPositions.size() - 1;
+        }
+
+        void bind(int label) {
+            labelPositions.set(label, size);
+        }
+
+        int dispatchLabel() {
+            return dispatch;
+        }
+
+        void op(int opcode) {
+            ensure(1);
+            code[size++] = (byte) opcode;
+        }
+
+        void u2(int value) {
+            ensure(2);
+            code[size++] = (byte) (value >>> 8);
+            code[size++] = (byte) value;
+        }
+
+        void u4(int value) {
+            u2(value >>> 16);
+            u2(value & 0xFFFF);
+        }
+
+        void load(int opcode, int local) {
+            op(opcode);
+            op(local);
+        }
+
+        void store(int opcode, int local) {
+            op(opcode);
+            op(local);
+        }
+
+        void push(int value) {
+            if (value >= -128 && value <= 127) {
+                op(BIPUSH);
+                op(value & 0xFF);
+            } else {
+                op(SIPUSH);
+                u2(value & 0xFFFF);
+            }
+        }
+
+        void iinc(int local, int delta) {
+            op(IINC);
+            op(local);
+            op(delta & 0xFF);
+        }
+
+        void loadReg(int index, int local) {
+            load(ALOAD, L_REGS);
+            push(index);
+            op(IALOAD);
+            store(ISTORE, local);
+        }
+
+        void storeReg(int index, int local) {
+            load(ALOAD, L_REGS);
+            push(index);
+            load(ILOAD, local);
+            op(IASTORE);
+        }
+
+        /** Empilha m[x] para um endereço constante. */
+        void readMemoryConst(int x) {
+            load(ALOAD, L_MEM_ARRAY);
+            push(x);
+            op(IALOAD);
+        }
+
+        /** Empilha (SP + x) AND 0xFFF. */
+        void localAddress(int x) {
+            load(ILOAD, L_SP);
+            push(x);
+            op(IADD);
+            push(CPU.ADDRESS_MASK);
+            op(IAND);
+        }
+
+        /** Empilha local AND 0xFFF. */
+        void maskedLocal(int local) {
+            load(ILOAD, local);
+            push(CPU.ADDRESS_MASK);
+            op(IAND);
+        }
+
+        /** SP := (short) (SP + delta). */
+        void addToSp(int delta) {
+            load(ILOAD, L_SP);
+            push(delta);
+            op(IADD);
+            op(I2S);
+            store(ISTORE, L_SP);
+        }
+
+        void invokeStore() {
+            op(INVOKEVIRTUAL);
+            u2(CP_STORE);
+        }
+
+        void jump(int opcode, int label) {
+            int at = size;
+            op(opcode);
+            fixups.add(new int[] {size, at, label, 2});
+            u2(0);
+        }
+
+        void tableswitch(int defaultLabel, int low, int high, int[] labels) {
+            int at = size;
+            op(TABLESWITCH);
+            while (size % 4 != 0) {
+                op(0);
+            }
+            fixups.add(new int[] {size, at, defaultLabel, 4});
+            u4(0);
+            u4(low);
+            u4(high);
+            for (int label : labels) {
+                fixups.add(new int[] {size, at, label, 4});
+                u4(0);
+            }
+        }
+
+        /**
+         * Stub de saída: devolve passos não executados ao orçamento, fixa PC,
+         * IR (se {@code ir != -1}) e o motivo, e desvia para o epílogo.
+         */
+        void exitStub(int label, int refund, int pc, int ir, int reason, int exitLabel) {
+            bind(label);
+            if (refund != 0) {
+                iinc(L_LEFT, refund);
+            }
+            push(pc);
+            store(ISTORE, L_PC);
+            if (ir != -1) {
+                push(ir);
+                store(ISTORE, L_IR);
+            }
+            push(reason);
+            store(ISTORE, L_EXIT);
+            jump(GOTO, exitLabel);
+        }
+
+        /**
+         * Resolve os rótulos e retorna o bytecode, ou {@code null} se o
+         * tamanho passar do limite.
+         */
+        byte[] finish(int limit) {
+            if (size > limit) {
+                return null;
+            }
+            for (int[] fixup : fixups) {
+                int offset = labelPositions.get(fixup[2]) - fixup[1];
+                if (fixup[3] == 2) {
+                    code[fixup[0]] = (byte) (offset >>> 8);
+                    code[fixup[0] + 1] = (byte) offset;
+                } else {
+                    code[fixup[0]] = (byte) (offset >>> 24);
+                    code[fixup[0] + 1] = (byte) (offset >>> 16);
+                    code[fixup[0] + 2] = (byte) (offset >>> 8);
+                    code[fixup[0] + 3] = (byte) offset;
+                }
+            }
+            return Arrays.copyOf(code, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > code.length) {
+                code = Arrays.copyOf(code, code.length * 2);
+            }
+        }
+    }
+
+    /**
+     * Escritor das estruturas do arquivo .class.
+     */
+    private static final class ClassWriter {
+        private final ByteArrayOutputStream out;
+
+        ClassWriter(ByteArrayOutputStream out) {
+            this.out = out;
+        }
+
+        void u1(int value) {
+            out.write(value);
+        }
+
+        void u2(int value) {
+            out.write(value >>> 8);
+            out.write(value);
+        }
+
+        void u4(int value) {
+            u2(value >>> 16);
+            u2(value & 0xFFFF);
+        }
+
+        void utf8(String text) {
+            byte[] bytes = text.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+            u1(1);
+            u2(bytes.length);
+            out.writeBytes(bytes);
+        }
+
+        void classRef(int nameIndex) {
+            u1(7);
+            u2(nameIndex);
+        }
+
+        void nameAndType(int nameIndex, int descriptorIndex) {
+            u1(12);
+            u2(nameIndex);
+            u2(descriptorIndex);
+        }
+
+        void memberRef(int tag, int classIndex, int nameAndTypeIndex) {
+            u1(tag);
+            u2(classIndex);
+            u2(nameAndTypeIndex);
+        }
+
+        void method(int nameIndex, int descriptorIndex, int maxStack, int maxLocals, byte[] code) {
+            u2(0x0001);           // ACC_PUBLIC
+            u2(nameIndex);
+            u2(descriptorIndex);
+            u2(1);
+            u2(CP_CODE_ATTR);
+            u4(12 + code.length);
+            u2(maxStack);
+            u2(maxLocals);
+            u4(code.length);
+            out.writeBytes(code);
+            u2(0);                // exception_table_length
+            u2(0);                // atributos do Code
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package mic1.model;
 
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
-import javafx.collections.FXCollections;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
 import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Arrays;
+import java.util.Objects;
 
 /**
  * Modelo (Model) que representa a Memória Principal do simulador MIC-1.
@@ -13,6 +16,13 @@ import java.util.Arrays;
  * e também fornece uma representação de dados observável (ObservableList)
  * para a interface gráfica (TableView), realizando a decodificação
  * das instruções para exibição.
+ *
+ * Também oferece instantâneos imutáveis do conteúdo ({@link Snapshot}),
+ * divididos em páginas de 64 palavras: um instantâneo novo só copia as
+ * páginas que mudaram desde o anterior e compartilha as demais, e
+ * {@link #restore(Snapshot)} só copia de volta as páginas que diferem.
+ * As páginas alteradas são descobertas comparando o conteúdo (uma varredura
+ * de 16 KB), sem nenhum custo nas escritas da CPU.
  */
 public class MainMemory {
 
@@ -23,144 +33,240 @@ public class MainMemory {
     private final int[] memoryArray;
     
     /** Lista observável que serve como fonte de dados para a TableView da UI. */
-    private final ObservableList<MemoryEntry> memoryData;
+    private final ObservableList<MemoryEntry> memoryData = new MemoryList();
+
+    /**
+     * Revisão do conteúdo exibido: incrementada sempre que valores visíveis
+     * na TableView mudam. As células observam esta propriedade e releem o
+     * valor do endereço (ver {@link MemoryEntry}).
+     */
+    private final ReadOnlyIntegerWrapper revision = new ReadOnlyIntegerWrapper();
+
+    /**
+     * Bitmap (1 bit por endereço) das posições escritas que ainda não foram
+     * refletidas na TableView. Ver {@link #refreshView()}.
+     *
+     * A thread da simulação marca os bits sem travas (uma operação atômica
+     * só quando o bit ainda não está marcado, isto é, no máximo uma vez por
+     * endereço a cada quadro); a thread do JavaFX os recolhe uma vez por
+     * quadro. Nenhuma das duas espera pela outra.
+     */
+    private final long[] pendingView = new long[MEMORY_SIZE / Long.SIZE];
+
+    /** Acesso atômico às palavras de {@link #pendingView}. */
+    private static final VarHandle PENDING = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * Cache de instruções pré-decodificadas, uma entrada por endereço.
+     * Cada entrada empacota {@code DECODED_VALID | opcode << 16 | palavra},
+     * de onde a CPU tira o operando (12 ou 8 bits inferiores) e o IR;
+     * o valor 0 indica uma entrada inválida, que será decodificada na próxima
+     * busca. Toda escrita no endereço invalida a entrada.
+     */
+    private final int[] decoded = new int[MEMORY_SIZE];
+
+    /** Bit que marca uma entrada válida no cache de instruções decodificadas. */
+    static final int DECODED_VALID = 1 << 31;
+
+    /**
+     * Mapa de código (1 bit por endereço): posições cobertas por blocos
+     * compilados (ver {@link BasicBlockCache}). Uma escrita em uma dessas
+     * posições incrementa {@link #codeVersion} e amplia a faixa suja.
+     */
+    private final long[] codeMap = new long[MEMORY_SIZE / Long.SIZE];
+
+    /** Versão do código; muda a cada escrita em um endereço do mapa de código. */
+    int codeVersion;
+
+    /** Faixa (inclusiva) de endereços de código escritos desde a última limpeza. */
+    int codeDirtyLow = MEMORY_SIZE;
+    int codeDirtyHigh = -1;
+
+    /** Palavras por página dos instantâneos (uma palavra de bitmap). */
+    private static final int PAGE_SIZE = Long.SIZE;
+
+    /** Número de páginas ({@code MEMORY_SIZE / PAGE_SIZE} = 64, um bit cada). */
+    private static final int PAGES = MEMORY_SIZE / PAGE_SIZE;
+
+    /** Último instantâneo tirado (as páginas iguais são compartilhadas com ele). */
+    private Snapshot last;
+
+    /** Instantâneo tirado ao carregar o último programa (ver {@link #reload()}). */
+    private Snapshot loaded;
+
+    /**
+     * Contadores de acesso do mapa de calor (null = desligados). Ligados na
+     * thread do JavaFX; a CPU relê o campo a cada chamada de run().
+     */
+    private volatile MemoryActivity activity;
+
+    /**
+     * Cópia imutável do conteúdo da memória em um instante.
+     *
+     * As páginas nunca são alteradas depois de criadas, então instantâneos
+     * diferentes (e memórias diferentes) podem compartilhá-las, e um
+     * instantâneo pode ser restaurado em qualquer memória (na thread que a
+     * altera, ver {@link MainMemory#restore}).
+     */
+    public static final class Snapshot {
+
+        private final int[][] pages;
+
+        private Snapshot(int[][] pages) {
+            this.pages = pages;
+        }
+
+        /** O valor de 16 bits (com extensão de sinal) de um endereço. */
+        public int read(int address) {
+            Objects.checkIndex(address, MEMORY_SIZE);
+            return pages[address / PAGE_SIZE][address % PAGE_SIZE];
+        }
+    }
 
     /**
      * Classe interna que representa uma única linha (uma entrada) na TableView da memória.
      *
-     * Esta classe é responsável por pegar um valor de 16 bits da memória
-     * e formatá-lo em múltiplas representações (Endereço, Binário, Decimal, Hex)
-     * para exibição. Ela contém a lógica de "disassembly" para a UI.
+     * A entrada é apenas uma "janela" (flyweight) sobre um endereço: não
+     * guarda o valor nem textos formatados. Binário, decimal e hexadecimal são
+     * calculados a partir de {@code memoryArray} quando a TableView pede o
+     * valor, ou seja, só para as linhas visíveis. Ela contém a lógica de
+     * "disassembly" para a UI.
      */
     public static class MemoryEntry {
-        
-        /** Propriedades JavaFX para data binding com as colunas da TableView. */
-        private final SimpleStringProperty address = new SimpleStringProperty();
-        private final SimpleStringProperty binaryValue = new SimpleStringProperty();
-        private final SimpleStringProperty decimalValue = new SimpleStringProperty();
-        private final SimpleStringProperty hexValue = new SimpleStringProperty();
+
+        /** Memória de onde o valor é lido. */
+        private final MainMemory memory;
+
+        /** Endereço (0-4095) desta entrada. */
+        private final int address;
 
         /**
          * Constrói uma nova entrada de memória.
+         * @param memory A memória de onde o valor é lido.
          * @param address O endereço desta entrada (0-4095).
-         * @param value O valor inicial de 16 bits neste endereço.
          */
-        public MemoryEntry(int address, int value) {
-            update(address, value); 
+        MemoryEntry(MainMemory memory, int address) {
+            this.memory = memory;
+            this.address = address;
+        }
+
+        /** O valor de 16 bits (com extensão de sinal) atualmente no endereço. */
+        public int getValue() {
+            return memory.memoryArray[address];
+        }
+
+        /** Endereço formatado com 4 dígitos decimais (ex: "0042"). */
+        public String getAddress() {
+            return String.format("%04d", address);
+        }
+
+        /** A palavra completa de 16 bits em binário (Complemento de 2). */
+        public String getBinaryValue() {
+            return formatBinary(getValue());
+        }
+
+        /** O operando decodificado, em decimal. */
+        public String getDecimalValue() {
+            return String.valueOf(decodeOperand(getValue(), true));
+        }
+
+        /** O operando decodificado, em hexadecimal com 4 dígitos. */
+        public String getHexValue() {
+            return String.format("%04X", decodeOperand(getValue(), false));
         }
 
         /**
-         * Atualiza as propriedades de exibição com base em um novo valor de 16 bits.
-         * Contém a lógica de decodificação para extrair o operando.
+         * Extrai o operando de uma instrução para as colunas Decimal e Hex.
          *
          * @param value O valor de 16 bits (armazenado como int) lido da memória.
+         * @param signed Se o operando de LOCO deve ter extensão de sinal
+         *               (coluna Decimal) ou ser exibido bruto (coluna Hex).
+         * @return O operando (0 para instruções sem operando).
          */
-        public void updateValue(int value) {
-            int instruction = value; 
-            
-            // Define o valor binário bruto (a palavra completa de 16 bits)
-            this.binaryValue.set(formatBinary(instruction));
-
-            // Inicia a decodificação para as colunas Decimal e Hex
-            int unsignedValue = Short.toUnsignedInt((short) instruction);
+        static int decodeOperand(int value, boolean signed) {
+            int unsignedValue = Short.toUnsignedInt((short) value);
             int top4bits = (unsignedValue >> 12) & 0xF; // Opcode principal
             int top8bits = (unsignedValue >> 8) & 0xFF; // Para opcodes estendidos
 
-            int operandForDecimal = 0; // Valor final para a coluna Decimal
-            int operandForHex = 0;     // Valor final para a coluna Hex
-
             // CASO 1: Instrução com operando 'x' de 12 bits (Opcodes 0000-1110)
-            if (top4bits <= 14) { 
+            if (top4bits <= 14) {
                 int operand12 = unsignedValue & 0xFFF; // Isola os 12 bits do operando
-                operandForHex = operand12; // Hex exibe o valor bruto (ex: 0FFF)
 
                 // Lógica de Complemento de 2:
                 // Apenas o opcode 0111 (LOCO) trata o operando como assinado.
                 // Outros (LODD, STOD, JUMP) o tratam como um endereço (sem sinal).
-                if (top4bits == 7) { // 0111 == LOCO
-                    // Faz a extensão de sinal de 12 bits para 32 bits
-                    if ((operand12 & 0x800) != 0) { // Verifica o bit de sinal (12º bit)
-                        operandForDecimal = operand12 | 0xFFFFF000; // Negativo (ex: -1)
-                    } else {
-                        operandForDecimal = operand12; // Positivo (ex: 5)
-                    }
-                } else {
-                    // Trata o operando como um endereço (sempre positivo)
-                    operandForDecimal = operand12; // Exibe 4095 como 4095
+                // Hex exibe sempre o valor bruto (ex: 0FFF).
+                if (signed && top4bits == 7 && (operand12 & 0x800) != 0) {
+                    return operand12 | 0xFFFFF000; // Negativo (ex: -1)
                 }
-            } 
+                return operand12;
+            }
             // CASO 2: Instrução com operando 'y' de 8 bits (INSP, DESP)
-            else if (top8bits == 0xFC || top8bits == 0xFE) {
-                int operand8 = unsignedValue & 0xFF; // Isola os 8 bits do operando
-                operandForHex = operand8; 
-                
-                // Operandos 'y' são sempre sem sinal (0-255)
-                operandForDecimal = operand8;
+            // Operandos 'y' são sempre sem sinal (0-255)
+            if (top8bits == 0xFC || top8bits == 0xFE) {
+                return unsignedValue & 0xFF;
             }
             // CASO 3: Instrução sem operando (PUSH, POP, etc.)
-            else {
-                operandForDecimal = 0;
-                operandForHex = 0;
-            }
-
-            // Define os valores finais processados para a UI
-            this.decimalValue.set(String.valueOf(operandForDecimal));
-            this.hexValue.set(String.format("%04X", operandForHex));
+            return 0;
         }
-        
-        /**
-         * Atualiza o endereço e o valor desta entrada.
-         * @param address O endereço (formatado como decimal).
-         * @param value O novo valor de 16 bits.
-         */
-        public void update(int address, int value) {
-            this.address.set(String.format("%04d", address)); 
-            updateValue(value);
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof MemoryEntry entry
+                    && entry.memory == memory && entry.address == address;
         }
 
-        /**
-         * Métodos Getters e de Propriedade (Property Methods).
-         * Utilizados pelo PropertyValueFactory no Controller para
-         * vincular (bind) as colunas da TableView a esta instância.
-         */
-        public String getAddress() { return address.get(); }
-        public StringProperty addressProperty() { return address; }
-        public String getBinaryValue() { return binaryValue.get(); }
-        public StringProperty binaryValueProperty() { return binaryValue; }
-        public String getDecimalValue() { return decimalValue.get(); }
-        public StringProperty decimalValueProperty() { return decimalValue; }
-        public String getHexValue() { return hexValue.get(); }
-        public StringProperty hexValueProperty() { return hexValue; }
+        @Override
+        public int hashCode() {
+            return address;
+        }
     }
 
     /**
-     * Constrói o modelo da Memória Principal.
-     * Inicializa o array de backend e a lista observável da UI.
+     * Lista observável de tamanho fixo (uma entrada por endereço) para a
+     * TableView. As entradas são criadas sob demanda, conforme a tabela
+     * pede as linhas que vai exibir; a lista nunca muda de estrutura, e as
+     * mudanças de valor são avisadas por {@link #revisionProperty()}.
      */
-    public MainMemory() {
-        this.memoryArray = new int[MEMORY_SIZE];
-        this.memoryData = FXCollections.observableArrayList();
-        initializeMemory();
+    private final class MemoryList extends ObservableListBase<MemoryEntry> {
+
+        private final MemoryEntry[] entries = new MemoryEntry[MEMORY_SIZE];
+
+        @Override
+        public MemoryEntry get(int index) {
+            Objects.checkIndex(index, MEMORY_SIZE);
+            MemoryEntry entry = entries[index];
+            if (entry == null) {
+                entry = new MemoryEntry(MainMemory.this, index);
+                entries[index] = entry;
+            }
+            return entry;
+        }
+
+        @Override
+        public int size() {
+            return MEMORY_SIZE;
+        }
     }
 
     /**
-     * Preenche o array de memória com zeros e popula a
-     * lista observável (memoryData) com entradas de valor zero.
+     * Constrói o modelo da Memória Principal.
+     * Inicializa o array de backend (zerado); as entradas da UI são criadas
+     * sob demanda.
      */
-    private void initializeMemory() {
-        Arrays.fill(memoryArray, 0); 
-        memoryData.clear();
-        for (int i = 0; i < MEMORY_SIZE; i++) {
-            memoryData.add(new MemoryEntry(i, 0));
-        }
+    public MainMemory() {
+        this.memoryArray = new int[MEMORY_SIZE];
         System.out.println("Memória: Inicializada com " + MEMORY_SIZE + " posições.");
     }
 
     /**
      * Escreve um valor de 16 bits em um endereço de memória específico.
      *
-     * Este método atualiza tanto o array de backend (memoryArray) quanto a
-     * lista observável da UI (memoryData), disparando a atualização da TableView.
+     * Este método atualiza o array de backend (memoryArray) e marca o
+     * endereço como pendente; a TableView é atualizada no próximo
+     * {@link #refreshView()}. Como as demais alterações da memória, deve
+     * ser chamado na thread que executa a CPU (com a interface gráfica, a da
+     * simulação; ver {@link SimulationControls}).
      *
      * @param address O endereço (0-4095) onde o valor será escrito.
      * @param value O valor de 16 bits (passado como int, preservando o sinal).
@@ -171,9 +277,11 @@ public class MainMemory {
             throw new IndexOutOfBoundsException("Endereço de memória inválido: " + address);
         }
         memoryArray[address] = value;
-        if (address < memoryData.size()) {
-             memoryData.get(address).updateValue(value);
+        decoded[address] = 0;
+        if ((codeMap[address >>> 6] & (1L << address)) != 0) {
+            codeWritten(address, address);
         }
+        markPending(address);
     }
 
     /**
@@ -191,34 +299,272 @@ public class MainMemory {
     }
 
     /**
-     * Limpa todo o conteúdo da memória, zerando o array de backend e
-     * atualizando todas as entradas na lista observável para zero.
+     * Escrita interna usada pela CPU durante a execução.
+     *
+     * Não faz verificação de limites (a CPU já mascara o endereço para 12 bits)
+     * e não toca na UI: apenas marca o endereço como pendente, para que a
+     * TableView seja atualizada em lote por {@link #refreshView()}.
+     *
+     * @param address O endereço (0-4095), já mascarado.
+     * @param value O valor de 16 bits (com extensão de sinal).
+     */
+    void store(int address, int value) {
+        memoryArray[address] = value;
+        decoded[address] = 0;
+        if ((codeMap[address >>> 6] & (1L << address)) != 0) {
+            codeWritten(address, address);
+        }
+        markPending(address);
+    }
+
+    /** Marca um endereço para ser refletido na TableView. */
+    private void markPending(int address) {
+        int word = address >>> 6;
+        long bit = 1L << address;
+        if ((pendingView[word] & bit) == 0) {
+            PENDING.getAndBitwiseOr(pendingView, word, bit);
+        }
+    }
+
+    /**
+     * Registra uma escrita na faixa [low, high] do mapa de código.
+     */
+    private void codeWritten(int low, int high) {
+        codeVersion++;
+        codeDirtyLow = Math.min(codeDirtyLow, low);
+        codeDirtyHigh = Math.max(codeDirtyHigh, high);
+    }
+
+    /**
+     * Marca a faixa [start, end) como código compilado.
+     */
+    void markCode(int start, int end) {
+        for (int address = start; address < end; address++) {
+            codeMap[address >>> 6] |= 1L << address;
+        }
+    }
+
+    /**
+     * Desmarca a faixa [start, end) do mapa de código.
+     */
+    void unmarkCode(int start, int end) {
+        for (int address = start; address < end; address++) {
+            codeMap[address >>> 6] &= ~(1L << address);
+        }
+    }
+
+    /**
+     * Limpa só a faixa suja (o mapa de código fica como está).
+     */
+    void clearCodeDirty() {
+        codeDirtyLow = MEMORY_SIZE;
+        codeDirtyHigh = -1;
+    }
+
+    /**
+     * Limpa o mapa de código e a faixa suja.
+     */
+    void clearCodeMap() {
+        Arrays.fill(codeMap, 0);
+        codeDirtyLow = MEMORY_SIZE;
+        codeDirtyHigh = -1;
+    }
+
+    /**
+     * Retorna o cache de instruções decodificadas (ver {@link #decodeAt(int)}).
+     */
+    int[] decodedWords() {
+        return decoded;
+    }
+
+    /**
+     * Decodifica a palavra de um endereço e guarda o resultado no cache.
+     *
+     * @param address O endereço (0-4095), já mascarado.
+     * @return A entrada empacotada ({@code DECODED_VALID | opcode << 16 | palavra}).
+     */
+    int decodeAt(int address) {
+        int word = memoryArray[address];
+        int entry = DECODED_VALID | (CPU.decodeOpcode(word) << 16) | (word & 0xFFFF);
+        decoded[address] = entry;
+        return entry;
+    }
+
+    /**
+     * Retorna o array de backend. Usado apenas pela CPU (mesmo pacote),
+     * que lê a memória diretamente no laço de execução.
+     */
+    int[] words() {
+        return memoryArray;
+    }
+
+    /**
+     * Reflete na TableView os endereços escritos desde a última chamada (uma
+     * única atualização, por maior que seja o número de escritas). Deve ser
+     * chamado na thread do JavaFX, tipicamente uma vez por quadro.
+     */
+    public void refreshView() {
+        boolean dirty = false;
+        for (int word = 0; word < pendingView.length; word++) {
+            if ((long) PENDING.getOpaque(pendingView, word) != 0) {
+                PENDING.getAndSet(pendingView, word, 0L);
+                dirty = true;
+            }
+        }
+        if (dirty) {
+            revision.set(revision.get() + 1);
+        }
+    }
+
+    /**
+     * Limpa todo o conteúdo da memória, zerando o array de backend. Como
+     * {@link #write(int, int)}, deve ser chamado na thread que executa a
+     * CPU: todos os endereços ficam pendentes e a TableView é atualizada no
+     * próximo {@link #refreshView()}.
      */
     public void clearMemory() {
         Arrays.fill(memoryArray, 0); 
-        for (int i = 0; i < memoryData.size(); i++) {
-            memoryData.get(i).updateValue(0);
+        Arrays.fill(decoded, 0);
+        codeWritten(0, MEMORY_SIZE - 1);
+        for (int word = 0; word < pendingView.length; word++) {
+            PENDING.setVolatile(pendingView, word, -1L);
         }
         System.out.println("Memória: Limpa.");
     }
 
+    /**
+     * Carrega uma imagem binária (um programa montado) a partir do endereço 0,
+     * zerando o restante da memória. Substitui {@code clearMemory()} seguido de
+     * uma escrita por palavra: a TableView é atualizada uma única vez, no
+     * próximo {@link #refreshView()}. A imagem carregada é guardada em um
+     * instantâneo (ver {@link #reload()}). Como {@link #write(int, int)},
+     * deve ser chamado na thread que executa a CPU.
+     *
+     * @param image As palavras de 16 bits do programa.
+     * @param length O número de palavras válidas em {@code image}.
+     * @throws IllegalArgumentException Se o programa não couber na memória.
+     */
+    public void load(short[] image, int length) {
+        if (length > MEMORY_SIZE) {
+            throw new IllegalArgumentException("Programa com " + length
+                    + " palavras não cabe na memória (" + MEMORY_SIZE + ")");
+        }
+        for (int address = 0; address < length; address++) {
+            memoryArray[address] = image[address];
+        }
+        Arrays.fill(memoryArray, length, MEMORY_SIZE, 0);
+        Arrays.fill(decoded, 0);
+        loaded = snapshot();
+        codeWritten(0, MEMORY_SIZE - 1);
+        for (int word = 0; word < pendingView.length; word++) {
+            PENDING.setVolatile(pendingView, word, -1L);
+        }
+        System.out.println("Memória: Programa carregado (" + length + " palavras).");
+    }
+
+    /**
+     * Tira um instantâneo do conteúdo atual. Só as páginas que mudaram
+     * desde o último instantâneo são copiadas; as demais são compartilhadas
+     * com ele.
+     *
+     * Deve ser chamado na thread que escreve na memória (a da simulação,
+     * durante uma execução).
+     */
+    public Snapshot snapshot() {
+        int[][] pages = new int[PAGES][];
+        boolean changed = last == null;
+        for (int page = 0; page < PAGES; page++) {
+            int start = page * PAGE_SIZE;
+            if (last != null && Arrays.equals(memoryArray, start, start + PAGE_SIZE, last.pages[page], 0, PAGE_SIZE)) {
+                pages[page] = last.pages[page];
+            } else {
+                pages[page] = Arrays.copyOfRange(memoryArray, start, start + PAGE_SIZE);
+                changed = true;
+            }
+        }
+        if (changed) {
+            last = new Snapshot(pages);
+        }
+        return last;
+    }
+
+    /**
+     * Volta o conteúdo ao de um instantâneo (desta ou de outra memória).
+     * Só as páginas que diferem são copiadas (e só nelas o cache de
+     * decodificação e a TableView são invalidados). Como
+     * {@link #clearMemory()}, deve ser chamado na thread que executa a CPU;
+     * a TableView é atualizada no próximo {@link #refreshView()}.
+     */
+    public void restore(Snapshot snapshot) {
+        for (int page = 0; page < PAGES; page++) {
+            int start = page * PAGE_SIZE;
+            int[] words = snapshot.pages[page];
+            if (Arrays.equals(memoryArray, start, start + PAGE_SIZE, words, 0, PAGE_SIZE)) {
+                continue;
+            }
+            System.arraycopy(words, 0, memoryArray, start, PAGE_SIZE);
+            Arrays.fill(decoded, start, start + PAGE_SIZE, 0);
+            if (codeMap[page] != 0) {
+                codeWritten(start, start + PAGE_SIZE - 1);
+            }
+            PENDING.setVolatile(pendingView, page, -1L);
+        }
+    }
+
+    /**
+     * Volta a memória ao programa carregado por último ({@link #load}), ou a
+     * limpa se nenhum foi carregado. Custa uma comparação da memória e a
+     * cópia das páginas escritas desde então.
+     */
+    public void reload() {
+        if (loaded != null) {
+            restore(loaded);
+        } else {
+            clearMemory();
+        }
+    }
+
     /**
      * Força uma notificação de atualização para a TableView.
      * Útil após grandes operações (como carregar um programa),
-     * embora a atualização por item em write() seja geralmente suficiente.
+     * embora a atualização em write() seja geralmente suficiente.
      */
     public void notifyUpdate() {
-        if (memoryData.size() > 0) {
-            MemoryEntry entry = memoryData.get(0);
-            memoryData.set(0, entry); 
-        }
+        revision.set(revision.get() + 1);
         System.out.println("Memória: Notificação de atualização forçada.");
     }
 
     /**
-     * Retorna a lista observável de entradas de memória.
-     * O Controller (MainMemoryController) usa este método para
-     * vincular (bind) a TableView aos dados.
+     * Liga ou desliga a contagem de acessos por endereço ({@link MemoryActivity})
+     * usada pelo mapa de calor. Ligada, a CPU executa instrução a instrução.
+     */
+    public void setActivityTracking(boolean enabled) {
+        if (enabled && activity == null) {
+            activity = new MemoryActivity();
+        } else if (!enabled) {
+            activity = null;
+        }
+    }
+
+    /** Os contadores de acesso (null se a contagem estiver desligada). */
+    public MemoryActivity getActivity() {
+        return activity;
+    }
+
+    /**
+     * Revisão do conteúdo exibido. A MainMemoryController observa esta
+     * propriedade para reler os valores das linhas visíveis.
+     *
+     * @return A propriedade (somente leitura) da revisão.
+     */
+    public ReadOnlyIntegerProperty revisionProperty() {
+        return revision.getReadOnlyProperty();
+    }
+
+    /**
+     * Retorna a lista observável de entradas de memória (uma por endereço,
+     * de tamanho fixo). O Controller (MainMemoryController) usa este método
+     * para vincular (bind) a TableView aos dados.
      *
      * @return A ObservableList de MemoryEntry.
      */
@@ -233,9 +579,12 @@ public class MainMemory {
      * @param value O valor (ex: -1).
      * @return A representação em string (ex: "1111111111111111").
      */
-    private static String formatBinary(int value) {
-        short shortValue = (short) value; 
-        String binary = Integer.toBinaryString(Short.toUnsignedInt(shortValue));
-        return String.format("%16s", binary).replace(' ', '0');
+    static String formatBinary(int value) {
+        char[] bits = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            bits[i] = (char) ('0' + (value & 1));
+            value >>>= 1;
+        }
+        return new String(bits);
     }
 }
\ No newline at end of file
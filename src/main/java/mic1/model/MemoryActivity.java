@@ -0,0 +1,50 @@
+package mic1.model;
+
+/**
+ * Contadores de acesso por endereço (leituras, escritas e execuções), para o
+ * mapa de calor da janela da memória.
+ *
+ * Ligados em {@link MainMemory#setActivityTracking(boolean)}, fazem a CPU
+ * executar instrução a instrução (como com breakpoints ou o perfil) e
+ * contar, depois de cada instrução, o endereço buscado e os endereços lidos
+ * e escritos por ela. Desligados, a CPU não tem nenhum custo extra.
+ *
+ * Os contadores só crescem (e podem dar a volta no int): quem os exibe
+ * guarda a última leitura e usa a diferença, de modo que a thread do
+ * JavaFX só lê os arrays e a thread da simulação é a única que escreve.
+ * Uma leitura pode ver uma contagem de um quadro antes, o que não importa
+ * para uma visualização.
+ */
+public class MemoryActivity {
+
+    private final int[] reads = new int[MainMemory.MEMORY_SIZE];
+    private final int[] writes = new int[MainMemory.MEMORY_SIZE];
+    private final int[] executes = new int[MainMemory.MEMORY_SIZE];
+
+    /**
+     * Conta uma instrução executada.
+     *
+     * @param pc o endereço da instrução.
+     * @param read o endereço lido por ela, ou -1.
+     * @param write o endereço escrito por ela, ou -1.
+     */
+    void record(int pc, int read, int write) {
+        executes[pc]++;
+        if (read >= 0) {
+            reads[read]++;
+        }
+        if (write >= 0) {
+            writes[write]++;
+        }
+    }
+
+    /**
+     * Copia os contadores atuais (um array de {@link MainMemory#MEMORY_SIZE}
+     * posições para cada tipo de acesso).
+     */
+    public void copyTo(int[] reads, int[] writes, int[] executes) {
+        System.arraycopy(this.reads, 0, reads, 0, MainMemory.MEMORY_SIZE);
+        System.arraycopy(this.writes, 0, writes, 0, MainMemory.MEMORY_SIZE);
+        System.arraycopy(this.executes, 0, executes, 0, MainMemory.MEMORY_SIZE);
+    }
+}
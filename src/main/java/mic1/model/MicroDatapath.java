@@ -0,0 +1,642 @@
+package mic1.model;
+
+/**
+ * Caminho de dados microprogramado do MIC-1 (Tanenbaum).
+ *
+ * Esta classe simula o nível de microarquitetura: a memória de controle
+ * (ROM de microinstruções de 32 bits), o banco de 16 registradores
+ * (scratchpad), os barramentos A/B/C, o AMUX, a ULA, o deslocador,
+ * os registradores MAR/MBR e o relógio de 4 subciclos.
+ *
+ * Cada microinstrução da ROM é decodificada uma única vez (no carregamento
+ * da classe) em tabelas de campos primitivos. Assim, a execução de um
+ * subciclo não precisa extrair bits da palavra nem alocar objetos.
+ *
+ * Formato da microinstrução (bit 31 à esquerda):
+ * <pre>
+ * AMUX(1) COND(2) ALU(2) SH(2) MBR(1) MAR(1) RD(1) WR(1) ENC(1) C(4) B(4) A(4) ADDR(8)
+ * </pre>
+ */
+public class MicroDatapath {
+
+    // --- Índices do scratchpad ---
+    public static final int REG_PC = 0;
+    public static final int REG_AC = 1;
+    public static final int REG_SP = 2;
+    public static final int REG_IR = 3;
+    public static final int REG_TIR = 4;
+    public static final int REG_ZERO = 5;
+    public static final int REG_PLUS_ONE = 6;
+    public static final int REG_MINUS_ONE = 7;
+    public static final int REG_AMASK = 8;
+    public static final int REG_SMASK = 9;
+
+    /** Nomes dos 16 registradores, na ordem do scratchpad. */
+    public static final String[] REGISTER_NAMES = {
+        "PC", "AC", "SP", "IR", "TIR", "0", "+1", "-1",
+        "AMASK", "SMASK", "A", "B", "C", "D", "E", "F"
+    };
+
+    /** Número de subciclos de um ciclo de relógio (uma microinstrução). */
+    public static final int SUBCYCLES = 4;
+
+    // --- Códigos dos campos ---
+    static final int COND_NONE = 0;
+    static final int COND_N = 1;
+    static final int COND_Z = 2;
+    static final int COND_ALWAYS = 3;
+
+    static final int ALU_ADD = 0;
+    static final int ALU_AND = 1;
+    static final int ALU_A = 2;
+    static final int ALU_NOT = 3;
+
+    static final int SH_NONE = 0;
+    static final int SH_RIGHT = 1;
+    static final int SH_LEFT = 2;
+
+    /**
+     * A memória de controle original do MIC-1 (79 microinstruções).
+     * O comentário de cada linha mostra a microinstrução em MAL.
+     */
+    static final int[] CONTROL_STORE = {
+        0x10C00000, //  0: mar:=pc; rd;
+        0x00500600, //  1: pc:=pc+1; rd;
+        0xB013001C, //  2: ir:=mbr; if n then goto 28;
+        0x24143313, //  3: tir:=lshift(ir+ir); if n then goto 19;
+        0x3414040B, //  4: tir:=lshift(tir); if n then goto 11;
+        0x30000409, //  5: alu:=tir; if n then goto 9;
+        0x10C03000, //  6: mar:=ir; rd;
+        0x10400000, //  7: rd;
+        0xF0110000, //  8: ac:=mbr; goto 0;
+        0x11A03100, //  9: mar:=ir; mbr:=ac; wr;
+        0x70200000, // 10: wr; goto 0;
+        0x3000040F, // 11: alu:=tir; if n then goto 15;
+        0x10C03000, // 12: mar:=ir; rd;
+        0x10400000, // 13: rd;
+        0xE0111000, // 14: ac:=mbr+ac; goto 0;
+        0x10C03000, // 15: mar:=ir; rd;
+        0x00511600, // 16: ac:=ac+1; rd;
+        0x981A0000, // 17: a:=inv(mbr);
+        0x60111A00, // 18: ac:=ac+a; goto 0;
+        0x34140419, // 19: tir:=lshift(tir); if n then goto 25;
+        0x30000417, // 20: alu:=tir; if n then goto 23;
+        0x30000100, // 21: alu:=ac; if n then goto 0;
+        0x68108300, // 22: pc:=band(ir,amask); goto 0;
+        0x50000116, // 23: alu:=ac; if z then goto 22;
+        0x70000000, // 24: goto 0;
+        0x3000041B, // 25: alu:=tir; if n then goto 27;
+        0x68108300, // 26: pc:=band(ir,amask); goto 0;
+        0x68118300, // 27: ac:=band(ir,amask); goto 0;
+        0x24143328, // 28: tir:=lshift(ir+ir); if n then goto 40;
+        0x34140423, // 29: tir:=lshift(tir); if n then goto 35;
+        0x30000421, // 30: alu:=tir; if n then goto 33;
+        0x001A2300, // 31: a:=ir+sp;
+        0x70C0A007, // 32: mar:=a; rd; goto 7;
+        0x001A2300, // 33: a:=ir+sp;
+        0x71A0A10A, // 34: mar:=a; mbr:=ac; wr; goto 10;
+        0x30000426, // 35: alu:=tir; if n then goto 38;
+        0x001A2300, // 36: a:=ir+sp;
+        0x70C0A00D, // 37: mar:=a; rd; goto 13;
+        0x001A2300, // 38: a:=ir+sp;
+        0x70C0A010, // 39: mar:=a; rd; goto 16;
+        0x3414042E, // 40: tir:=lshift(tir); if n then goto 46;
+        0x3000042C, // 41: alu:=tir; if n then goto 44;
+        0x30000116, // 42: alu:=ac; if n then goto 22;
+        0x70000000, // 43: goto 0;
+        0x50000100, // 44: alu:=ac; if z then goto 0;
+        0x68108300, // 45: pc:=band(ir,amask); goto 0;
+        0x34140432, // 46: tir:=lshift(tir); if n then goto 50;
+        0x00122700, // 47: sp:=sp+(-1);
+        0x11A02000, // 48: mar:=sp; mbr:=pc; wr;
+        0x68308300, // 49: pc:=band(ir,amask); wr; goto 0;
+        0x34140441, // 50: tir:=lshift(tir); if n then goto 65;
+        0x3414043B, // 51: tir:=lshift(tir); if n then goto 59;
+        0x30000438, // 52: alu:=tir; if n then goto 56;
+        0x10C01000, // 53: mar:=ac; rd;
+        0x00522700, // 54: sp:=sp+(-1); rd;
+        0x70A0200A, // 55: mar:=sp; wr; goto 10;
+        0x00D22600, // 56: mar:=sp; sp:=sp+1; rd;
+        0x10400000, // 57: rd;
+        0x70A0100A, // 58: mar:=ac; wr; goto 10;
+        0x3000043E, // 59: alu:=tir; if n then goto 62;
+        0x00122700, // 60: sp:=sp+(-1);
+        0x71A0210A, // 61: mar:=sp; mbr:=ac; wr; goto 10;
+        0x00D22600, // 62: mar:=sp; sp:=sp+1; rd;
+        0x10400000, // 63: rd;
+        0xF0110000, // 64: ac:=mbr; goto 0;
+        0x34140449, // 65: tir:=lshift(tir); if n then goto 73;
+        0x30000446, // 66: alu:=tir; if n then goto 70;
+        0x00D22600, // 67: mar:=sp; sp:=sp+1; rd;
+        0x10400000, // 68: rd;
+        0xF0100000, // 69: pc:=mbr; goto 0;
+        0x101A0100, // 70: a:=ac;
+        0x10110200, // 71: ac:=sp;
+        0x70120A00, // 72: sp:=a; goto 0;
+        0x3000044C, // 73: alu:=tir; if n then goto 76;
+        0x081A9300, // 74: a:=band(ir,smask);
+        0x60122A00, // 75: sp:=sp+a; goto 0;
+        0x081A9300, // 76: a:=band(ir,smask);
+        0x181A0A00, // 77: a:=inv(a);
+        0x601A6A4B, // 78: a:=a+1; goto 75;
+    };
+
+    /** Texto (MAL) de cada microinstrução, usado no log da janela da CPU. */
+    static final String[] MICROCODE = {
+        "mar:=pc; rd;",
+        "pc:=pc+1; rd;",
+        "ir:=mbr; if n then goto 28;",
+        "tir:=lshift(ir+ir); if n then goto 19;",
+        "tir:=lshift(tir); if n then goto 11;",
+        "alu:=tir; if n then goto 9;",
+        "mar:=ir; rd;",
+        "rd;",
+        "ac:=mbr; goto 0;",
+        "mar:=ir; mbr:=ac; wr;",
+        "wr; goto 0;",
+        "alu:=tir; if n then goto 15;",
+        "mar:=ir; rd;",
+        "rd;",
+        "ac:=mbr+ac; goto 0;",
+        "mar:=ir; rd;",
+        "ac:=ac+1; rd;",
+        "a:=inv(mbr);",
+        "ac:=ac+a; goto 0;",
+        "tir:=lshift(tir); if n then goto 25;",
+        "alu:=tir; if n then goto 23;",
+        "alu:=ac; if n then goto 0;",
+        "pc:=band(ir,amask); goto 0;",
+        "alu:=ac; if z then goto 22;",
+        "goto 0;",
+        "alu:=tir; if n then goto 27;",
+        "pc:=band(ir,amask); goto 0;",
+        "ac:=band(ir,amask); goto 0;",
+        "tir:=lshift(ir+ir); if n then goto 40;",
+        "tir:=lshift(tir); if n then goto 35;",
+        "alu:=tir; if n then goto 33;",
+        "a:=ir+sp;",
+        "mar:=a; rd; goto 7;",
+        "a:=ir+sp;",
+        "mar:=a; mbr:=ac; wr; goto 10;",
+        "alu:=tir; if n then goto 38;",
+        "a:=ir+sp;",
+        "mar:=a; rd; goto 13;",
+        "a:=ir+sp;",
+        "mar:=a; rd; goto 16;",
+        "tir:=lshift(tir); if n then goto 46;",
+        "alu:=tir; if n then goto 44;",
+        "alu:=ac; if n then goto 22;",
+        "goto 0;",
+        "alu:=ac; if z then goto 0;",
+        "pc:=band(ir,amask); goto 0;",
+        "tir:=lshift(tir); if n then goto 50;",
+        "sp:=sp+(-1);",
+        "mar:=sp; mbr:=pc; wr;",
+        "pc:=band(ir,amask); wr; goto 0;",
+        "tir:=lshift(tir); if n then goto 65;",
+        "tir:=lshift(tir); if n then goto 59;",
+        "alu:=tir; if n then goto 56;",
+        "mar:=ac; rd;",
+        "sp:=sp+(-1); rd;",
+        "mar:=sp; wr; goto 10;",
+        "mar:=sp; sp:=sp+1; rd;",
+        "rd;",
+        "mar:=ac; wr; goto 10;",
+        "alu:=tir; if n then goto 62;",
+        "sp:=sp+(-1);",
+        "mar:=sp; mbr:=ac; wr; goto 10;",
+        "mar:=sp; sp:=sp+1; rd;",
+        "rd;",
+        "ac:=mbr; goto 0;",
+        "tir:=lshift(tir); if n then goto 73;",
+        "alu:=tir; if n then goto 70;",
+        "mar:=sp; sp:=sp+1; rd;",
+        "rd;",
+        "pc:=mbr; goto 0;",
+        "a:=ac;",
+        "ac:=sp;",
+        "sp:=a; goto 0;",
+        "alu:=tir; if n then goto 76;",
+        "a:=band(ir,smask);",
+        "sp:=sp+a; goto 0;",
+        "a:=band(ir,smask);",
+        "a:=inv(a);",
+        "a:=a+1; goto 75;",
+    };
+
+    // --- Tabelas decodificadas (uma posição por endereço da memória de controle) ---
+    static final boolean[] AMUX = new boolean[CONTROL_STORE.length];
+    static final byte[] COND = new byte[CONTROL_STORE.length];
+    static final byte[] ALU = new byte[CONTROL_STORE.length];
+    static final byte[] SHIFT = new byte[CONTROL_STORE.length];
+    static final boolean[] LOAD_MBR = new boolean[CONTROL_STORE.length];
+    static final boolean[] LOAD_MAR = new boolean[CONTROL_STORE.length];
+    static final boolean[] READ = new boolean[CONTROL_STORE.length];
+    static final boolean[] WRITE = new boolean[CONTROL_STORE.length];
+    static final boolean[] ENC = new boolean[CONTROL_STORE.length];
+    static final byte[] C_BUS = new byte[CONTROL_STORE.length];
+    static final byte[] B_BUS = new byte[CONTROL_STORE.length];
+    static final byte[] A_BUS = new byte[CONTROL_STORE.length];
+    static final int[] ADDR = new int[CONTROL_STORE.length];
+
+    static {
+        for (int i = 0; i < CONTROL_STORE.length; i++) {
+            int word = CONTROL_STORE[i];
+            AMUX[i] = (word >>> 31) != 0;
+            COND[i] = (byte) ((word >>> 29) & 0x3);
+            ALU[i] = (byte) ((word >>> 27) & 0x3);
+            SHIFT[i] = (byte) ((word >>> 25) & 0x3);
+            LOAD_MBR[i] = ((word >>> 24) & 1) != 0;
+            LOAD_MAR[i] = ((word >>> 23) & 1) != 0;
+            READ[i] = ((word >>> 22) & 1) != 0;
+            WRITE[i] = ((word >>> 21) & 1) != 0;
+            ENC[i] = ((word >>> 20) & 1) != 0;
+            C_BUS[i] = (byte) ((word >>> 16) & 0xF);
+            B_BUS[i] = (byte) ((word >>> 12) & 0xF);
+            A_BUS[i] = (byte) ((word >>> 8) & 0xF);
+            ADDR[i] = word & 0xFF;
+        }
+    }
+
+    // --- Estado do caminho de dados ---
+
+    /** Scratchpad: 16 registradores de 16 bits (com extensão de sinal). */
+    private final int[] registers = new int[16];
+
+    private int mar;
+    private int mbr;
+    private int mpc;
+    private int mir;
+    private int aLatch;
+    private int bLatch;
+    private int aluOut;
+    private int shifterOut;
+    private boolean n;
+    private boolean z;
+
+    /** Próximo subciclo a executar (0 a 3, exibido como 1 a 4). */
+    private int subcycle;
+
+    /** Um RD/WR foi pedido no ciclo anterior (a memória precisa de dois ciclos). */
+    private boolean readPending;
+    private boolean writePending;
+
+    /** Ciclos de relógio (microinstruções) completos. */
+    private long microCycles;
+
+    /** PC e SP no início da macroinstrução corrente (detecção de "JUMP para si mesmo"). */
+    private int startPc;
+    private int startSp;
+
+    /** Indica que a última macroinstrução foi um desvio para o próprio endereço. */
+    private boolean selfLoop;
+
+    /**
+     * Cria o caminho de dados com os registradores zerados e o SP no topo.
+     */
+    public MicroDatapath() {
+        reset();
+    }
+
+    /**
+     * Zera o caminho de dados e os contadores, deixando o SP em
+     * {@link CPU#INITIAL_SP}.
+     */
+    public void reset() {
+        load(0, 0, CPU.INITIAL_SP, 0);
+        mar = 0;
+        mbr = 0;
+        mir = 0;
+        aLatch = 0;
+        bLatch = 0;
+        aluOut = 0;
+        shifterOut = 0;
+        n = false;
+        z = false;
+        microCycles = 0;
+    }
+
+    /**
+     * Carrega os registradores visíveis ao programador e posiciona o
+     * microprograma no início do ciclo de busca (MPC = 0, subciclo 1).
+     */
+    void load(int pc, int ac, int sp, int ir) {
+        registers[REG_PC] = pc;
+        registers[REG_AC] = ac;
+        registers[REG_SP] = sp;
+        registers[REG_IR] = ir;
+        registers[REG_TIR] = 0;
+        registers[REG_ZERO] = 0;
+        registers[REG_PLUS_ONE] = 1;
+        registers[REG_MINUS_ONE] = -1;
+        registers[REG_AMASK] = 0x0FFF;
+        registers[REG_SMASK] = 0x00FF;
+        for (int r = 10; r < registers.length; r++) {
+            registers[r] = 0;
+        }
+        mpc = 0;
+        subcycle = 0;
+        readPending = false;
+        writePending = false;
+        startPc = pc;
+        startSp = sp;
+        selfLoop = false;
+    }
+
+    /**
+     * Executa microinstruções completas até concluir {@code maxInstructions}
+     * macroinstruções (retornos ao endereço 0 da memória de controle), ou até
+     * detectar um desvio para o próprio endereço.
+     *
+     * Este é o caminho rápido usado pela CPU: os quatro subciclos de cada
+     * microinstrução são fundidos em uma única iteração do laço, com o mesmo
+     * resultado de {@link #stepSubcycle(MainMemory)} chamado quatro vezes.
+     *
+     * @return o número de macroinstruções concluídas.
+     */
+    long runInstructions(MainMemory memory, long maxInstructions) {
+        // Termina um ciclo de relógio deixado pela metade pelo modo passo-a-passo.
+        while (subcycle != 0) {
+            stepSubcycle(memory);
+        }
+        if (mpc == 0 && selfLoop) {
+            return 0;
+        }
+
+        final int[] r = registers;
+        final int[] m = memory.words();
+        int mpc = this.mpc;
+        int mar = this.mar;
+        int mbr = this.mbr;
+        boolean readPending = this.readPending;
+        boolean writePending = this.writePending;
+        int out = aluOut;
+        int shifted = shifterOut;
+        int a = aLatch;
+        int b = bLatch;
+        int last = -1;
+        long cycles = 0;
+        long done = 0;
+
+        while (done < maxInstructions) {
+            final int i = mpc;
+            last = i;
+            a = AMUX[i] ? mbr : r[A_BUS[i]];
+            b = r[B_BUS[i]];
+            switch (ALU[i]) {
+                case ALU_ADD -> out = (short) (a + b);
+                case ALU_AND -> out = a & b;
+                case ALU_A -> out = a;
+                default -> out = ~a;
+            }
+            switch (SHIFT[i]) {
+                case SH_LEFT -> shifted = (short) (out << 1);
+                case SH_RIGHT -> shifted = (short) ((out & 0xFFFF) >>> 1);
+                default -> shifted = out;
+            }
+            if (LOAD_MAR[i]) {
+                mar = b & CPU.ADDRESS_MASK;
+            }
+            if (ENC[i]) {
+                r[C_BUS[i]] = shifted;
+            }
+            if (LOAD_MBR[i]) {
+                mbr = shifted;
+            }
+            if (READ[i]) {
+                if (readPending) {
+                    mbr = m[mar];
+                }
+                readPending = !readPending;
+            } else {
+                readPending = false;
+            }
+            if (WRITE[i]) {
+                if (writePending) {
+                    memory.store(mar, mbr);
+                }
+                writePending = !writePending;
+            } else {
+                writePending = false;
+            }
+            mpc = switch (COND[i]) {
+                case COND_N -> out < 0 ? ADDR[i] : i + 1;
+                case COND_Z -> out == 0 ? ADDR[i] : i + 1;
+                case COND_ALWAYS -> ADDR[i];
+                default -> i + 1;
+            };
+            cycles++;
+
+            if (mpc == 0) {
+                done++;
+                if (r[REG_PC] == startPc && r[REG_SP] == startSp) {
+                    selfLoop = true;
+                    break;
+                }
+                startPc = r[REG_PC];
+                startSp = r[REG_SP];
+            }
+        }
+
+        if (last >= 0) {
+            this.mir = CONTROL_STORE[last];
+        }
+        this.mpc = mpc;
+        this.mar = mar;
+        this.mbr = mbr;
+        this.readPending = readPending;
+        this.writePending = writePending;
+        this.aLatch = a;
+        this.bLatch = b;
+        this.aluOut = out;
+        this.shifterOut = shifted;
+        this.n = out < 0;
+        this.z = out == 0;
+        this.microCycles += cycles;
+        return done;
+    }
+
+    /**
+     * Número de ciclos de relógio que o microprograma leva para executar a
+     * instrução {@code word} (buscada do endereço 0) com o AC valendo
+     * {@code ac}. O caminho pela memória de controle só depende dos bits do
+     * opcode e, nos desvios condicionais, do sinal do AC; os dados lidos da
+     * memória não mudam a contagem (a memória simulada aqui só contém a
+     * própria instrução).
+     */
+    static int cyclesOf(int word, int ac) {
+        final int[] r = new int[16];
+        r[REG_AC] = (short) ac;
+        r[REG_SP] = CPU.INITIAL_SP;
+        r[REG_PLUS_ONE] = 1;
+        r[REG_MINUS_ONE] = -1;
+        r[REG_AMASK] = 0x0FFF;
+        r[REG_SMASK] = 0x00FF;
+        int mpc = 0;
+        int mar = 0;
+        int mbr = 0;
+        boolean readPending = false;
+        int cycles = 0;
+        do {
+            final int i = mpc;
+            int a = AMUX[i] ? mbr : r[A_BUS[i]];
+            int b = r[B_BUS[i]];
+            int out = switch (ALU[i]) {
+                case ALU_ADD -> (short) (a + b);
+                case ALU_AND -> a & b;
+                case ALU_A -> a;
+                default -> ~a;
+            };
+            int shifted = switch (SHIFT[i]) {
+                case SH_LEFT -> (short) (out << 1);
+                case SH_RIGHT -> (short) ((out & 0xFFFF) >>> 1);
+                default -> out;
+            };
+            if (LOAD_MAR[i]) {
+                mar = b & CPU.ADDRESS_MASK;
+            }
+            if (ENC[i]) {
+                r[C_BUS[i]] = shifted;
+            }
+            if (LOAD_MBR[i]) {
+                mbr = shifted;
+            }
+            if (READ[i]) {
+                if (readPending) {
+                    mbr = mar == 0 ? (short) word : 0;
+                }
+                readPending = !readPending;
+            } else {
+                readPending = false;
+            }
+            mpc = switch (COND[i]) {
+                case COND_N -> out < 0 ? ADDR[i] : i + 1;
+                case COND_Z -> out == 0 ? ADDR[i] : i + 1;
+                case COND_ALWAYS -> ADDR[i];
+                default -> i + 1;
+            };
+            cycles++;
+        } while (mpc != 0);
+        return cycles;
+    }
+
+    /**
+     * Avança o relógio em um subciclo (modo passo-a-passo da janela da CPU).
+     *
+     * <ol>
+     * <li>Carrega a microinstrução apontada pelo MPC no MIR.</li>
+     * <li>Coloca os registradores dos campos A e B nos latches A e B.</li>
+     * <li>AMUX, ULA e deslocador produzem o resultado; o MAR é carregado.</li>
+     * <li>O barramento C grava no scratchpad, o MBR é carregado, a memória
+     *     conclui RD/WR e o MPC recebe o próximo endereço.</li>
+     * </ol>
+     */
+    public void stepSubcycle(MainMemory memory) {
+        final int i = mpc;
+        switch (subcycle) {
+            case 0 -> mir = CONTROL_STORE[i];
+            case 1 -> {
+                aLatch = registers[A_BUS[i]];
+                bLatch = registers[B_BUS[i]];
+            }
+            case 2 -> {
+                int a = AMUX[i] ? mbr : aLatch;
+                aluOut = switch (ALU[i]) {
+                    case ALU_ADD -> (short) (a + bLatch);
+                    case ALU_AND -> a & bLatch;
+                    case ALU_A -> a;
+                    default -> ~a;
+                };
+                shifterOut = switch (SHIFT[i]) {
+                    case SH_LEFT -> (short) (aluOut << 1);
+                    case SH_RIGHT -> (short) ((aluOut & 0xFFFF) >>> 1);
+                    default -> aluOut;
+                };
+                n = aluOut < 0;
+                z = aluOut == 0;
+                if (LOAD_MAR[i]) {
+                    mar = bLatch & CPU.ADDRESS_MASK;
+                }
+            }
+            default -> {
+                if (ENC[i]) {
+                    registers[C_BUS[i]] = shifterOut;
+                }
+                if (LOAD_MBR[i]) {
+                    mbr = shifterOut;
+                }
+                if (READ[i]) {
+                    if (readPending) {
+                        mbr = memory.words()[mar];
+                    }
+                    readPending = !readPending;
+                } else {
+                    readPending = false;
+                }
+                if (WRITE[i]) {
+                    if (writePending) {
+                        memory.store(mar, mbr);
+                    }
+                    writePending = !writePending;
+                } else {
+                    writePending = false;
+                }
+                mpc = switch (COND[i]) {
+                    case COND_N -> n ? ADDR[i] : i + 1;
+                    case COND_Z -> z ? ADDR[i] : i + 1;
+                    case COND_ALWAYS -> ADDR[i];
+                    default -> i + 1;
+                };
+                microCycles++;
+                if (mpc == 0) {
+                    selfLoop = registers[REG_PC] == startPc && registers[REG_SP] == startSp;
+                    startPc = registers[REG_PC];
+                    startSp = registers[REG_SP];
+                }
+            }
+        }
+        subcycle = (subcycle + 1) % SUBCYCLES;
+    }
+
+    /**
+     * Executa uma microinstrução completa (os subciclos que faltam do
+     * ciclo de relógio corrente).
+     */
+    public void stepMicroinstruction(MainMemory memory) {
+        do {
+            stepSubcycle(memory);
+        } while (subcycle != 0);
+    }
+
+    /**
+     * Indica se o microprograma está no início do ciclo de busca
+     * (fronteira entre duas macroinstruções).
+     */
+    public boolean isAtInstructionBoundary() {
+        return mpc == 0 && subcycle == 0;
+    }
+
+    /**
+     * Retorna o texto (MAL) da microinstrução em um endereço da memória de controle.
+     */
+    public static String microcodeAt(int address) {
+        return MICROCODE[address];
+    }
+
+    // --- Getters (para exibição e estudos de temporização) ---
+
+    public int getRegister(int index) { return registers[index]; }
+    public int getMar() { return mar; }
+    public int getMbr() { return mbr; }
+    public int getMpc() { return mpc; }
+    public int getMir() { return mir; }
+    public int getALatch() { return aLatch; }
+    public int getBLatch() { return bLatch; }
+    public int getAluOut() { return aluOut; }
+    public int getShifterOut() { return shifterOut; }
+    public boolean isN() { return n; }
+    public boolean isZ() { return z; }
+    public int getSubcycle() { return subcycle + 1; }
+    public long getMicroCycles() { return microCycles; }
+    boolean isSelfLoop() { return selfLoop; }
+}
@@ -0,0 +1,282 @@
+package mic1.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Perfil exato (sem amostragem) da execução, por endereço.
+ *
+ * Com o perfil ligado ({@link CPU#setProfilingEnabled(boolean)}), a CPU
+ * executa instrução a instrução e, depois de cada uma, chama
+ * {@link #record(int, int, int)} com o endereço, o opcode e o AC de antes da
+ * instrução. São contadas as execuções e os ciclos de relógio de cada
+ * endereço, os desvios tomados e não tomados e a profundidade de chamadas
+ * (CALL/RETN). Desligado, a CPU não tem nenhum custo extra.
+ *
+ * Os ciclos são os do microprograma do MIC-1 ({@link MicroDatapath}): o
+ * custo de cada instrução depende só do opcode e, nos desvios condicionais,
+ * de o desvio ser tomado, e é calculado uma vez para todos os casos. Assim
+ * o perfil é o mesmo em qualquer modo de execução.
+ *
+ * {@link #report(ProgramImage, int)} gera o relatório em texto, com os
+ * endereços associados às labels e linhas do código-fonte.
+ */
+public class Profiler {
+
+    /** Ciclos de cada opcode: [opcode][0 = não tomado, 1 = tomado]. */
+    private static final int[][] CYCLES = new int[CPU.OP_DESP + 1][2];
+
+    static {
+        for (int op = 0; op < CYCLES.length; op++) {
+            int word = op < CPU.OP_PSHI ? op << 12 : 0xF000 | (op - CPU.OP_PSHI) << 9;
+            for (int ac = -1; ac <= 1; ac++) {
+                CYCLES[op][isTaken(op, ac) ? 1 : 0] = MicroDatapath.cyclesOf(word, ac);
+            }
+        }
+    }
+
+    private final long[] counts = new long[MainMemory.MEMORY_SIZE];
+    private final long[] cycles = new long[MainMemory.MEMORY_SIZE];
+    private final long[] taken = new long[MainMemory.MEMORY_SIZE];
+    private final long[] notTaken = new long[MainMemory.MEMORY_SIZE];
+
+    /** Profundidade corrente e máxima de chamadas (CALL sem RETN). */
+    private int depth;
+    private int maxDepth;
+
+    /** Zera todas as contagens. */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(cycles, 0);
+        Arrays.fill(taken, 0);
+        Arrays.fill(notTaken, 0);
+        depth = 0;
+        maxDepth = 0;
+    }
+
+    /** Se o desvio {@code op} é tomado com o AC valendo {@code ac}. */
+    static boolean isTaken(int op, int ac) {
+        return switch (op) {
+            case CPU.OP_JPOS -> ac >= 0;
+            case CPU.OP_JZER -> ac == 0;
+            case CPU.OP_JNEG -> ac < 0;
+            case CPU.OP_JNZE -> ac != 0;
+            case CPU.OP_JUMP, CPU.OP_CALL -> true;
+            default -> false;
+        };
+    }
+
+    /** Se {@code op} é um desvio condicional. */
+    private static boolean isConditional(int op) {
+        return op == CPU.OP_JPOS || op == CPU.OP_JZER || op == CPU.OP_JNEG || op == CPU.OP_JNZE;
+    }
+
+    /**
+     * Conta a execução da instrução do endereço {@code address}.
+     *
+     * @param op o opcode (CPU.OP_*).
+     * @param ac o AC antes da instrução (decide os desvios condicionais).
+     */
+    void record(int address, int op, int ac) {
+        boolean jumped = isTaken(op, ac);
+        counts[address]++;
+        cycles[address] += CYCLES[op][jumped ? 1 : 0];
+        if (jumped) {
+            taken[address]++;
+        } else if (isConditional(op)) {
+            notTaken[address]++;
+        }
+        if (op == CPU.OP_CALL) {
+            if (++depth > maxDepth) {
+                maxDepth = depth;
+            }
+        } else if (op == CPU.OP_RETN && depth > 0) {
+            depth--;
+        }
+    }
+
+    /** Execuções da instrução do endereço. */
+    public long getCount(int address) { return counts[address]; }
+
+    /** Ciclos de relógio gastos pela instrução do endereço. */
+    public long getCycles(int address) { return cycles[address]; }
+
+    /** Vezes em que o desvio do endereço foi tomado (JUMP e CALL: sempre). */
+    public long getTaken(int address) { return taken[address]; }
+
+    /** Vezes em que o desvio condicional do endereço não foi tomado. */
+    public long getNotTaken(int address) { return notTaken[address]; }
+
+    /** Profundidade corrente de chamadas. */
+    public int getCallDepth() { return depth; }
+
+    /** Maior profundidade de chamadas atingida. */
+    public int getMaxCallDepth() { return maxDepth; }
+
+    /** Total de instruções contadas. */
+    public long getTotalCount() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /** Total de ciclos contados. */
+    public long getTotalCycles() {
+        long total = 0;
+        for (long c : cycles) {
+            total += c;
+        }
+        return total;
+    }
+
+    /**
+     * Gera o relatório do perfil:
+     * <ul>
+     * <li>totais (instruções, ciclos, profundidade máxima de chamadas);</li>
+     * <li>ciclos por label do código (cada endereço pertence à última label
+     *     definida antes dele);</li>
+     * <li>laços quentes: desvios para trás tomados (exceto o laço de parada,
+     *     o desvio para o próprio endereço), com o número de voltas
+     *     e os ciclos gastos no corpo do laço;</li>
+     * <li>os {@code limit} endereços que mais gastaram ciclos, com a linha
+     *     do código-fonte.</li>
+     * </ul>
+     *
+     * @param image o programa carregado (labels e linhas), ou null para um
+     *              relatório só com endereços.
+     * @param limit máximo de linhas das seções de laços e de endereços.
+     */
+    public String report(ProgramImage image, int limit) {
+        long totalCycles = getTotalCycles();
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Perfil: %,d instruções, %,d ciclos, profundidade máxima de chamadas %d%n",
+                getTotalCount(), totalCycles, maxDepth));
+        if (totalCycles == 0) {
+            return out.toString();
+        }
+
+        int codeLength = 0;
+        short[] code = new short[0];
+        if (image != null) {
+            for (ProgramImage.Segment segment : image.getSegments()) {
+                if (segment.kind() == ProgramImage.CODE) {
+                    code = segment.words();
+                    codeLength = segment.end();
+                }
+            }
+        }
+        List<Map.Entry<String, Integer>> labels = codeLabels(image);
+
+        out.append(String.format("%nPor label:%n%-16s %14s %16s %7s%n", "label", "instruções", "ciclos", "%"));
+        List<long[]> perLabel = new ArrayList<>(); // {índice da label (-1 = antes da primeira), instruções, ciclos}
+        for (int l = -1; l < labels.size(); l++) {
+            int start = l < 0 ? 0 : labels.get(l).getValue();
+            int end = l + 1 < labels.size() ? labels.get(l + 1).getValue() : MainMemory.MEMORY_SIZE;
+            long count = 0;
+            long c = 0;
+            for (int address = start; address < end; address++) {
+                count += counts[address];
+                c += cycles[address];
+            }
+            if (c > 0) {
+                perLabel.add(new long[] {l, count, c});
+            }
+        }
+        perLabel.sort(Comparator.comparingLong((long[] row) -> row[2]).reversed());
+        for (long[] row : perLabel) {
+            String name = row[0] < 0 ? "(início)" : labels.get((int) row[0]).getKey();
+            out.append(String.format("%-16s %,14d %,16d %6.2f%%%n", name, row[1], row[2], 100.0 * row[2] / totalCycles));
+        }
+
+        List<int[]> loops = new ArrayList<>(); // {origem, destino}
+        for (int address = 0; address < codeLength; address++) {
+            int target = code[address] & CPU.ADDRESS_MASK;
+            int op = CPU.decodeOpcode(code[address]);
+            if (taken[address] > 0 && (op == CPU.OP_JUMP || isConditional(op)) && target < address) {
+                loops.add(new int[] {address, target});
+            }
+        }
+        if (!loops.isEmpty()) {
+            loops.sort(Comparator.comparingLong((int[] loop) -> bodyCycles(loop[1], loop[0])).reversed());
+            out.append(String.format("%nLaços quentes:%n%-48s %14s %16s %7s%n", "desvio", "voltas", "ciclos", "%"));
+            for (int[] loop : loops.subList(0, Math.min(limit, loops.size()))) {
+                long c = bodyCycles(loop[1], loop[0]);
+                out.append(String.format("%-48s %,14d %,16d %6.2f%%%n",
+                        describe(image, labels, loop[0]) + " -> " + describe(image, labels, loop[1]),
+                        taken[loop[0]], c, 100.0 * c / totalCycles));
+            }
+        }
+
+        Integer[] addresses = new Integer[MainMemory.MEMORY_SIZE];
+        for (int address = 0; address < addresses.length; address++) {
+            addresses[address] = address;
+        }
+        Arrays.sort(addresses, Comparator.comparingLong((Integer address) -> cycles[address]).reversed());
+        out.append(String.format("%nEndereços mais executados:%n%-28s %14s %16s %7s %s%n",
+                "endereço", "execuções", "ciclos", "%", "desvios (tomados/não)"));
+        for (int i = 0; i < Math.min(limit, addresses.length) && cycles[addresses[i]] > 0; i++) {
+            int address = addresses[i];
+            out.append(String.format("%-28s %,14d %,16d %6.2f%%", describe(image, labels, address),
+                    counts[address], cycles[address], 100.0 * cycles[address] / totalCycles));
+            if (taken[address] > 0 || notTaken[address] > 0) {
+                out.append(String.format(" %,d/%,d", taken[address], notTaken[address]));
+            }
+            out.append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+
+    /** Ciclos gastos nos endereços [start, end]. */
+    private long bodyCycles(int start, int end) {
+        long total = 0;
+        for (int address = start; address <= end; address++) {
+            total += cycles[address];
+        }
+        return total;
+    }
+
+    /** Labels do código, em ordem de endereço (a imagem já vem ordenada); vazia sem imagem. */
+    static List<Map.Entry<String, Integer>> codeLabels(ProgramImage image) {
+        List<Map.Entry<String, Integer>> labels = new ArrayList<>();
+        if (image == null) {
+            return labels;
+        }
+        int codeLength = 0;
+        for (ProgramImage.Segment segment : image.getSegments()) {
+            if (segment.kind() == ProgramImage.CODE) {
+                codeLength = segment.end();
+            }
+        }
+        for (Map.Entry<String, Integer> symbol : image.getSymbols().entrySet()) {
+            if (symbol.getValue() < codeLength) {
+                labels.add(symbol);
+            }
+        }
+        return labels;
+    }
+
+    /** Descreve um endereço: "12 LOOP+2 (linha 15)". */
+    static String describe(ProgramImage image, List<Map.Entry<String, Integer>> labels, int address) {
+        StringBuilder text = new StringBuilder().append(address);
+        for (int l = labels.size() - 1; l >= 0; l--) {
+            int start = labels.get(l).getValue();
+            if (start <= address) {
+                text.append(' ').append(labels.get(l).getKey());
+                if (address > start) {
+                    text.append('+').append(address - start);
+                }
+                break;
+            }
+        }
+        int line = image != null ? image.lineOf(address) : 0;
+        if (line > 0) {
+            text.append(" (linha ").append(line).append(')');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,133 @@
+package mic1.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Gerador de programas MIC-1 aleatórios, no dialeto aceito pelo
+ * {@link Assembler}, para o {@link DifferentialFuzzer}.
+ *
+ * Os programas usam todos os mnemônicos, labels (inclusive referências à
+ * frente), variáveis, operandos numéricos em toda a faixa válida (incluindo
+ * os extremos 0 e 4095, os de 8 bits de INSP/DESP e os valores de LOCO
+ * negativos ou acima de 4095, que ficam com 12 bits), mnemônicos em
+ * minúsculas, espaços e comentários. Terminam em {@code FIM: JUMP FIM}, mas
+ * desvios para endereços numéricos, CALL/RETN desbalanceados e escritas no
+ * próprio código fazem parte do sorteio: nem todo programa para, e por isso
+ * a execução é sempre limitada em passos.
+ *
+ * O programa é uma lista de linhas (sem '\n'), para que o fuzzer possa
+ * reduzi-lo removendo linhas. A mesma semente gera sempre o mesmo programa.
+ */
+public final class ProgramGenerator {
+
+    /** Mnemônicos por tipo de operando. */
+    private static final String[] DIRECT = { "LODD", "STOD", "ADDD", "SUBD" };
+    private static final String[] JUMPS = { "JPOS", "JZER", "JUMP", "JNEG", "JNZE", "CALL" };
+    private static final String[] LOCAL = { "LODL", "STOL", "ADDL", "SUBL" };
+    private static final String[] STACK = { "PSHI", "POPI", "PUSH", "POP", "RETN", "SWAP" };
+    private static final String[] OFFSET = { "INSP", "DESP" };
+
+    /** Maior operando de 12 bits ('x') e de 8 bits ('y'). */
+    private static final int MAX_X = MainMemory.MEMORY_SIZE - 1;
+    private static final int MAX_Y = 255;
+
+    private final SplittableRandom random;
+
+    private ProgramGenerator(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /** Gera o programa da semente {@code seed}. */
+    public static List<String> generate(long seed) {
+        return new ProgramGenerator(new SplittableRandom(seed)).generate();
+    }
+
+    private List<String> generate() {
+        int instructions = 4 + random.nextInt(60);
+        int variables = 1 + random.nextInt(6);
+
+        // Linhas que recebem um label (L0, L1, ...): a primeira e umas 20% das outras.
+        String[] labelAt = new String[instructions];
+        int labels = 0;
+        for (int i = 0; i < instructions; i++) {
+            if (i == 0 || random.nextInt(5) == 0) {
+                labelAt[i] = "L" + labels++;
+            }
+        }
+
+        List<String> lines = new ArrayList<>(instructions + variables + 2);
+        if (random.nextInt(4) == 0) {
+            lines.add("/ programa gerado");
+        }
+        for (int i = 0; i < instructions; i++) {
+            StringBuilder line = new StringBuilder();
+            if (labelAt[i] != null) {
+                line.append(labelAt[i]).append(':').append(random.nextBoolean() ? " " : "\t");
+            } else if (random.nextInt(4) == 0) {
+                line.append("    ");
+            }
+            line.append(instruction(labels, variables));
+            if (random.nextInt(10) == 0) {
+                line.append(" / comentário");
+            }
+            lines.add(line.toString());
+        }
+        lines.add("FIM: JUMP FIM");
+        for (int v = 0; v < variables; v++) {
+            lines.add("v" + v + ":");
+        }
+        return lines;
+    }
+
+    /** Uma instrução: mnemônico (às vezes em minúsculas) e operando. */
+    private String instruction(int labels, int variables) {
+        String mnemonic;
+        String operand;
+        int kind = random.nextInt(100);
+        if (kind < 30) {
+            mnemonic = pick(DIRECT);
+            operand = random.nextInt(10) < 8 ? "v" + random.nextInt(variables) : number(MAX_X);
+        } else if (kind < 50) {
+            mnemonic = pick(JUMPS);
+            int target = random.nextInt(20);
+            operand = target == 0 ? number(MAX_X) : target == 1 ? "FIM" : "L" + random.nextInt(labels);
+        } else if (kind < 62) {
+            mnemonic = "LOCO";
+            // Fora de 0-4095 (negativo ou grande), o montador usa só os 12 bits inferiores.
+            operand = switch (random.nextInt(10)) {
+                case 0 -> Integer.toString(-random.nextInt(MAX_X + 1));
+                case 1 -> Integer.toString(random.nextInt(0x10000));
+                default -> number(MAX_X);
+            };
+        } else if (kind < 77) {
+            mnemonic = pick(LOCAL);
+            operand = Integer.toString(random.nextInt(10) == 0 ? random.nextInt(MAX_X + 1) : random.nextInt(8));
+        } else if (kind < 85) {
+            mnemonic = pick(OFFSET);
+            operand = random.nextInt(4) == 0 ? number(MAX_Y) : Integer.toString(random.nextInt(4));
+        } else {
+            mnemonic = pick(STACK);
+            operand = null;
+        }
+        if (random.nextInt(5) == 0) {
+            mnemonic = mnemonic.toLowerCase(Locale.ROOT);
+        }
+        return operand == null ? mnemonic : mnemonic + ' ' + operand;
+    }
+
+    /** Um número de 0 a {@code max}, com peso extra nos extremos. */
+    private String number(int max) {
+        return Integer.toString(switch (random.nextInt(8)) {
+            case 0 -> 0;
+            case 1 -> max;
+            default -> random.nextInt(max + 1);
+        });
+    }
+
+    private String pick(String[] names) {
+        return names[random.nextInt(names.length)];
+    }
+}
@@ -0,0 +1,211 @@
+package mic1.model;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Imagem binária de um programa montado (arquivos ".mic1"), para carregar
+ * programas na memória sem montar o texto de novo.
+ *
+ * Formato (versão {@link #VERSION}, inteiros little-endian):
+ *
+ * <pre>
+ * cabeçalho  "MIC1"  u16 versão  u16 nº de segmentos  u32 nº de símbolos
+ *            u32 nº de linhas  u32 CRC-32 de tudo o que vem depois do cabeçalho
+ * segmento   u16 tipo (0 = código, 1 = dados)  u16 endereço  u16 tamanho
+ *            u16 reservado  e as palavras de 16 bits
+ * símbolo    u16 endereço  u16 tamanho do nome  nome em UTF-8
+ * linhas     u32 por palavra do segmento de código: a linha do código-fonte
+ * </pre>
+ *
+ * O programa montado vira um segmento de código a partir do endereço 0 e,
+ * se houver variáveis, um segmento de dados (zerado) no topo da memória.
+ */
+public final class ProgramImage {
+
+    /** Versão do formato gravada por {@link #encode()}. */
+    public static final int VERSION = 1;
+
+    /** Tipos de segmento. */
+    public static final int CODE = 0;
+    public static final int DATA = 1;
+
+    private static final int MAGIC = 'M' | 'I' << 8 | 'C' << 16 | '1' << 24;
+    private static final int HEADER_SIZE = 20;
+    private static final int SEGMENT_HEADER_SIZE = 8;
+
+    /** Um trecho contínuo da memória. */
+    public record Segment(int kind, int start, short[] words) {
+        public int end() { return start + words.length; }
+    }
+
+    private final List<Segment> segments;
+    private final Map<String, Integer> symbols;
+    private final int[] lines;
+
+    private ProgramImage(List<Segment> segments, Map<String, Integer> symbols, int[] lines) {
+        this.segments = segments;
+        this.symbols = symbols;
+        this.lines = lines;
+    }
+
+    /** Cria a imagem de um programa montado. */
+    public static ProgramImage of(Assembler.Program program) {
+        List<Segment> segments = new ArrayList<>(2);
+        segments.add(new Segment(CODE, 0, program.getImage()));
+        int lowest = MainMemory.MEMORY_SIZE;
+        for (Map.Entry<String, Integer> symbol : program.symbols.entrySet()) {
+            if (symbol.getValue() >= program.length) {
+                lowest = Math.min(lowest, symbol.getValue());
+            }
+        }
+        if (lowest < MainMemory.MEMORY_SIZE) {
+            segments.add(new Segment(DATA, lowest, new short[MainMemory.MEMORY_SIZE - lowest]));
+        }
+        // Ordem por endereço: a mesma imagem sempre gera os mesmos bytes.
+        Map<String, Integer> symbols = new LinkedHashMap<>();
+        program.symbols.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .forEachOrdered(e -> symbols.put(e.getKey(), e.getValue()));
+        return new ProgramImage(List.copyOf(segments), Collections.unmodifiableMap(symbols),
+                Arrays.copyOf(program.lines, program.length));
+    }
+
+    /** Os segmentos, na ordem do arquivo. */
+    public List<Segment> getSegments() { return segments; }
+
+    /** Tabela de símbolos (labels e variáveis), em ordem de endereço. */
+    public Map<String, Integer> getSymbols() { return symbols; }
+
+    /**
+     * Linha do código-fonte (a partir de 1) da palavra de código em
+     * {@code address}, ou 0 se o endereço não for de código.
+     */
+    public int lineOf(int address) {
+        return address >= 0 && address < lines.length ? lines[address] : 0;
+    }
+
+    /**
+     * Carrega a imagem na memória (como {@link MainMemory#load}: o que não
+     * pertence a nenhum segmento é zerado).
+     */
+    public void loadInto(MainMemory memory) {
+        int end = 0;
+        for (Segment segment : segments) {
+            end = Math.max(end, segment.end());
+        }
+        short[] image = new short[end];
+        for (Segment segment : segments) {
+            System.arraycopy(segment.words(), 0, image, segment.start(), segment.words().length);
+        }
+        memory.load(image, end);
+    }
+
+    /** Codifica a imagem no formato binário (buffer pronto para gravar). */
+    public ByteBuffer encode() {
+        byte[][] names = new byte[symbols.size()][];
+        int size = HEADER_SIZE + lines.length * 4;
+        for (Segment segment : segments) {
+            size += SEGMENT_HEADER_SIZE + segment.words().length * 2;
+        }
+        int i = 0;
+        for (String name : symbols.keySet()) {
+            names[i] = name.getBytes(StandardCharsets.UTF_8);
+            size += 4 + names[i++].length;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putShort((short) VERSION).putShort((short) segments.size())
+                .putInt(symbols.size()).putInt(lines.length).putInt(0);
+        for (Segment segment : segments) {
+            out.putShort((short) segment.kind()).putShort((short) segment.start())
+                    .putShort((short) segment.words().length).putShort((short) 0);
+            out.asShortBuffer().put(segment.words());
+            out.position(out.position() + segment.words().length * 2);
+        }
+        i = 0;
+        for (int address : symbols.values()) {
+            out.putShort((short) address).putShort((short) names[i].length).put(names[i++]);
+        }
+        out.asIntBuffer().put(lines);
+        out.position(out.position() + lines.length * 4);
+
+        out.putInt(16, checksum(out.flip()));
+        return out;
+    }
+
+    /**
+     * Lê uma imagem codificada por {@link #encode()}.
+     *
+     * @param in o conteúdo do arquivo (da posição ao limite).
+     * @throws IllegalArgumentException se o conteúdo não for uma imagem
+     *         válida (formato, versão ou checksum).
+     */
+    public static ProgramImage decode(ByteBuffer in) {
+        ByteBuffer buffer = in.slice().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Imagem inválida: não é um programa MIC-1");
+            }
+            int version = Short.toUnsignedInt(buffer.getShort());
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Imagem inválida: versão " + version + " não suportada");
+            }
+            int segmentCount = Short.toUnsignedInt(buffer.getShort());
+            int symbolCount = buffer.getInt();
+            int lineCount = buffer.getInt();
+            int crc = buffer.getInt();
+            if (symbolCount < 0 || lineCount < 0 || lineCount > MainMemory.MEMORY_SIZE) {
+                throw new IllegalArgumentException("Imagem inválida: cabeçalho corrompido");
+            }
+            if (crc != checksum(buffer.duplicate().position(0))) {
+                throw new IllegalArgumentException("Imagem inválida: checksum não confere");
+            }
+
+            List<Segment> segments = new ArrayList<>(segmentCount);
+            for (int s = 0; s < segmentCount; s++) {
+                int kind = Short.toUnsignedInt(buffer.getShort());
+                int start = Short.toUnsignedInt(buffer.getShort());
+                int length = Short.toUnsignedInt(buffer.getShort());
+                buffer.getShort();
+                if (kind > DATA || start + length > MainMemory.MEMORY_SIZE) {
+                    throw new IllegalArgumentException("Imagem inválida: segmento " + s + " fora da memória");
+                }
+                short[] words = new short[length];
+                buffer.asShortBuffer().get(words);
+                buffer.position(buffer.position() + length * 2);
+                segments.add(new Segment(kind, start, words));
+            }
+
+            Map<String, Integer> symbols = new LinkedHashMap<>();
+            for (int s = 0; s < symbolCount; s++) {
+                int address = Short.toUnsignedInt(buffer.getShort());
+                byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+                buffer.get(name);
+                symbols.put(new String(name, StandardCharsets.UTF_8), address);
+            }
+
+            int[] lines = new int[lineCount];
+            buffer.asIntBuffer().get(lines);
+            return new ProgramImage(List.copyOf(segments), Collections.unmodifiableMap(symbols), lines);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Imagem inválida: arquivo truncado");
+        }
+    }
+
+    /** CRC-32 dos bytes após o cabeçalho (de {@code buffer}, posição 0 ao limite). */
+    private static int checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(HEADER_SIZE));
+        return (int) crc.getValue();
+    }
+}
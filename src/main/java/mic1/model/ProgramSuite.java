@@ -0,0 +1,192 @@
+package mic1.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Conjunto de programas de referência, empacotado em
+ * {@code src/main/resources/mic1/programs}: cada {@code NOME.asm} vem com
+ * um {@code NOME.expected} que descreve o estado final da máquina depois
+ * que a CPU para. Serve de carga de trabalho comum (executor em lote,
+ * benchmarks) e de oráculo para comparar os modos de execução.
+ *
+ * Formato do {@code .expected} (uma chave por linha, '/' inicia comentário):
+ *
+ * <pre>
+ * halt SELF_LOOP
+ * steps 373
+ * pc 17
+ * ac 5535
+ * sp 4095
+ * mem 4092 5535     (endereço e valor de cada palavra que mudou em
+ *                    relação ao programa carregado)
+ * </pre>
+ */
+public final class ProgramSuite {
+
+    /** Diretório (nos recursos) dos programas. */
+    private static final String DIRECTORY = "/mic1/programs/";
+
+    /** Os programas do conjunto, na ordem de execução. */
+    public static final List<String> NAMES = List.of(
+            "multiply", "bubble_sort", "fibonacci", "stack_loop", "self_modifying");
+
+    /** Limite de instruções por programa (todos param bem antes). */
+    public static final long MAX_STEPS = 10_000_000L;
+
+    /** Estado final esperado de um programa. */
+    public record Expected(CPU.HaltReason halt, long steps, int pc, int ac, int sp,
+                           Map<Integer, Integer> changedWords) {
+
+        /**
+         * Lê o estado final de uma máquina que executou o programa.
+         *
+         * @param initial a memória logo após carregar o programa.
+         */
+        public static Expected of(CPU cpu, MainMemory memory, MainMemory.Snapshot initial) {
+            Map<Integer, Integer> changed = new TreeMap<>();
+            for (int address = 0; address < MainMemory.MEMORY_SIZE; address++) {
+                if (memory.read(address) != initial.read(address)) {
+                    changed.put(address, memory.read(address));
+                }
+            }
+            return new Expected(cpu.getHaltReason(), cpu.getSteps(), cpu.getPc(), cpu.getAc(), cpu.getSp(), changed);
+        }
+
+        /**
+         * Converte o texto de um arquivo {@code .expected}.
+         *
+         * @throws IllegalArgumentException se uma linha for inválida.
+         */
+        public static Expected parse(String text) {
+            CPU.HaltReason halt = CPU.HaltReason.NONE;
+            long steps = 0;
+            int pc = 0, ac = 0, sp = 0;
+            Map<Integer, Integer> changed = new TreeMap<>();
+            String[] lines = text.split("\n");
+            for (int i = 0; i < lines.length; i++) {
+                String line = lines[i];
+                int comment = line.indexOf('/');
+                String[] parts = (comment >= 0 ? line.substring(0, comment) : line).trim().split("\\s+");
+                if (parts[0].isEmpty()) {
+                    continue;
+                }
+                try {
+                    switch (parts[0].toLowerCase(Locale.ROOT)) {
+                        case "halt" -> halt = CPU.HaltReason.valueOf(parts[1]);
+                        case "steps" -> steps = Long.parseLong(parts[1]);
+                        case "pc" -> pc = Integer.parseInt(parts[1]);
+                        case "ac" -> ac = Integer.parseInt(parts[1]);
+                        case "sp" -> sp = Integer.parseInt(parts[1]);
+                        case "mem" -> changed.put(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                        default -> throw new IllegalArgumentException("chave desconhecida '" + parts[0] + "'");
+                    }
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Linha " + (i + 1) + " inválida: '" + line + "'", e);
+                }
+            }
+            return new Expected(halt, steps, pc, ac, sp, changed);
+        }
+
+        /** O texto no formato do arquivo {@code .expected}. */
+        public String format() {
+            StringBuilder text = new StringBuilder()
+                    .append("halt ").append(halt).append('\n')
+                    .append("steps ").append(steps).append('\n')
+                    .append("pc ").append(pc).append('\n')
+                    .append("ac ").append(ac).append('\n')
+                    .append("sp ").append(sp).append('\n');
+            changedWords.forEach((address, value) ->
+                    text.append("mem ").append(address).append(' ').append(value).append('\n'));
+            return text.toString();
+        }
+
+        /**
+         * Compara com outro estado (o obtido).
+         *
+         * @return as diferenças, uma por item (vazia se forem iguais).
+         */
+        public List<String> differences(Expected actual) {
+            List<String> differences = new ArrayList<>();
+            compare(differences, "halt", halt, actual.halt);
+            compare(differences, "steps", steps, actual.steps);
+            compare(differences, "pc", pc, actual.pc);
+            compare(differences, "ac", ac, actual.ac);
+            compare(differences, "sp", sp, actual.sp);
+            Map<Integer, Integer> all = new TreeMap<>(changedWords);
+            actual.changedWords.forEach(all::putIfAbsent);
+            for (int address : all.keySet()) {
+                compare(differences, "mem[" + address + "]", changedWords.get(address), actual.changedWords.get(address));
+            }
+            return differences;
+        }
+
+        private static void compare(List<String> differences, String what, Object expected, Object actual) {
+            if (!Objects.equals(expected, actual)) {
+                differences.add(what + ": esperado " + (expected != null ? expected : "inalterado")
+                        + ", obtido " + (actual != null ? actual : "inalterado"));
+            }
+        }
+    }
+
+    /** Um programa do conjunto. */
+    public record Entry(String name, String source, Expected expected) {
+
+        /**
+         * Monta, carrega e executa o programa em uma máquina (a CPU e o
+         * SourceCode já ligados à memória), até a CPU parar.
+         *
+         * @return o estado final obtido.
+         * @throws IllegalStateException se o programa não montar ou não
+         *         puder ser gravado na memória.
+         */
+        public Expected run(SourceCode sourceCode, MainMemory memory, CPU cpu) {
+            sourceCode.assemblyCodeProperty().set(source);
+            sourceCode.assemble();
+            if (!sourceCode.isAssembled()) {
+                throw new IllegalStateException(name + ": " + sourceCode.getErrorMessage());
+            }
+            sourceCode.writeToMemory();
+            if (!sourceCode.isWritten()) {
+                throw new IllegalStateException(name + ": " + sourceCode.getErrorMessage());
+            }
+            MainMemory.Snapshot initial = memory.snapshot();
+            cpu.reset();
+            cpu.run(MAX_STEPS);
+            return Expected.of(cpu, memory, initial);
+        }
+    }
+
+    private ProgramSuite() {
+        // Impede a instanciação
+    }
+
+    /**
+     * Lê o conjunto de programas dos recursos.
+     *
+     * @throws IOException se algum arquivo não puder ser lido.
+     */
+    public static List<Entry> load() throws IOException {
+        List<Entry> entries = new ArrayList<>(NAMES.size());
+        for (String name : NAMES) {
+            entries.add(new Entry(name, resource(name + ".asm"), Expected.parse(resource(name + ".expected"))));
+        }
+        return entries;
+    }
+
+    private static String resource(String file) throws IOException {
+        try (InputStream in = ProgramSuite.class.getResourceAsStream(DIRECTORY + file)) {
+            if (in == null) {
+                throw new IOException("Recurso não encontrado: " + DIRECTORY + file);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -1,39 +1,164 @@
 package mic1.model;
 
-// Importe os modelos que os Controles precisam orquestrar
-import mic1.model.CPU;
-import mic1.model.MainMemory;
-import mic1.model.SourceCode;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.LongProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleLongProperty;
 
 /**
  * O "Cérebro" (Backend) dos Controles de Simulação. (MODELO)
  *
  * Responsabilidades:
- * 1. Manter o estado da simulação (Ex: rodando, pausado, velocidade).
- * 2. Conter a lógica para 'Play', 'Pause', 'Reset', 'Step'.
- * 3. Orquestrar os outros modelos (chamar cpu.executeCycle(), memory.clear(), etc.).
+ * 1. Manter o estado da simulação (Ex: rodando, pausado, tamanho do lote).
+ * 2. Conter a lógica para 'Play', 'Pause', 'Stop', 'Reset', 'Step'.
+ * 3. Orquestrar os outros modelos (chamar cpu.run(), memory.reload(), etc.).
+ *
+ * A CPU executa em uma thread dedicada ("mic1-simulation"), em lotes de
+ * {@link #batchSizeProperty()} instruções; a thread do JavaFX fica livre e
+ * as janelas são atualizadas uma vez por quadro (ver Main). Todo comando que
+ * altera a CPU ou a memória (inclusive a gravação do programa,
+ * {@link #writeProgram()}) é enfileirado nessa thread, então a CPU e a
+ * memória nunca são alteradas por duas threads ao mesmo tempo. Um pedido de
+ * pausa é atendido ao fim do lote corrente.
+ *
+ * A velocidade pode ser limitada ({@link #targetSpeedProperty()}, de 1
+ * instrução por segundo até "ilimitada"). Com um limite, o lote passa a ter
+ * o número de instruções de uma fatia de tempo ({@link #SLICE_NANOS}) e,
+ * depois de cada lote, a thread espera até o instante em que aquele número
+ * de instruções deveria ter terminado: dorme (park) a maior parte da espera
+ * e gira só no final, para acertar o ritmo sem ocupar um núcleo inteiro.
+ * A velocidade real é medida e publicada em {@link #measuredSpeedProperty()}.
+ *
+ * Com {@link #historyEnabledProperty()} ligado, a CPU grava o histórico de
+ * execução e a simulação pode voltar ({@link #stepBack()},
+ * {@link #runBackwards()}).
+ *
+ * Com {@link #profilingEnabledProperty()} ligado, a CPU conta cada instrução
+ * executada ({@link Profiler}) e, ao fim de cada execução, o relatório é
+ * publicado em {@link #profileReportProperty()}.
+ *
+ * Os métodos públicos devem ser chamados na thread do JavaFX.
  */
 public class SimulationControls {
 
+    /** Tamanho padrão do lote (instruções entre duas verificações de pausa). */
+    public static final int DEFAULT_BATCH_SIZE = 100_000;
+
+    /** Valor de {@link #targetSpeedProperty()} para velocidade ilimitada. */
+    public static final long UNLIMITED = 0;
+
+    /** Maior velocidade alvo aceita (instruções por segundo). */
+    public static final long MAX_TARGET_SPEED = 1_000_000_000L;
+
+    /** Duração de um lote quando a velocidade é limitada (5 ms). */
+    static final long SLICE_NANOS = 5_000_000L;
+
+    /** Parte final da espera feita girando (mais precisa que park). */
+    private static final long SPIN_NANOS = 100_000L;
+
+    /** Maior park contínuo (a pausa é conferida entre um e outro). */
+    private static final long MAX_PARK_NANOS = 10_000_000L;
+
+    /** Atraso a partir do qual o ritmo recomeça em vez de tentar recuperar. */
+    private static final long MAX_LAG_NANOS = 100_000_000L;
+
+    /** Intervalo entre duas medições da velocidade real. */
+    private static final long METER_NANOS = 250_000_000L;
+
+    /** Linhas das seções de laços e de endereços do relatório do perfil. */
+    private static final int PROFILE_REPORT_LIMIT = 20;
+
     // --- Dependências (os modelos que este orquestra) ---
     private CPU cpu;
     private MainMemory memory;
     private SourceCode sourceCode;
 
-    // TODO: Adicionar propriedades do estado da simulação
-    // Ex: private final BooleanProperty isRunning = new SimpleBooleanProperty(false);
-    // Ex: private final StringProperty simulationSpeed = new SimpleStringProperty("1000");
+    /**
+     * O programa gravado na memória por {@link #writeProgram()} (só na
+     * thread da simulação), usado no relatório do perfil: o do editor pode
+     * já ter mudado.
+     */
+    private ProgramImage loadedProgram;
+
+    /** Thread dedicada da simulação (uma só, os comandos rodam em ordem). */
+    private final ExecutorService simulation = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "mic1-simulation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Executa tarefas na thread do JavaFX (Platform::runLater). */
+    private final Executor fxThread;
+
+    /** Pedido de pausa, lido pela thread da simulação entre um lote e outro. */
+    private volatile boolean pauseRequested;
+
+    /** Cópia de {@link #targetSpeed} lida pela thread da simulação. */
+    private volatile long targetIps = UNLIMITED;
+
+    // --- Estado da simulação (propriedades da thread do JavaFX) ---
+    private final ReadOnlyBooleanWrapper running = new ReadOnlyBooleanWrapper(false);
+    private final IntegerProperty batchSize = new SimpleIntegerProperty(DEFAULT_BATCH_SIZE);
+    private final ReadOnlyObjectWrapper<Breakpoints.Hit> breakpointHit = new ReadOnlyObjectWrapper<>();
+    private final LongProperty targetSpeed = new SimpleLongProperty(UNLIMITED);
+    private final ReadOnlyDoubleWrapper measuredSpeed = new ReadOnlyDoubleWrapper(0);
+    private final BooleanProperty historyEnabled = new SimpleBooleanProperty(false);
+    private final BooleanProperty profilingEnabled = new SimpleBooleanProperty(false);
+    private final ReadOnlyStringWrapper profileReport = new ReadOnlyStringWrapper("");
 
     /**
      * Construtor dos Controles de Simulação.
      */
     public SimulationControls() {
+        this(Platform::runLater);
+    }
+
+    /**
+     * @param fxThread executor usado para atualizar as propriedades ao fim
+     *                 de uma execução (na aplicação, Platform::runLater).
+     */
+    public SimulationControls(Executor fxThread) {
+        this.fxThread = fxThread;
+        // A velocidade pode mudar durante uma execução: a thread da
+        // simulação relê o alvo a cada lote.
+        targetSpeed.addListener((obs, old, value) ->
+                targetIps = Math.min(Math.max(value.longValue(), UNLIMITED), MAX_TARGET_SPEED));
+        // O histórico é ligado/desligado entre dois lotes, na thread da simulação.
+        historyEnabled.addListener((obs, old, value) -> {
+            if (cpu != null) {
+                simulation.execute(() -> cpu.setHistoryEnabled(value));
+            }
+        });
+        // O perfil também, e o relatório é refeito (ou apagado) em seguida.
+        profilingEnabled.addListener((obs, old, value) -> {
+            if (cpu != null) {
+                simulation.execute(() -> {
+                    cpu.setProfilingEnabled(value);
+                    publishProfile();
+                });
+            }
+        });
         System.out.println("Modelo de Controles criado.");
     }
 
-    // --- (MÉTODOS ADICIONADOS) ---
     // Permitem que o Main.java injete os outros modelos.
-    // Isso corrige os erros em Main.java.
 
     public void linkCpu(CPU cpu) {
         this.cpu = cpu;
@@ -47,25 +172,362 @@ public class SimulationControls {
         this.sourceCode = sourceCode;
     }
 
-    // --- Lógica de Negócio (a ser implementada) ---
-
-    // TODO: Implementar a lógica que o 'SimulationControlsController' chamará
-    
-    // public void play() {
-    //     System.out.println("Play (Lógica do Modelo)");
-    //     // Iniciar o loop de simulação (ex: usando um Timeline ou Service do JavaFX)
-    //     // Dentro do loop: cpu.executeCycle();
-    // }
-    
-    // public void pause() {
-    //     System.out.println("Pause (Lógica do Modelo)");
-    //     // Parar o loop de simulação
-    // }
-    
-    // public void reset() {
-    //     System.out.println("Reset (Lógica do Modelo)");
-    //     // pause();
-    //     // memory.clearMemory();
-    //     // cpu.resetRegisters();
-    // }
-}
\ No newline at end of file
+    // --- Comandos de execução ---
+
+    /** Executa uma única macroinstrução. */
+    public void step() {
+        stepN(1);
+    }
+
+    /**
+     * Executa até {@code count} macroinstruções (menos se a CPU parar ou
+     * houver um pedido de pausa).
+     */
+    public void stepN(long count) {
+        start(count, 0, true);
+    }
+
+    /** Executa até a CPU parar ou até {@link #pause()}, ignorando os breakpoints. */
+    public void play() {
+        start(Long.MAX_VALUE, 0, false);
+    }
+
+    /**
+     * Executa até a CPU atingir um breakpoint/watchpoint (ver
+     * {@link #breakpointHitProperty()}), parar ou ser pausada.
+     */
+    public void runUntilBreakpoint() {
+        start(Long.MAX_VALUE, 0, true);
+    }
+
+    /**
+     * Executa por aproximadamente {@code millis} milissegundos (o tempo é
+     * conferido ao fim de cada lote).
+     */
+    public void runFor(long millis) {
+        start(Long.MAX_VALUE, Math.max(1, millis), true);
+    }
+
+    /**
+     * Pede que a execução corrente pare ao fim do lote em andamento.
+     */
+    public void pause() {
+        pauseRequested = true;
+    }
+
+    /**
+     * Para a execução e volta os registradores ao estado inicial, mantendo
+     * a memória.
+     */
+    public void stop() {
+        pause();
+        if (cpu != null) {
+            simulation.execute(() -> {
+                cpu.reset();
+                publishProfile();
+            });
+        }
+    }
+
+    /**
+     * Para a execução, volta a memória ao programa carregado (sem montar nem
+     * gravar de novo; ver {@link MainMemory#reload()}) e os registradores ao
+     * estado inicial.
+     */
+    public void reset() {
+        pause();
+        simulation.execute(() -> {
+            if (memory != null) {
+                memory.reload();
+            }
+            if (cpu != null) {
+                cpu.reset();
+                publishProfile();
+            }
+        });
+    }
+
+    /**
+     * Grava o programa da última montagem na memória (botão "Write code to
+     * Main Memory"): para a execução e carrega a memória na thread da
+     * simulação, depois do lote em andamento. Os registradores não mudam.
+     */
+    public void writeProgram() {
+        if (sourceCode == null) {
+            return;
+        }
+        pause();
+        sourceCode.writeToMemory(simulation, image -> loadedProgram = image, fxThread);
+    }
+
+    // --- Execução reversa ---
+
+    /**
+     * Desfaz a última instrução executada (com o histórico ligado e a
+     * simulação parada).
+     */
+    public void stepBack() {
+        startReverse(false);
+    }
+
+    /**
+     * Executa para trás até o breakpoint/watchpoint anterior, ou até o
+     * início do histórico.
+     */
+    public void runBackwards() {
+        startReverse(true);
+    }
+
+    private void startReverse(boolean untilBreakpoint) {
+        if (cpu == null || running.get() || !historyEnabled.get()) {
+            return;
+        }
+        running.set(true);
+        breakpointHit.set(null);
+        simulation.execute(() -> {
+            try {
+                if (untilBreakpoint) {
+                    cpu.reverseContinue(Long.MAX_VALUE);
+                } else {
+                    cpu.stepBack();
+                }
+                Breakpoints.Hit hit = cpu.getBreakpointHit();
+                if (hit != null) {
+                    System.out.println("Simulação: Parada (para trás) em " + hit + ".");
+                    fxThread.execute(() -> breakpointHit.set(hit));
+                }
+            } finally {
+                fxThread.execute(() -> running.set(false));
+            }
+        });
+    }
+
+    // --- Breakpoints e watchpoints ---
+
+    /**
+     * Substitui os pontos de parada de um tipo pelos descritos em
+     * {@code specs}, separados por vírgula. Cada ponto é um endereço ou um
+     * símbolo (label/variável) da última montagem, seguido opcionalmente de
+     * uma condição: {@code "LOOP, 12 if AC < 0"}. A troca é feita de uma só
+     * vez ({@link Breakpoints#replace}), inclusive durante uma execução.
+     *
+     * @throws IllegalArgumentException se algum ponto for inválido (nesse
+     *         caso os pontos do tipo não são alterados).
+     */
+    public void setBreakpoints(Breakpoints.Kind kind, String specs) {
+        if (cpu == null) {
+            return;
+        }
+        List<String> items = specs.isBlank() ? List.of() : List.of(specs.split(","));
+        int[] addresses = new int[items.size()];
+        Breakpoints.Condition[] conditions = new Breakpoints.Condition[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            String item = items.get(i).trim();
+            int split = item.toLowerCase(Locale.ROOT).indexOf(" if ");
+            String target = split < 0 ? item : item.substring(0, split).trim();
+            conditions[i] = split < 0 ? null : Breakpoints.Condition.parse(item.substring(split + 4));
+            addresses[i] = resolveAddress(target);
+        }
+
+        cpu.getBreakpoints().replace(kind, addresses, conditions);
+    }
+
+    /**
+     * Converte um endereço (0-4095) ou símbolo da última montagem em endereço.
+     */
+    private int resolveAddress(String target) {
+        if (!target.isEmpty() && Character.isDigit(target.charAt(0))) {
+            int address;
+            try {
+                address = Integer.parseInt(target);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Endereço inválido: '" + target + "'");
+            }
+            if (address < 0 || address >= MainMemory.MEMORY_SIZE) {
+                throw new IllegalArgumentException("Endereço fora da memória: " + address);
+            }
+            return address;
+        }
+        int address = sourceCode != null ? sourceCode.getSymbolAddress(target) : -1;
+        if (address < 0) {
+            throw new IllegalArgumentException("Símbolo '" + target + "' não definido na última montagem");
+        }
+        return address;
+    }
+
+    /**
+     * Inicia uma execução na thread da simulação (se nenhuma estiver em
+     * andamento).
+     *
+     * @param maxSteps número máximo de instruções.
+     * @param millis duração máxima em milissegundos (0 = sem limite).
+     * @param stopAtBreakpoints se a execução para nos breakpoints/watchpoints.
+     */
+    private void start(long maxSteps, long millis, boolean stopAtBreakpoints) {
+        if (cpu == null || running.get() || maxSteps <= 0) {
+            return;
+        }
+        // Os valores das propriedades são lidos aqui, na thread do JavaFX.
+        int batch = Math.max(1, batchSize.get());
+        pauseRequested = false;
+        running.set(true);
+        breakpointHit.set(null);
+        simulation.execute(() -> {
+            try {
+                execute(maxSteps, millis, batch, stopAtBreakpoints);
+                publishProfile();
+            } finally {
+                fxThread.execute(() -> running.set(false));
+            }
+        });
+    }
+
+    /**
+     * Laço de execução (thread da simulação): roda lotes de até
+     * {@code batch} instruções até esgotar os passos, a CPU parar, o tempo
+     * acabar, o breakpoint ser atingido ou a pausa ser pedida.
+     */
+    private void execute(long maxSteps, long millis, int batch, boolean stopAtBreakpoints) {
+        long now = System.nanoTime();
+        long deadline = millis > 0 ? now + millis * 1_000_000L : Long.MAX_VALUE;
+        long remaining = maxSteps;
+
+        // Ritmo: 'paced' instruções executadas desde 'paceStart' (sempre
+        // menos de um segundo de instruções, para não estourar o long).
+        long paceTarget = UNLIMITED;
+        long paceStart = now;
+        long paced = 0;
+
+        // Medição da velocidade real.
+        long meterStart = now;
+        long metered = 0;
+
+        try {
+            while (remaining > 0 && !pauseRequested && !cpu.isHalted()) {
+                long target = targetIps;
+                if (target != paceTarget) {
+                    paceTarget = target;
+                    paceStart = System.nanoTime();
+                    paced = 0;
+                }
+                long budget = Math.min(batchFor(target, batch), remaining);
+                long n = cpu.run(budget, stopAtBreakpoints);
+                Breakpoints.Hit hit = cpu.getBreakpointHit();
+                if (hit != null) {
+                    System.out.println("Simulação: Parada em " + hit + ".");
+                    fxThread.execute(() -> breakpointHit.set(hit));
+                }
+                remaining -= n;
+                metered += n;
+
+                now = System.nanoTime();
+                if (now - meterStart >= METER_NANOS) {
+                    double speed = metered * 1e9 / (now - meterStart);
+                    fxThread.execute(() -> measuredSpeed.set(speed));
+                    meterStart = now;
+                    metered = 0;
+                }
+                if (n == 0 || hit != null || now >= deadline) {
+                    break;
+                }
+
+                if (target != UNLIMITED) {
+                    paced += n;
+                    if (paced >= target) {
+                        paced -= target;
+                        paceStart += 1_000_000_000L;
+                    }
+                    long due = paceStart + paced * 1_000_000_000L / target;
+                    if (now - due > MAX_LAG_NANOS) {
+                        // A CPU não acompanha o alvo: recomeça o ritmo em vez
+                        // de executar uma rajada para recuperar o atraso.
+                        paceStart = now;
+                        paced = 0;
+                    } else {
+                        waitUntil(Math.min(due, deadline));
+                    }
+                }
+            }
+        } finally {
+            fxThread.execute(() -> measuredSpeed.set(0));
+        }
+    }
+
+    /**
+     * Gera o relatório do perfil (thread da simulação), com as labels e
+     * linhas do programa gravado na memória, e o publica na thread do
+     * JavaFX; com o perfil desligado, publica um texto vazio.
+     */
+    private void publishProfile() {
+        Profiler profiler = cpu.getProfiler();
+        String report = profiler == null ? ""
+                : profiler.report(loadedProgram, PROFILE_REPORT_LIMIT);
+        fxThread.execute(() -> profileReport.set(report));
+    }
+
+    /**
+     * Tamanho do lote para uma velocidade alvo: as instruções de uma fatia
+     * de {@link #SLICE_NANOS} (pelo menos 1), limitadas a {@code batch}.
+     */
+    static long batchFor(long target, int batch) {
+        if (target == UNLIMITED) {
+            return batch;
+        }
+        return Math.max(1, Math.min(batch, target * SLICE_NANOS / 1_000_000_000L));
+    }
+
+    /**
+     * Espera até o instante {@code due} (System.nanoTime), ou até um pedido
+     * de pausa: park enquanto falta mais que {@link #SPIN_NANOS}, e gira no
+     * restante.
+     */
+    private void waitUntil(long due) {
+        while (!pauseRequested) {
+            long left = due - System.nanoTime();
+            if (left <= 0) {
+                return;
+            }
+            if (left > SPIN_NANOS) {
+                LockSupport.parkNanos(Math.min(left - SPIN_NANOS, MAX_PARK_NANOS));
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    // --- Propriedades ---
+
+    /** Indica se há uma execução em andamento na thread da simulação. */
+    public ReadOnlyBooleanProperty runningProperty() { return running.getReadOnlyProperty(); }
+    public boolean isRunning() { return running.get(); }
+
+    /** Instruções por lote (entre duas verificações de pausa). */
+    public IntegerProperty batchSizeProperty() { return batchSize; }
+
+    /** Último breakpoint/watchpoint atingido (null desde o início da execução). */
+    public ReadOnlyObjectProperty<Breakpoints.Hit> breakpointHitProperty() { return breakpointHit.getReadOnlyProperty(); }
+
+    /**
+     * Velocidade alvo em instruções por segundo ({@link #UNLIMITED} = sem
+     * limite). Pode ser alterada durante a execução.
+     */
+    public LongProperty targetSpeedProperty() { return targetSpeed; }
+
+    /** Velocidade real medida (instruções por segundo; 0 quando parada). */
+    public ReadOnlyDoubleProperty measuredSpeedProperty() { return measuredSpeed.getReadOnlyProperty(); }
+
+    /**
+     * Se a CPU grava o histórico de execução (permite voltar, mas executa
+     * instrução a instrução, bem mais devagar).
+     */
+    public BooleanProperty historyEnabledProperty() { return historyEnabled; }
+
+    /**
+     * Se a CPU conta as instruções executadas por endereço (perfil exato,
+     * também instrução a instrução).
+     */
+    public BooleanProperty profilingEnabledProperty() { return profilingEnabled; }
+
+    /** Relatório do perfil ao fim da última execução (vazio sem perfil). */
+    public ReadOnlyStringProperty profileReportProperty() { return profileReport.getReadOnlyProperty(); }
+}
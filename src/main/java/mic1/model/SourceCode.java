@@ -1,66 +1,95 @@
 package mic1.model;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import javafx.beans.binding.StringBinding;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
-import java.util.HashMap;
-import java.util.Map;
+import javafx.beans.value.ObservableStringValue;
 
 /**
  * Modelo responsável pelo código-fonte exibido na janela "Source Code".
  *
  * Esta classe fornece:
  * - Propriedades para ligação (data-binding) com a view.
- * - Um montador (assembler) simplificado em duas passagens para traduzir
- *   o código assembly em representações binárias textuais.
- * - Função para gravar o código compilado na memória principal.
+ * - A montagem do código assembly para uma imagem binária ({@code short[]}),
+ *   feita pelo {@link Assembler}, e a montagem "ao vivo" a cada edição
+ *   ({@link IncrementalAssembler}), que só analisa de novo as linhas alteradas.
+ * - Uma listagem textual do código compilado, gerada sob demanda (apenas
+ *   quando a UI pede o texto).
+ * - Função para gravar a imagem binária na memória principal.
  */
 public class SourceCode {
 
     /** Código assembly editável pela UI. */
     private final StringProperty assemblyCode = new SimpleStringProperty("");
 
-    /** Texto com o código compilado ou mensagens de estado/erro. */
-    private final StringProperty compiledCode = new SimpleStringProperty(
-            "Pressione 'Assemble' para compilar.\n\n" +
-            "Pressione 'Write code to Main Memory' para enviar os dados para a memória principal."
-    );
+    /** Estado da saída do montador, usado para gerar o texto da listagem. */
+    private enum OutputState { INITIAL, ASSEMBLED, ASSEMBLY_ERROR, WRITTEN, WRITE_ERROR }
+
+    /**
+     * Texto com o código compilado ou mensagens de estado/erro. É calculado
+     * apenas quando alguém lê o valor (ex: a TextArea da janela).
+     */
+    private final StringBinding compiledCode = new StringBinding() {
+        @Override
+        protected String computeValue() {
+            return buildListing();
+        }
+    };
+
+    private OutputState outputState = OutputState.INITIAL;
+
+    /** Indica se a imagem corresponde a uma montagem sem erros. */
+    private boolean assembled;
+
+    /** Mensagem do último erro de montagem ou de gravação na memória. */
+    private String errorMessage;
+
+    /** Listagem anterior ao erro "memória não conectada" (exibida junto). */
+    private String previousListing;
+
+    /** Resultado da última montagem bem-sucedida (null se não houver). */
+    private Assembler.Program program;
 
     /** Referência ao modelo de memória principal (injetada por Main). */
     private MainMemory mainMemory;
 
-    /* Tabela de símbolos (labels e variáveis) construída na primeira passagem. */
-    private final Map<String, Integer> symbolTable = new HashMap<>();
+    /** Montador de uma passagem (reaproveitado entre montagens). */
+    private final Assembler assembler = new Assembler();
 
-    /* Mapeamento de mnemônicos para seus opcodes binários (como texto). */
-    private final Map<String, String> opcodes = new HashMap<>();
+    /** Montador incremental usado na montagem ao vivo. */
+    private final IncrementalAssembler incrementalAssembler = new IncrementalAssembler();
+
+    /** Se verdadeiro, o código é montado a cada edição de {@code assemblyCode}. */
+    private final BooleanProperty liveAssembly = new SimpleBooleanProperty(true);
 
     /**
-     * Inicializa a tabela de opcodes conhecida pelo montador.
+     * Registra a montagem ao vivo: cada alteração do código assembly (ex: uma
+     * tecla digitada na TextArea) atualiza a listagem e as mensagens de erro.
      */
     public SourceCode() {
-        opcodes.put("LODD", "0000");
-        opcodes.put("STOD", "0001");
-        opcodes.put("ADDD", "0010");
-        opcodes.put("SUBD", "0011");
-        opcodes.put("JPOS", "0100");
-        opcodes.put("JZER", "0101");
-        opcodes.put("JUMP", "0110");
-        opcodes.put("LOCO", "0111");
-        opcodes.put("LODL", "1000");
-        opcodes.put("STOL", "1001");
-        opcodes.put("ADDL", "1010");
-        opcodes.put("SUBL", "1011");
-        opcodes.put("JNEG", "1100");
-        opcodes.put("JNZE", "1101");
-        opcodes.put("CALL", "1110");
-        opcodes.put("PSHI", "1111000000000000");
-        opcodes.put("POPI", "1111001000000000");
-        opcodes.put("PUSH", "1111010000000000");
-        opcodes.put("POP",  "1111011000000000");
-        opcodes.put("RETN", "1111100000000000");
-        opcodes.put("SWAP", "1111101000000000");
-        opcodes.put("INSP", "11111100");
-        opcodes.put("DESP", "11111110");
+        assemblyCode.addListener((obs, oldText, newText) -> {
+            if (liveAssembly.get()) {
+                assembleIncremental(newText);
+            }
+        });
+        liveAssembly.addListener((obs, wasLive, isLive) -> {
+            if (isLive) {
+                assembleIncremental(assemblyCode.get());
+            }
+        });
+    }
+
+    /** Propriedade que liga/desliga a montagem ao vivo (ligada por padrão). */
+    public BooleanProperty liveAssemblyProperty() {
+        return liveAssembly;
     }
 
     /** Retorna a propriedade do código assembly para uso em data-binding. */
@@ -68,11 +97,59 @@ public class SourceCode {
         return assemblyCode;
     }
 
-    /** Retorna a propriedade do código compilado/saida do montador. */
-    public StringProperty compiledCodeProperty() {
+    /**
+     * Retorna o texto do código compilado/saída do montador, para uso em
+     * data-binding. A listagem só é formatada quando o valor é lido.
+     */
+    public ObservableStringValue compiledCodeProperty() {
         return compiledCode;
     }
 
+    /** Indica se a última montagem terminou sem erros. */
+    public boolean isAssembled() {
+        return assembled;
+    }
+
+    /**
+     * Indica se a última montagem foi gravada na memória sem erro (ver
+     * {@link #writeToMemory()}); depois de uma nova montagem, volta a ser
+     * falso até a próxima gravação.
+     */
+    public boolean isWritten() {
+        return outputState == OutputState.WRITTEN;
+    }
+
+    /** Mensagem do último erro de montagem/gravação, ou {@code null}. */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * Endereço de um label ou variável da última montagem.
+     *
+     * @param name o nome do símbolo.
+     * @return o endereço, ou -1 se o símbolo não existir (ou não houver montagem).
+     */
+    public int getSymbolAddress(String name) {
+        Assembler.Program p = program;
+        Integer address = p != null ? p.symbols.get(name) : null;
+        return address != null ? address : -1;
+    }
+
+    /**
+     * Imagem binária (ver {@link ProgramImage}) da última montagem, ou null
+     * se a última montagem falhou.
+     */
+    public ProgramImage getProgramImage() {
+        Assembler.Program p = program;
+        return p != null ? ProgramImage.of(p) : null;
+    }
+
+    /** Retorna uma cópia da imagem binária gerada pela última montagem. */
+    public short[] getImage() {
+        return program != null ? program.getImage() : new short[0];
+    }
+
     /**
      * Injeta a instância de MainMemory a ser usada para operações de escrita.
      * @param memory instância de MainMemory
@@ -82,164 +159,187 @@ public class SourceCode {
     }
 
     /**
-     * Montador em duas passagens.
-     *
-     * Passagem 1: constrói a tabela de símbolos (labels e variáveis).
-     * Passagem 2: gera a representação binária textual das instruções.
+     * Monta o código assembly com o {@link Assembler} (uma passagem, com
+     * correção de referências à frente).
      *
-     * Em caso de erro, a propriedade {@code compiledCode} recebe uma
-     * mensagem de erro descritiva para exibição na UI.
+     * Em caso de erro, a propriedade {@code compiledCode} passa a exibir uma
+     * mensagem de erro descritiva na UI, com a linha e a coluna do erro.
      */
     public void assemble() {
-        symbolTable.clear();
-        StringBuilder compiledText = new StringBuilder();
-        String[] lines = assemblyCode.get().split("\n");
-        int currentAddress = 0;
-        int variableAddress = 4095;
+        try {
+            assembled(assembler.assemble(assemblyCode.get()));
+        } catch (AssemblyException e) {
+            failed(e);
+        }
+    }
 
+    /**
+     * Monta um código-fonte lido em partes (ex: um arquivo grande), sem
+     * guardá-lo em {@link #assemblyCodeProperty()}: cada linha é analisada
+     * assim que é lida. O resultado e os erros são tratados como em
+     * {@link #assemble()}.
+     *
+     * @param source o código assembly (não é fechado).
+     * @throws IOException se a leitura falhar.
+     */
+    public void assemble(Reader source) throws IOException {
         try {
-            /* PASSAGEM 1: identificar todos os símbolos (labels e variáveis). */
-            for (String rawLine : lines) {
-                String line = rawLine.trim();
-                if (line.isEmpty() || line.startsWith("/")) {
-                    continue;
-                }
+            assembled(assembler.assemble(source));
+        } catch (AssemblyException e) {
+            failed(e);
+        }
+    }
 
-                if (line.contains(":")) {
-                    String[] parts = line.split(":", 2);
-                    String label = parts[0].trim();
-                    String instruction = parts[1].trim();
+    /**
+     * Montagem ao vivo: analisa de novo só as linhas alteradas desde a última
+     * edição e refaz a ligação dos símbolos.
+     */
+    private void assembleIncremental(String text) {
+        try {
+            assembled(incrementalAssembler.update(text == null ? "" : text));
+        } catch (AssemblyException e) {
+            failed(e);
+        }
+    }
 
-                    if (symbolTable.containsKey(label)) {
-                        throw new RuntimeException("Erro: Label duplicado '" + label + "'");
-                    }
+    private void assembled(Assembler.Program result) {
+        program = result;
+        assembled = true;
+        outputState = OutputState.ASSEMBLED;
+        errorMessage = null;
+        compiledCode.invalidate();
+    }
 
-                    if (instruction.isEmpty()) {
-                        symbolTable.put(label, variableAddress);
-                        variableAddress--;
-                    } else {
-                        symbolTable.put(label, currentAddress);
-                    }
+    private void failed(AssemblyException e) {
+        program = null;
+        assembled = false;
+        outputState = OutputState.ASSEMBLY_ERROR;
+        errorMessage = e.getMessage();
+        compiledCode.invalidate();
+    }
 
-                    line = instruction;
+    /**
+     * Formata o texto exibido na área "compilado": a listagem
+     * ({@code binário / MNEMÔNICO operando (valor)}) ou a mensagem de estado.
+     */
+    private String buildListing() {
+        switch (outputState) {
+            case INITIAL:
+                return "Pressione 'Assemble' para compilar.\n\n" +
+                       "Pressione 'Write code to Main Memory' para enviar os dados para a memória principal.";
+            case ASSEMBLY_ERROR:
+                return "ERRO NA MONTAGEM:\n" + errorMessage + "\n\n(Verifique seu código e tente novamente)";
+            case WRITE_ERROR:
+                if (previousListing != null) {
+                    return errorMessage + "\n" + previousListing;
                 }
+                return "ERRO AO GRAVAR NA MEMÓRIA:\n" + errorMessage;
+            default:
+                break;
+        }
 
-                if (!line.isEmpty()) {
-                    currentAddress++;
-                }
-            }
+        Assembler.Program p = program;
+        StringBuilder text = new StringBuilder(p.length * 32);
+        for (int i = 0; i < p.length; i++) {
+            appendListingLine(text, p, i);
+        }
+        if (outputState == OutputState.WRITTEN) {
+            text.append("\n\n// Código gravado na Memória Principal");
+        }
+        return text.toString();
+    }
 
-            /* PASSAGEM 2: traduzir instruções usando a tabela de símbolos. */
-            currentAddress = 0;
-            for (String rawLine : lines) {
-                String line = rawLine.trim();
-                if (line.isEmpty() || line.startsWith("/")) {
-                    continue;
-                }
-                if (line.contains(":")) {
-                    line = line.split(":", 2)[1].trim();
-                }
-                if (line.isEmpty()) continue;
-
-                String[] parts = line.split("\\s+", 2);
-                String mnemonic = parts[0].toUpperCase();
-                String operand = (parts.length > 1) ? parts[1].trim() : null;
-
-                if (opcodes.containsKey(mnemonic)) {
-                    String opcode = opcodes.get(mnemonic);
-
-                    if (opcode.length() == 16) {
-                        compiledText.append(opcode).append(" / ").append(mnemonic).append("\n");
-
-                    } else if (opcode.length() == 8) {
-                        int y = Integer.parseInt(operand);
-                        if (y < 0 || y > 255) {
-                            throw new RuntimeException("Erro: Operando 'y' fora do range (0-255) na linha " + currentAddress);
-                        }
-                        String y_bits = String.format("%8s", Integer.toBinaryString(y)).replace(' ', '0');
-                        compiledText.append(opcode).append(y_bits).append(" / ").append(mnemonic).append(" ").append(y).append("\n");
-
-                    } else {
-                        int x;
-                        String x_bits;
-
-                        if (mnemonic.equals("LOCO")) {
-                            x = Integer.parseInt(operand);
-                            String bits = Integer.toBinaryString(x);
-                            if (bits.length() > 12) {
-                                x_bits = bits.substring(bits.length() - 12);
-                            } else if (x < 0) {
-                                x_bits = bits.substring(Integer.SIZE - 12);
-                            } else {
-                                x_bits = String.format("%12s", bits).replace(' ', '0');
-                            }
-                        } else {
-                            if (operand == null) {
-                                throw new RuntimeException("Erro: Mnemônico '" + mnemonic + "' requer um operando na linha " + currentAddress);
-                            }
-                            if (!symbolTable.containsKey(operand)) {
-                                throw new RuntimeException("Erro: Símbolo '" + operand + "' não definido na linha " + currentAddress);
-                            }
-                            x = symbolTable.get(operand);
-                            if (x < 0 || x > 4095) {
-                                throw new RuntimeException("Erro: Operando 'x' (símbolo '" + operand + "') fora do range (0-4095) na linha " + currentAddress);
-                            }
-                            x_bits = String.format("%12s", Integer.toBinaryString(x)).replace(' ', '0');
-                        }
-
-                        compiledText.append(opcode).append(x_bits).append(" / ").append(mnemonic).append(" ").append(operand).append(" (").append(x).append(")").append("\n");
-                    }
-                } else {
-                    throw new RuntimeException("Erro: Mnemônico desconhecido '" + mnemonic + "' na linha " + currentAddress);
-                }
-                currentAddress++;
-            }
-            compiledCode.set(compiledText.toString());
+    /**
+     * Escreve a listagem da última montagem ({@code binário / MNEMÔNICO
+     * operando (valor)}, uma linha por palavra) em {@code out}, linha a
+     * linha, sem montar o texto inteiro na memória. Não escreve nada se a
+     * última montagem falhou.
+     *
+     * @param out destino (não é fechado).
+     * @throws IOException se a escrita falhar.
+     */
+    public void writeListing(Writer out) throws IOException {
+        Assembler.Program p = program;
+        if (p == null) {
+            return;
+        }
+        StringBuilder line = new StringBuilder(64);
+        for (int i = 0; i < p.length; i++) {
+            line.setLength(0);
+            appendListingLine(line, p, i);
+            out.append(line);
+        }
+    }
 
-        } catch (Exception e) {
-            compiledCode.set("ERRO NA MONTAGEM:\n" + e.getMessage() + "\n\n(Verifique seu código e tente novamente)");
+    /** Acrescenta a linha da listagem da palavra {@code i} de {@code p}. */
+    private static void appendListingLine(StringBuilder text, Assembler.Program p, int i) {
+        text.append(MainMemory.formatBinary(p.image[i])).append(" / ").append(p.mnemonics[i]);
+        if (p.operands[i] != null) {
+            text.append(' ').append(p.operands[i]).append(" (").append(p.values[i]).append(')');
+        } else if ((p.image[i] & 0xFC00) == 0xFC00) { // INSP/DESP y
+            text.append(' ').append(p.values[i]);
         }
+        text.append('\n');
     }
 
     /**
-     * Transfere o conteúdo da propriedade {@code compiledCode} para a
-     * MainMemory. Linhas inválidas ou mensagens de erro são ignoradas.
+     * Grava a imagem binária da última montagem na MainMemory, a partir do
+     * endereço 0 (o restante da memória é zerado), na thread que chama. Com
+     * a simulação em andamento, use {@link SimulationControls#writeProgram()}.
      */
     public void writeToMemory() {
+        writeToMemory(Runnable::run, image -> { }, Runnable::run);
+    }
+
+    /**
+     * Como {@link #writeToMemory()}, mas a memória é carregada em
+     * {@code memoryThread} (a thread da simulação) e a listagem é atualizada
+     * depois, em {@code fxThread}. O programa gravado é uma cópia da imagem
+     * no momento da chamada (a montagem ao vivo altera a imagem no lugar).
+     *
+     * @param loaded recebe, em {@code memoryThread} e só se a gravação der
+     *               certo, o {@link ProgramImage} gravado (null se a memória
+     *               foi apenas limpa).
+     */
+    void writeToMemory(Executor memoryThread, Consumer<ProgramImage> loaded, Executor fxThread) {
         if (mainMemory == null) {
             System.err.println("Erro: Modelo da MainMemory não foi injetado no SourceCode.");
-            compiledCode.set("ERRO: O modelo de Memória não está conectado.\n" + compiledCode.get());
+            previousListing = compiledCode.get();
+            errorMessage = "ERRO: O modelo de Memória não está conectado.";
+            outputState = OutputState.WRITE_ERROR;
+            compiledCode.invalidate();
             return;
         }
-
-        String[] lines = compiledCode.get().split("\n");
-        int address = 0;
-
-        try {
-            mainMemory.clearMemory();
-
-            for (String line : lines) {
-                if (line.isEmpty() || line.startsWith("/") || line.startsWith("ERRO")) {
-                    continue;
-                }
-
-                String binaryCode = line.split("/")[0].trim();
-
-                if (binaryCode.length() == 16) {
-                    long longVal = Long.parseLong(binaryCode, 2);
-                    short shortVal = (short) longVal;
-                    mainMemory.write(address, shortVal);
-                    address++;
-                }
+        MainMemory memory = mainMemory;
+        // Se a última montagem falhou, a memória é apenas limpa.
+        boolean written = assembled;
+        short[] image = written ? Arrays.copyOf(program.image, program.length) : new short[0];
+        ProgramImage programImage = written ? ProgramImage.of(program) : null;
+        memoryThread.execute(() -> {
+            String failure = null;
+            try {
+                memory.load(image, image.length);
+                loaded.accept(programImage);
+            } catch (Exception e) {
+                failure = e.getMessage();
             }
+            String error = failure;
+            fxThread.execute(() -> written(memory, written, error));
+        });
+    }
 
-            if (!compiledCode.get().startsWith("ERRO")) {
-                compiledCode.set(compiledCode.get() + "\n\n// Código gravado na Memória Principal");
+    /** Atualiza a listagem e a TableView depois da gravação (ou da falha). */
+    private void written(MainMemory memory, boolean assembledProgram, String error) {
+        if (error != null) {
+            previousListing = null;
+            errorMessage = error;
+            outputState = OutputState.WRITE_ERROR;
+        } else {
+            if (assembledProgram) {
+                outputState = OutputState.WRITTEN;
             }
-            mainMemory.notifyUpdate();
-
-        } catch (Exception e) {
-            compiledCode.set("ERRO AO GRAVAR NA MEMÓRIA:\n" + e.getMessage());
+            memory.notifyUpdate();
         }
+        compiledCode.invalidate();
     }
-}
\ No newline at end of file
+}
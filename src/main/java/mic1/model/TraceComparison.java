@@ -0,0 +1,218 @@
+package mic1.model;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Comparação de dois traces ({@link TraceReader}), registro a registro.
+ *
+ * Os dois são lidos juntos, um registro de cada vez, e nenhum é carregado
+ * inteiro: dá para comparar execuções de bilhões de instruções (ex: a
+ * rotina otimizada de um aluno com a de referência, ou um modo de execução
+ * novo com o interpretador). A primeira diferença ({@link Divergence}) é
+ * guardada e a leitura continua até o fim dos dois, para as estatísticas
+ * de cada um ({@link Statistics}).
+ *
+ * Os campos são comparados na ordem do registro: PC, palavra executada,
+ * AC, SP, endereço escrito e valor escrito. Um trace que termina antes do
+ * outro diverge no campo "fim do trace".
+ */
+public final class TraceComparison {
+
+    /**
+     * A primeira diferença entre os traces.
+     *
+     * @param index o índice (a partir de 0) da instrução.
+     * @param field o campo que diferiu.
+     * @param pcA o PC da instrução no trace A (-1 se ele já terminou).
+     * @param pcB o PC da instrução no trace B (-1 se ele já terminou).
+     * @param valueA o valor do campo no trace A.
+     * @param valueB o valor do campo no trace B.
+     */
+    public record Divergence(long index, String field, int pcA, int pcB, String valueA, String valueB) {}
+
+    /** Estatísticas de um trace. */
+    public static final class Statistics {
+        private final BitSet executed = new BitSet(MainMemory.MEMORY_SIZE);
+        private final BitSet written = new BitSet(MainMemory.MEMORY_SIZE);
+        private long instructions;
+        private long writes;
+        private int minSp = CPU.INITIAL_SP;
+        private int lastPc;
+        private int lastAc;
+        private int lastSp = CPU.INITIAL_SP;
+
+        private void add(TraceReader trace) {
+            int pc = trace.getPc();
+            int sp = trace.getSp();
+            int write = trace.getWriteAddress();
+            instructions++;
+            executed.set(pc & CPU.ADDRESS_MASK);
+            if (write >= 0) {
+                writes++;
+                written.set(write);
+            }
+            if (sp < minSp) {
+                minSp = sp;
+            }
+            lastPc = pc;
+            lastAc = trace.getAc();
+            lastSp = sp;
+        }
+
+        public long getInstructions() { return instructions; }
+
+        public long getWrites() { return writes; }
+
+        /** Endereços distintos executados. */
+        public int getExecutedAddresses() { return executed.cardinality(); }
+
+        /** Endereços distintos escritos. */
+        public int getWrittenAddresses() { return written.cardinality(); }
+
+        /** Menor SP atingido (o topo da pilha no ponto mais fundo). */
+        public int getMinSp() { return minSp; }
+
+        /**
+         * Endereço da última instrução executada (não o PC depois dela, que
+         * o trace não guarda).
+         */
+        public int getLastPc() { return lastPc; }
+
+        /** AC e SP depois da última instrução. */
+        public int getLastAc() { return lastAc; }
+
+        public int getLastSp() { return lastSp; }
+    }
+
+    private final Statistics a = new Statistics();
+    private final Statistics b = new Statistics();
+    private Divergence divergence;
+
+    private TraceComparison() {
+    }
+
+    /**
+     * Compara os dois traces, lendo-os até o fim (os leitores não são
+     * fechados).
+     *
+     * @throws IOException se algum dos traces não puder ser lido.
+     */
+    public static TraceComparison compare(TraceReader traceA, TraceReader traceB) throws IOException {
+        TraceComparison result = new TraceComparison();
+        boolean moreA = traceA.next();
+        boolean moreB = traceB.next();
+        while (moreA && moreB) {
+            result.a.add(traceA);
+            result.b.add(traceB);
+            if (result.divergence == null) {
+                result.divergence = firstDifference(traceA, traceB);
+            }
+            moreA = traceA.next();
+            moreB = traceB.next();
+        }
+        if (moreA != moreB && result.divergence == null) {
+            long index = moreA ? traceA.getIndex() : traceB.getIndex();
+            result.divergence = new Divergence(index, "fim do trace",
+                    moreA ? traceA.getPc() : -1, moreB ? traceB.getPc() : -1,
+                    moreA ? "continua" : "terminou", moreB ? "continua" : "terminou");
+        }
+        for (; moreA; moreA = traceA.next()) {
+            result.a.add(traceA);
+        }
+        for (; moreB; moreB = traceB.next()) {
+            result.b.add(traceB);
+        }
+        return result;
+    }
+
+    /** O primeiro campo diferente do registro corrente dos dois traces, ou null. */
+    private static Divergence firstDifference(TraceReader a, TraceReader b) {
+        String field;
+        String valueA;
+        String valueB;
+        if (a.getPc() != b.getPc()) {
+            field = "PC";
+            valueA = Integer.toString(a.getPc());
+            valueB = Integer.toString(b.getPc());
+        } else if (a.getWord() != b.getWord()) {
+            field = "palavra";
+            valueA = String.format("0x%04X", a.getWord() & 0xFFFF);
+            valueB = String.format("0x%04X", b.getWord() & 0xFFFF);
+        } else if (a.getAc() != b.getAc()) {
+            field = "AC";
+            valueA = Integer.toString(a.getAc());
+            valueB = Integer.toString(b.getAc());
+        } else if (a.getSp() != b.getSp()) {
+            field = "SP";
+            valueA = Integer.toString(a.getSp());
+            valueB = Integer.toString(b.getSp());
+        } else if (a.getWriteAddress() != b.getWriteAddress()) {
+            field = "endereço escrito";
+            valueA = a.getWriteAddress() < 0 ? "nenhum" : Integer.toString(a.getWriteAddress());
+            valueB = b.getWriteAddress() < 0 ? "nenhum" : Integer.toString(b.getWriteAddress());
+        } else if (a.getWriteValue() != b.getWriteValue()) {
+            field = "mem[" + a.getWriteAddress() + "]";
+            valueA = Integer.toString(a.getWriteValue());
+            valueB = Integer.toString(b.getWriteValue());
+        } else {
+            return null;
+        }
+        return new Divergence(a.getIndex(), field, a.getPc(), b.getPc(), valueA, valueB);
+    }
+
+    /** Se os traces são iguais (mesmas instruções, com os mesmos efeitos). */
+    public boolean isIdentical() { return divergence == null; }
+
+    /** A primeira diferença, ou null se os traces são iguais. */
+    public Divergence getDivergence() { return divergence; }
+
+    public Statistics getStatisticsA() { return a; }
+
+    public Statistics getStatisticsB() { return b; }
+
+    /**
+     * Relatório em texto: a primeira diferença (com as labels e linhas dos
+     * programas, se conhecidos) e as estatísticas de cada trace.
+     *
+     * @param imageA o programa do trace A, ou null.
+     * @param imageB o programa do trace B, ou null.
+     */
+    public String report(ProgramImage imageA, ProgramImage imageB) {
+        StringBuilder out = new StringBuilder();
+        if (divergence == null) {
+            out.append(String.format("Traces iguais: %,d instruções%n", a.instructions));
+        } else {
+            out.append(String.format("Primeira diferença na instrução %,d (a partir de 0): %s%n",
+                    divergence.index(), divergence.field()));
+            out.append(String.format("  A: %-12s %s%n", divergence.valueA(),
+                    describe(imageA, divergence.pcA())));
+            out.append(String.format("  B: %-12s %s%n", divergence.valueB(),
+                    describe(imageB, divergence.pcB())));
+        }
+        out.append(String.format("%n%-26s %16s %16s%n", "", "A", "B"));
+        row(out, "instruções", a.instructions, b.instructions);
+        row(out, "escritas na memória", a.writes, b.writes);
+        row(out, "endereços executados", a.getExecutedAddresses(), b.getExecutedAddresses());
+        row(out, "endereços escritos", a.getWrittenAddresses(), b.getWrittenAddresses());
+        row(out, "menor SP", a.minSp, b.minSp);
+        row(out, "última instrução", a.lastPc, b.lastPc);
+        row(out, "AC final", a.lastAc, b.lastAc);
+        row(out, "SP final", a.lastSp, b.lastSp);
+        return out.toString();
+    }
+
+    private static void row(StringBuilder out, String name, long valueA, long valueB) {
+        out.append(String.format("%-26s %,16d %,16d%s%n", name, valueA, valueB, valueA != valueB ? "  *" : ""));
+    }
+
+    private static String describe(ProgramImage image, int pc) {
+        if (pc < 0) {
+            return "(fim do trace)";
+        }
+        List<Map.Entry<String, Integer>> labels = Profiler.codeLabels(image);
+        return "em " + Profiler.describe(image, labels, pc & CPU.ADDRESS_MASK);
+    }
+}
@@ -0,0 +1,185 @@
+package mic1.model;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import mic1.util.Lz4Block;
+
+/**
+ * Lê um trace gravado por {@link TraceWriter}, um registro por vez, sem
+ * alocar nada por instrução (só um bloco fica na memória):
+ *
+ * <pre>
+ * try (TraceReader trace = new TraceReader(FileUtils.openReadChannel(path))) {
+ *     while (trace.next()) {
+ *         ... trace.getPc(), trace.getWord(), trace.getAc() ...
+ *     }
+ * }
+ * </pre>
+ */
+public class TraceReader implements Closeable {
+
+    private static final VarHandle SHORT_LE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final ReadableByteChannel channel;
+    private final boolean compressed;
+
+    /** Registros do bloco corrente, em colunas (como no TraceWriter). */
+    private final short[] columns = new short[TraceWriter.FIELDS * TraceWriter.BLOCK_RECORDS];
+
+    /** Dados do bloco (diferenças) e o bloco como lido do canal (comprimido). */
+    private final byte[] data = new byte[TraceWriter.BLOCK_RECORDS * TraceWriter.RECORD_SIZE];
+    private final byte[] packed;
+
+    private final ByteBuffer blockHeader = ByteBuffer.allocate(TraceWriter.BLOCK_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    /** Registros do bloco corrente e a posição nele. */
+    private int count;
+    private int position = -1;
+
+    /** Índice do primeiro registro do bloco corrente. */
+    private long blockStart;
+
+    /**
+     * Lê e confere o cabeçalho.
+     *
+     * @param channel a origem (fechada por {@link #close()}).
+     * @throws IOException se o canal não puder ser lido ou não contiver um
+     *         trace válido.
+     */
+    public TraceReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(TraceWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        if (!readFully(header) || header.flip().getInt() != TraceWriter.MAGIC) {
+            throw new IOException("Trace inválido: não é um trace MIC-1");
+        }
+        int version = Short.toUnsignedInt(header.getShort());
+        if (version != TraceWriter.VERSION) {
+            throw new IOException("Trace inválido: versão " + version + " não suportada");
+        }
+        compressed = (header.getShort() & TraceWriter.FLAG_COMPRESSED) != 0;
+        if (header.getShort() != TraceWriter.RECORD_SIZE) {
+            throw new IOException("Trace inválido: tamanho de registro desconhecido");
+        }
+        packed = compressed ? new byte[Lz4Block.maxCompressedLength(data.length)] : null;
+    }
+
+    /**
+     * Avança para o próximo registro.
+     *
+     * @return false no fim do trace.
+     * @throws IOException se o trace estiver truncado ou corrompido.
+     */
+    public boolean next() throws IOException {
+        if (++position < count) {
+            return true;
+        }
+        if (!readBlock()) {
+            // Fica no último registro.
+            position = count - 1;
+            return false;
+        }
+        position = 0;
+        return true;
+    }
+
+    /** Lê e decodifica o próximo bloco; false no fim do canal. */
+    private boolean readBlock() throws IOException {
+        blockHeader.clear();
+        if (!readFully(blockHeader)) {
+            return false;
+        }
+        blockHeader.flip();
+        int records = blockHeader.getInt();
+        int stored = blockHeader.getInt();
+        int length = records * TraceWriter.RECORD_SIZE;
+        if (records <= 0 || records > TraceWriter.BLOCK_RECORDS
+                || stored <= 0 || stored > length || (stored < length && !compressed)) {
+            throw new IOException("Trace inválido: bloco no registro " + blockStart + " corrompido");
+        }
+        if (stored == length) {
+            if (!readFully(ByteBuffer.wrap(data, 0, length))) {
+                throw new EOFException("Trace truncado");
+            }
+        } else {
+            if (!readFully(ByteBuffer.wrap(packed, 0, stored))) {
+                throw new EOFException("Trace truncado");
+            }
+            try {
+                if (Lz4Block.decompress(packed, stored, data) != length) {
+                    throw new IllegalArgumentException("tamanho descomprimido não confere");
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Trace inválido: " + e.getMessage(), e);
+            }
+        }
+
+        // Soma as diferenças de volta, coluna a coluna.
+        int o = 0;
+        for (int field = 0; field < TraceWriter.FIELDS; field++) {
+            int base = field * TraceWriter.BLOCK_RECORDS;
+            int value = 0;
+            for (int i = 0; i < records; i++) {
+                value += (short) SHORT_LE.get(data, o);
+                o += 2;
+                columns[base + i] = (short) value;
+            }
+        }
+        blockStart += count;
+        count = records;
+        return true;
+    }
+
+    /**
+     * Enche o buffer (da posição ao limite).
+     *
+     * @return false se o canal terminou antes de o primeiro byte ser lido.
+     * @throws EOFException se o canal terminou no meio do buffer.
+     */
+    private boolean readFully(ByteBuffer buffer) throws IOException {
+        boolean started = false;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (started) {
+                    throw new EOFException("Trace truncado");
+                }
+                return false;
+            }
+            started = true;
+        }
+        return true;
+    }
+
+    /** Índice (a partir de 0) do registro corrente (o último, no fim do trace). */
+    public long getIndex() { return blockStart + position; }
+
+    public int getPc() { return columns[position] & 0xFFFF; }
+
+    /** A palavra executada (com extensão de sinal, como o IR). */
+    public int getWord() { return columns[TraceWriter.BLOCK_RECORDS + position]; }
+
+    /** AC depois da instrução. */
+    public int getAc() { return columns[2 * TraceWriter.BLOCK_RECORDS + position]; }
+
+    /** SP depois da instrução. */
+    public int getSp() { return columns[3 * TraceWriter.BLOCK_RECORDS + position]; }
+
+    /** Endereço escrito pela instrução, ou -1. */
+    public int getWriteAddress() {
+        int address = columns[4 * TraceWriter.BLOCK_RECORDS + position] & 0xFFFF;
+        return address == TraceWriter.NO_WRITE ? -1 : address;
+    }
+
+    /** Valor escrito (com extensão de sinal; 0 sem escrita). */
+    public int getWriteValue() { return columns[5 * TraceWriter.BLOCK_RECORDS + position]; }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,302 @@
+package mic1.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import mic1.util.Lz4Block;
+
+/**
+ * Grava o trace da execução (cada instrução executada) em um canal, em
+ * registros de tamanho fixo. Ligado com {@link CPU#setTrace(TraceWriter)}.
+ *
+ * Cada registro tem seis campos de 16 bits ({@link #RECORD_SIZE} bytes):
+ * PC, palavra executada, AC depois, SP depois, endereço escrito
+ * ({@link #NO_WRITE} = nenhum) e valor escrito. Formato do arquivo
+ * (inteiros little-endian):
+ *
+ * <pre>
+ * cabeçalho  "MTRC"  u16 versão  u16 flags (1 = blocos em LZ4)
+ *            u16 tamanho do registro  u16 reservado
+ * bloco      u32 nº de registros  u32 tamanho gravado  e os dados
+ * dados      os seis campos em colunas (todos os PCs do bloco, depois
+ *            todas as palavras, ...), cada valor como u16 da diferença
+ *            para o valor do registro anterior na mesma coluna;
+ *            comprimidos com {@link Lz4Block}, ou crus se o tamanho
+ *            gravado for o dos registros (nº × {@link #RECORD_SIZE})
+ * </pre>
+ *
+ * Em colunas de diferenças, um laço vira uma sequência que se repete a
+ * cada volta (o contador muda sempre do mesmo tanto), o que o LZ4 comprime
+ * muito bem e depressa.
+ *
+ * Os registros são acumulados em um bloco de {@link #BLOCK_RECORDS}
+ * instruções; cheio, ele é entregue a um grupo de threads de fundo
+ * ("mic1-trace-N", uma por processador além do da CPU, até
+ * {@link #MAX_WORKERS}), e a CPU passa a encher um bloco livre. Cada thread
+ * codifica e comprime um bloco com os seus próprios buffers, em paralelo
+ * com as outras, e espera a vez dele (os blocos têm número de sequência)
+ * para gravá-lo: o arquivo sai na ordem da execução. Se a gravação não
+ * acompanhar, a CPU espera por um bloco livre: a memória usada não cresce
+ * com o tamanho do trace.
+ *
+ * Um erro de gravação interrompe o trace (os registros seguintes são
+ * descartados) e é relançado por {@link #close()}.
+ */
+public class TraceWriter implements Closeable {
+
+    /** Versão do formato. */
+    public static final int VERSION = 1;
+
+    /** Flag do cabeçalho: blocos comprimidos. */
+    public static final int FLAG_COMPRESSED = 1;
+
+    /** Bytes por instrução. */
+    public static final int RECORD_SIZE = 12;
+
+    /** Instruções por bloco. */
+    public static final int BLOCK_RECORDS = 1 << 16;
+
+    /** Maior número de threads de compressão. */
+    public static final int MAX_WORKERS = 4;
+
+    /** Marca "nenhuma escrita" no campo de endereço escrito. */
+    public static final int NO_WRITE = 0xFFFF;
+
+    private static final VarHandle SHORT_LE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+
+    static final int MAGIC = 'M' | 'T' << 8 | 'R' << 16 | 'C' << 24;
+    static final int HEADER_SIZE = 12;
+    static final int BLOCK_HEADER_SIZE = 8;
+
+    /** Campos (colunas) de um registro. */
+    static final int FIELDS = RECORD_SIZE / 2;
+
+    /** Um bloco de registros, em colunas ({@code columns[campo * BLOCK_RECORDS + i]}). */
+    private static final class Block {
+        final short[] columns = new short[FIELDS * BLOCK_RECORDS];
+        int count;
+        /** Posição do bloco no arquivo (0, 1, ...). */
+        long sequence;
+    }
+
+    /** Bloco vazio que pede a uma thread de fundo que termine. */
+    private static final Block END = new Block();
+
+    private final WritableByteChannel channel;
+    private final boolean compressed;
+
+    /**
+     * Blocos livres e cheios: um com a CPU, um por thread de fundo e um de
+     * folga, para a CPU não parar enquanto todas as threads estão ocupadas.
+     */
+    private final BlockingQueue<Block> free;
+    private final BlockingQueue<Block> full;
+
+    private final Thread[] workers;
+
+    /** Bloco sendo preenchido pela CPU, e as colunas e a contagem dele. */
+    private Block current;
+    private short[] columns;
+    private int count;
+
+    /** Blocos entregues às threads de fundo. */
+    private long handedOff;
+
+    /** Próximo bloco a gravar (protegido por {@link #writeLock}). */
+    private long nextWrite;
+    private final Object writeLock = new Object();
+
+    private volatile IOException failure;
+    private boolean closed;
+
+    /**
+     * Grava o cabeçalho e inicia a thread de gravação.
+     *
+     * @param channel o destino (fechado por {@link #close()}).
+     * @param compressed se os blocos são comprimidos.
+     * @throws IOException se o cabeçalho não puder ser gravado.
+     */
+    public TraceWriter(WritableByteChannel channel, boolean compressed) throws IOException {
+        this.channel = channel;
+        this.compressed = compressed;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putShort((short) VERSION).putShort((short) (compressed ? FLAG_COMPRESSED : 0))
+                .putShort((short) RECORD_SIZE).putShort((short) 0).flip();
+        writeFully(header);
+
+        int threads = Math.max(1, Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors() - 1));
+        free = new ArrayBlockingQueue<>(threads + 2);
+        full = new ArrayBlockingQueue<>(threads + 2);
+        for (int i = 0; i < threads + 1; i++) {
+            free.add(new Block());
+        }
+        use(new Block());
+        workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(this::writeBlocks, "mic1-trace-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Acrescenta uma instrução (thread da simulação).
+     *
+     * @param writeAddress o endereço escrito pela instrução, ou -1.
+     * @param writeValue o valor escrito (ignorado sem escrita).
+     */
+    void record(int pc, int word, int ac, int sp, int writeAddress, int writeValue) {
+        short[] c = columns;
+        int i = count;
+        c[i] = (short) pc;
+        c[BLOCK_RECORDS + i] = (short) word;
+        c[2 * BLOCK_RECORDS + i] = (short) ac;
+        c[3 * BLOCK_RECORDS + i] = (short) sp;
+        c[4 * BLOCK_RECORDS + i] = (short) (writeAddress < 0 ? NO_WRITE : writeAddress);
+        c[5 * BLOCK_RECORDS + i] = (short) (writeAddress < 0 ? 0 : writeValue);
+        if ((count = i + 1) == BLOCK_RECORDS) {
+            handOff();
+        }
+    }
+
+    /** Entrega o bloco corrente às threads de fundo e pega um livre. */
+    private void handOff() {
+        current.count = count;
+        current.sequence = handedOff;
+        try {
+            full.put(current);
+            handedOff++;
+            use(free.take());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = new IOException("Trace interrompido", e);
+            use(new Block());
+        }
+    }
+
+    private void use(Block block) {
+        current = block;
+        columns = block.columns;
+        count = 0;
+    }
+
+    /** Número de instruções gravadas. */
+    public long getRecordCount() { return handedOff * BLOCK_RECORDS + count; }
+
+    /**
+     * Laço de uma thread de fundo: codifica e comprime cada bloco recebido
+     * e o grava na vez dele.
+     */
+    private void writeBlocks() {
+        byte[] data = new byte[BLOCK_RECORDS * RECORD_SIZE];
+        byte[] packed = compressed ? new byte[Lz4Block.maxCompressedLength(data.length)] : null;
+        ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            while (true) {
+                Block block = full.take();
+                if (block == END) {
+                    return;
+                }
+                ByteBuffer out = null;
+                if (failure == null && block.count > 0) {
+                    int length = encode(block, data);
+                    out = ByteBuffer.wrap(data, 0, length);
+                    if (compressed) {
+                        int size = Lz4Block.compress(data, length, packed);
+                        if (size < length) {
+                            out = ByteBuffer.wrap(packed, 0, size);
+                        }
+                    }
+                }
+                synchronized (writeLock) {
+                    while (nextWrite != block.sequence) {
+                        writeLock.wait();
+                    }
+                    if (out != null && failure == null) {
+                        try {
+                            blockHeader.clear();
+                            blockHeader.putInt(block.count).putInt(out.remaining()).flip();
+                            writeFully(blockHeader);
+                            writeFully(out);
+                        } catch (IOException e) {
+                            failure = e;
+                        }
+                    }
+                    nextWrite++;
+                    writeLock.notifyAll();
+                }
+                block.count = 0;
+                free.put(block);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Codifica as colunas do bloco como diferenças (u16 little-endian).
+     *
+     * @return o número de bytes.
+     */
+    private static int encode(Block block, byte[] data) {
+        int n = block.count;
+        int o = 0;
+        for (int field = 0; field < FIELDS; field++) {
+            short[] c = block.columns;
+            int base = field * BLOCK_RECORDS;
+            int previous = 0;
+            for (int i = 0; i < n; i++) {
+                int value = c[base + i];
+                SHORT_LE.set(data, o, (short) (value - previous));
+                previous = value;
+                o += 2;
+            }
+        }
+        return o;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Grava o bloco incompleto, espera as threads de fundo terminarem e
+     * fecha o canal.
+     *
+     * @throws IOException se alguma gravação falhou.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            current.count = count;
+            current.sequence = handedOff;
+            full.put(current);
+            for (int i = 0; i < workers.length; i++) {
+                full.put(END);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = new IOException("Trace interrompido", e);
+        } finally {
+            channel.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -1,9 +1,19 @@
 package mic1.util;
 
 // Imports de Java I/O (Input/Output)
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 /**
  * A "Caixa de Ferramentas" (Utilitários)
@@ -30,6 +40,15 @@ import java.nio.file.Paths;
  */
 
 public class FileUtils {
+
+    /**
+     * Arquivos a partir deste tamanho são mapeados em memória
+     * ({@link FileChannel#map}) em vez de lidos. Abaixo dele, uma leitura
+     * simples é mais barata: cada mapeamento custa chamadas ao sistema e só
+     * é desfeito quando o buffer é coletado pelo GC.
+     */
+    private static final long MAP_THRESHOLD = 1 << 20;
+
     /**
      * Construtor privado para impedir que alguém crie uma instância
      * desta classe utilitária (já que todos os métodos são static).
@@ -39,24 +58,117 @@ public class FileUtils {
     }
 
     /**
-     * Lê todo o conteúdo de um arquivo e o retorna como uma String.
+     * Lê todo o conteúdo de um arquivo de texto (UTF-8) e o retorna como uma String.
      *
      * @param path O caminho completo para o arquivo (ex: "C:/temp/codigo.asm")
      * @return O conteúdo do arquivo como uma String.
-     * @throws IOException Se o arquivo não puder ser lido.
+     * @throws IOException Se o arquivo não puder ser lido (ou não for UTF-8 válido).
      */
     public static String readFile(String path) throws IOException {
-        return new String(Files.readAllBytes(Paths.get(path)));
+        return Files.readString(Paths.get(path), StandardCharsets.UTF_8);
     }
 
     /**
-     * Escreve (ou sobrescreve) um conteúdo de String em um arquivo.
+     * Escreve (ou sobrescreve) um conteúdo de String em um arquivo (UTF-8).
      *
      * @param path O caminho completo para o arquivo (ex: "C:/temp/compilado.bin")
      * @param content O texto a ser escrito no arquivo.
      * @throws IOException Se o arquivo não puder ser escrito.
      */
     public static void writeFile(String path, String content) throws IOException {
-        Files.write(Paths.get(path), content.getBytes());
+        Files.writeString(Paths.get(path), content, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Abre um arquivo de texto (UTF-8) para leitura em partes, por um
+     * {@link FileChannel}: o conteúdo é decodificado à medida que é lido,
+     * sem carregar o arquivo inteiro na memória. Bytes que não são UTF-8
+     * válido causam uma {@link java.nio.charset.MalformedInputException}.
+     *
+     * @param path O caminho do arquivo.
+     * @return Um Reader (deve ser fechado por quem chamou).
+     * @throws IOException Se o arquivo não puder ser aberto.
+     */
+    public static Reader openReader(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        return Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1);
+    }
+
+    /**
+     * Abre (criando ou sobrescrevendo) um arquivo de texto (UTF-8) para
+     * escrita em partes, por um {@link FileChannel}.
+     *
+     * @param path O caminho do arquivo.
+     * @return Um Writer com buffer (deve ser fechado por quem chamou).
+     * @throws IOException Se o arquivo não puder ser aberto.
+     */
+    public static Writer openWriter(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1));
+    }
+
+    /**
+     * Abre um arquivo binário para leitura em partes (ex: traces, que podem
+     * ter vários gigabytes).
+     *
+     * @param path O caminho do arquivo.
+     * @return O canal (deve ser fechado por quem chamou).
+     * @throws IOException Se o arquivo não puder ser aberto.
+     */
+    public static FileChannel openReadChannel(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    /**
+     * Abre (criando ou sobrescrevendo) um arquivo binário para escrita em
+     * partes.
+     *
+     * @param path O caminho do arquivo.
+     * @return O canal (deve ser fechado por quem chamou).
+     * @throws IOException Se o arquivo não puder ser aberto.
+     */
+    public static FileChannel openWriteChannel(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Lê todo o conteúdo de um arquivo binário (little-endian), por um
+     * {@link FileChannel}. Arquivos grandes são mapeados em memória.
+     *
+     * @param path O caminho do arquivo.
+     * @return Um buffer (somente leitura) com o conteúdo, da posição 0 ao limite.
+     * @throws IOException Se o arquivo não puder ser lido.
+     */
+    public static ByteBuffer readBytes(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // lê até encher o buffer (ou o arquivo acabar)
+            }
+            return buffer.flip().asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Escreve (ou sobrescreve) um arquivo binário com os bytes restantes de
+     * {@code content}, por um {@link FileChannel}.
+     *
+     * @param path O caminho do arquivo.
+     * @param content Os bytes a escrever (da posição ao limite).
+     * @throws IOException Se o arquivo não puder ser escrito.
+     */
+    public static void writeBytes(Path path, ByteBuffer content) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
     }
 }
@@ -0,0 +1,194 @@
+package mic1.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Compressão de blocos no formato de bloco do LZ4 (sem o quadro/cabeçalho
+ * do formato de arquivo), usada nos arquivos de trace.
+ *
+ * Cada sequência é um token (4 bits do tamanho dos literais, 4 bits do
+ * tamanho da cópia menos 4), os bytes extras dos tamanhos (255 = continua),
+ * os literais e o deslocamento da cópia (u16 little-endian, até 64 KB para
+ * trás). A última sequência só tem literais. O compressor é guloso, com uma
+ * tabela de hash de 4 bytes e sem alocar nada por bloco: rápido o bastante
+ * para acompanhar a CPU em uma thread de fundo, com boa taxa nos traces
+ * (que repetem os mesmos laços).
+ */
+public final class Lz4Block {
+
+    private static final int MIN_MATCH = 4;
+
+    /** Os últimos 5 bytes são sempre literais, e a última cópia começa 12 bytes antes do fim. */
+    private static final int LAST_LITERALS = 5;
+    private static final int MATCH_FIND_LIMIT = 12;
+
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_BITS = 14;
+
+    /** Depois de 2^SKIP_TRIGGER posições sem cópia, o passo da busca cresce. */
+    private static final int SKIP_TRIGGER = 6;
+
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /** Tabela de hash de cada thread (posição + 1 da última ocorrência; 0 = vazia). */
+    private static final ThreadLocal<int[]> TABLES = ThreadLocal.withInitial(() -> new int[1 << HASH_BITS]);
+
+    private Lz4Block() {
+        // Impede a instanciação
+    }
+
+    /** Maior tamanho possível de um bloco comprimido de {@code length} bytes. */
+    public static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Comprime {@code src[0, length)} em {@code dst}, que deve ter pelo menos
+     * {@link #maxCompressedLength(int)} bytes.
+     *
+     * @return o tamanho do bloco comprimido.
+     */
+    public static int compress(byte[] src, int length, byte[] dst) {
+        int[] table = TABLES.get();
+        Arrays.fill(table, 0);
+        int anchor = 0;
+        int ip = 0;
+        int op = 0;
+        int limit = length - MATCH_FIND_LIMIT;
+        int misses = 0;
+        while (ip < limit) {
+            int sequence = (int) INT_LE.get(src, ip);
+            int h = (sequence * -1640531535) >>> (32 - HASH_BITS);
+            int ref = table[h] - 1;
+            table[h] = ip + 1;
+            if (ref < 0 || ip - ref > MAX_OFFSET || (int) INT_LE.get(src, ref) != sequence) {
+                // Sem cópias há um tempo: os dados não comprimem, avança mais depressa.
+                ip += 1 + (misses++ >>> SKIP_TRIGGER);
+                continue;
+            }
+            misses = 0;
+            int end = matchEnd(src, ip + MIN_MATCH, ref + MIN_MATCH, length - LAST_LITERALS);
+            op = writeSequence(src, anchor, ip - anchor, dst, op, ip - ref, end - ip);
+            ip = end;
+            anchor = ip;
+        }
+        return writeSequence(src, anchor, length - anchor, dst, op, 0, 0);
+    }
+
+    /**
+     * Fim da cópia que começa em {@code ip} (com a referência em
+     * {@code ref}), comparando 8 bytes de cada vez.
+     */
+    private static int matchEnd(byte[] src, int ip, int ref, int limit) {
+        while (ip <= limit - 8) {
+            long diff = (long) LONG_LE.get(src, ip) ^ (long) LONG_LE.get(src, ref);
+            if (diff != 0) {
+                return ip + (Long.numberOfTrailingZeros(diff) >>> 3);
+            }
+            ip += 8;
+            ref += 8;
+        }
+        while (ip < limit && src[ip] == src[ref]) {
+            ip++;
+            ref++;
+        }
+        return ip;
+    }
+
+    /** Grava uma sequência (com {@code matchLength} 0, só os literais finais). */
+    private static int writeSequence(byte[] src, int literals, int literalLength,
+                                     byte[] dst, int op, int offset, int matchLength) {
+        int token = op++;
+        int matchCode = matchLength == 0 ? 0 : matchLength - MIN_MATCH;
+        dst[token] = (byte) (Math.min(literalLength, 15) << 4 | Math.min(matchCode, 15));
+        op = writeLength(dst, op, literalLength);
+        System.arraycopy(src, literals, dst, op, literalLength);
+        op += literalLength;
+        if (matchLength > 0) {
+            dst[op++] = (byte) offset;
+            dst[op++] = (byte) (offset >>> 8);
+            op = writeLength(dst, op, matchCode);
+        }
+        return op;
+    }
+
+    /** Bytes extras de um tamanho que não coube nos 4 bits do token. */
+    private static int writeLength(byte[] dst, int op, int length) {
+        if (length >= 15) {
+            int rest = length - 15;
+            while (rest >= 255) {
+                dst[op++] = (byte) 255;
+                rest -= 255;
+            }
+            dst[op++] = (byte) rest;
+        }
+        return op;
+    }
+
+    /**
+     * Descomprime o bloco {@code src[0, length)} em {@code dst}.
+     *
+     * @return o número de bytes descomprimidos.
+     * @throws IllegalArgumentException se o bloco estiver corrompido (ou não
+     *         couber em {@code dst}).
+     */
+    public static int decompress(byte[] src, int length, byte[] dst) {
+        int ip = 0;
+        int op = 0;
+        try {
+            while (true) {
+                int token = src[ip++] & 0xFF;
+                int literalLength = token >>> 4;
+                if (literalLength == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        literalLength += b;
+                    } while (b == 255);
+                }
+                if (ip + literalLength > length) {
+                    throw new IllegalArgumentException("Bloco comprimido inválido: literais além do fim");
+                }
+                System.arraycopy(src, ip, dst, op, literalLength);
+                ip += literalLength;
+                op += literalLength;
+                if (ip == length) {
+                    return op;
+                }
+
+                int offset = (src[ip++] & 0xFF) | (src[ip++] & 0xFF) << 8;
+                int matchLength = token & 15;
+                if (matchLength == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+                int ref = op - offset;
+                if (offset == 0 || ref < 0 || op + matchLength > dst.length) {
+                    throw new IllegalArgumentException("Bloco comprimido inválido: cópia fora do bloco");
+                }
+                if (offset >= matchLength) {
+                    System.arraycopy(dst, ref, dst, op, matchLength);
+                    op += matchLength;
+                } else {
+                    // A cópia se sobrepõe ao que está sendo escrito (repetição):
+                    // copia o padrão já escrito, que dobra a cada passo.
+                    for (int end = op + matchLength; op < end; ) {
+                        int chunk = Math.min(op - ref, end - op);
+                        System.arraycopy(dst, ref, dst, op, chunk);
+                        op += chunk;
+                    }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Bloco comprimido inválido: truncado");
+        }
+    }
+}
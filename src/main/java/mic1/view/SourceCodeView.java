@@ -6,25 +6,30 @@ import javafx.scene.Scene;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
 import mic1.controller.SourceCodeController;
+import mic1.model.SimulationControls;
 import mic1.model.SourceCode;
 import java.io.IOException;
 
 /**
  * Classe responsável por criar e exibir a janela "Source Code".
  *
- * Recebe o modelo {@link mic1.model.SourceCode} no construtor, carrega o
+ * Recebe o modelo {@link mic1.model.SourceCode} (e os controles da
+ * simulação, que gravam o programa na memória) no construtor, carrega o
  * FXML correspondente, injeta o controller e exibe o Stage.
  */
 public class SourceCodeView {
 
     private final SourceCode sourceModel;
+    private final SimulationControls controlsModel;
 
     /**
      * Cria a view com o modelo fornecido.
      * @param sourceModel modelo de domínio associado à janela
+     * @param controlsModel controles da simulação
      */
-    public SourceCodeView(SourceCode sourceModel) {
+    public SourceCodeView(SourceCode sourceModel, SimulationControls controlsModel) {
         this.sourceModel = sourceModel;
+        this.controlsModel = controlsModel;
     }
 
     /**
@@ -41,7 +46,7 @@ public class SourceCodeView {
             Parent root = loader.load();
 
             SourceCodeController controller = loader.getController();
-            controller.setModel(this.sourceModel);
+            controller.setModel(this.sourceModel, this.controlsModel);
 
             stage.setTitle("Source Code - MIC-1 Simulator");
             stage.setScene(new Scene(root));
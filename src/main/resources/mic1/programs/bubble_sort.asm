@@ -0,0 +1,69 @@
+/ Bubble sort de 10 números nos endereços 3000-3009, com acesso indireto
+/ (PSHI lê m[AC] para a pilha, POPI grava o topo da pilha em m[AC]).
+        DESP 16         / a pilha fica abaixo das variáveis
+        LOCO 1
+        STOD um
+        LOCO 37
+        STOD 3000
+        LOCO 5
+        STOD 3001
+        LOCO 912
+        STOD 3002
+        LOCO 0
+        STOD 3003
+        LOCO 250
+        STOD 3004
+        LOCO 5
+        STOD 3005
+        LOCO 4095
+        STOD 3006
+        LOCO 64
+        STOD 3007
+        LOCO 1
+        STOD 3008
+        LOCO 100
+        STOD 3009
+        LOCO 9
+        STOD i          / i = comparações da passada
+PASSADA: LOCO 3000
+        STOD p          / p = endereço do elemento corrente
+        LODD i
+        STOD j
+COMPARA: LODD p
+        PSHI
+        POP
+        STOD x          / x = m[p]
+        LODD p
+        ADDD um
+        STOD q          / q = p + 1
+        PSHI
+        POP
+        STOD y          / y = m[p + 1]
+        SUBD x
+        JPOS SEGUE      / y >= x: já estão em ordem
+        LODD y
+        PUSH
+        LODD p
+        POPI            / m[p] = y
+        LODD x
+        PUSH
+        LODD q
+        POPI            / m[p + 1] = x
+SEGUE:  LODD q
+        STOD p
+        LODD j
+        SUBD um
+        STOD j
+        JNZE COMPARA
+        LODD i
+        SUBD um
+        STOD i
+        JNZE PASSADA
+FIM:    JUMP FIM
+um:
+i:
+j:
+p:
+q:
+x:
+y:
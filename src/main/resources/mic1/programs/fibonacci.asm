@@ -0,0 +1,37 @@
+/ Fibonacci recursivo com CALL/RETN: res = fib(15) = 610.
+/ O argumento é passado na pilha e o resultado volta no AC.
+        DESP 16         / a pilha fica abaixo das variáveis
+        LOCO 1
+        STOD um
+        LOCO 2
+        STOD dois
+        LOCO 15
+        PUSH            / argumento
+        CALL FIB
+        INSP 1          / descarta o argumento
+        STOD res
+FIM:    JUMP FIM
+
+/ FIB: n em [SP+1] (em [SP] está o endereço de retorno).
+FIB:    LODL 1
+        SUBD dois
+        JNEG BASE       / n < 2
+        LODL 1
+        SUBD um
+        PUSH
+        CALL FIB        / fib(n - 1)
+        INSP 1
+        PUSH            / guarda fib(n - 1); n passa a estar em [SP+2]
+        LODL 2
+        SUBD dois
+        PUSH
+        CALL FIB        / fib(n - 2)
+        INSP 1
+        ADDL 0          / + fib(n - 1)
+        INSP 1
+        RETN
+BASE:   LODL 1          / fib(0) = 0, fib(1) = 1
+        RETN
+um:
+dois:
+res:
@@ -0,0 +1,23 @@
+/ Multiplicação por somas sucessivas: prod = a * b (123 * 45 = 5535)
+        LOCO 123
+        STOD a
+        LOCO 45
+        STOD b
+        LOCO 1
+        STOD um
+        LOCO 0
+        STOD prod
+LOOP:   LODD b
+        JZER SAI        / b == 0: terminou
+        SUBD um
+        STOD b
+        LODD prod
+        ADDD a
+        STOD prod
+        JUMP LOOP
+SAI:    LODD prod       / resultado no AC
+FIM:    JUMP FIM
+a:
+b:
+um:
+prod:
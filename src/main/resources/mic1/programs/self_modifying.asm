@@ -0,0 +1,43 @@
+/ Código automodificável: as instruções GRAVA e SOMA têm o endereço do
+/ operando incrementado pelo próprio programa a cada volta do laço.
+/ Grava m[3000 + i] = 3i + 1 (i = 0..19) e soma os 20 valores: total = 590.
+        LOCO 1
+        STOD um
+        LOCO 3
+        STOD tres
+        LOCO 20
+        STOD n
+        LOCO 1
+        STOD valor
+INIT:   LODD valor
+GRAVA:  STOD 3000       / operando alterado abaixo
+        ADDD tres
+        STOD valor
+        LODD GRAVA      / a própria instrução, lida como dado
+        ADDD um
+        STOD GRAVA      / próximo endereço
+        LODD n
+        SUBD um
+        STOD n
+        JNZE INIT
+        LOCO 20
+        STOD n
+        LOCO 0
+SOMA:   ADDD 3000       / operando alterado abaixo
+        STOD total
+        LODD SOMA
+        ADDD um
+        STOD SOMA
+        LODD n
+        SUBD um
+        STOD n
+        JZER SAI
+        LODD total
+        JUMP SOMA
+SAI:    LODD total
+FIM:    JUMP FIM
+um:
+tres:
+n:
+valor:
+total:
@@ -0,0 +1,40 @@
+/ Laços com uso intenso da pilha: 50 rodadas que empilham 100, 99, ..., 1
+/ e desempilham somando (5050 por rodada). O total acumula em 16 bits:
+/ 50 * 5050 = 252500, que dá -9644 com o estouro.
+        DESP 16         / a pilha fica abaixo das variáveis
+        LOCO 1
+        STOD um
+        LOCO 50
+        STOD rodadas
+RODADA: LOCO 100
+        STOD k
+EMPILHA: LODD k
+        PUSH
+        SUBD um
+        STOD k
+        JNZE EMPILHA
+        LOCO 100
+        STOD k
+        LOCO 0
+        STOD soma
+DESEMP: POP
+        ADDD soma
+        STOD soma
+        LODD k
+        SUBD um
+        STOD k
+        JNZE DESEMP
+        LODD total
+        ADDD soma
+        STOD total
+        LODD rodadas
+        SUBD um
+        STOD rodadas
+        JNZE RODADA
+        LODD total
+FIM:    JUMP FIM
+um:
+rodadas:
+k:
+soma:
+total: